@@ -0,0 +1,20 @@
+package com.chat_app.chat.benchmark;
+
+import java.util.Random;
+
+// Deterministic test data, every run sees the same messages
+final class BenchmarkData {
+
+    private static final String ALPHABET = "abcdefghijklmnopqrstuvwxyz      .,!?";
+
+    private BenchmarkData() {
+    }
+
+    static String text(Random random, int length) {
+        StringBuilder text = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            text.append(ALPHABET.charAt(random.nextInt(ALPHABET.length())));
+        }
+        return text.toString();
+    }
+}
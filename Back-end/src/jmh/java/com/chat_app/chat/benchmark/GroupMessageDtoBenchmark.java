@@ -0,0 +1,62 @@
+package com.chat_app.chat.benchmark;
+
+import com.chat_app.chat.entity.ChatGroup;
+import com.chat_app.chat.entity.GroupMessage;
+import com.chat_app.chat.model.GroupMessageDTO;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+// GroupMessageDTO construction for a history list: from the entity's group reference
+// versus with the group id/name passed in (the send path)
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class GroupMessageDtoBenchmark {
+
+    @Param({"100", "1000", "10000"})
+    public int dataSize;
+
+    private List<GroupMessage> messages;
+    private ChatGroup group;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        group = new ChatGroup();
+        group.setId(1L);
+        group.setName("engineering");
+
+        messages = new ArrayList<>(dataSize);
+        LocalDateTime timestamp = LocalDateTime.of(2024, 1, 1, 12, 0);
+        for (int i = 0; i < dataSize; i++) {
+            GroupMessage message = new GroupMessage("user" + random.nextInt(50),
+                    BenchmarkData.text(random, 64), null, null, group);
+            message.setId((long) i + 1);
+            message.setTimestamp(timestamp.plusSeconds(i));
+            messages.add(message);
+        }
+    }
+
+    @Benchmark
+    public void fromEntityGroup(Blackhole blackhole) {
+        for (GroupMessage message : messages) {
+            blackhole.consume(new GroupMessageDTO(message));
+        }
+    }
+
+    @Benchmark
+    public void withKnownGroup(Blackhole blackhole) {
+        for (GroupMessage message : messages) {
+            blackhole.consume(new GroupMessageDTO(message, group.getId(), group.getName()));
+        }
+    }
+}
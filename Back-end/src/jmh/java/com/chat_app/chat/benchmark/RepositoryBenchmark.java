@@ -0,0 +1,120 @@
+package com.chat_app.chat.benchmark;
+
+import com.chat_app.chat.ChatApplication;
+import com.chat_app.chat.entity.ChatGroup;
+import com.chat_app.chat.entity.ChatMessage;
+import com.chat_app.chat.entity.GroupMessage;
+import com.chat_app.chat.model.Status;
+import com.chat_app.chat.repository.ChatMessageRepository;
+import com.chat_app.chat.repository.GroupMessageRepository;
+import com.chat_app.chat.repository.GroupRepository;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.domain.PageRequest;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+// Repository save/query paths against the in-memory H2 database of the test profile.
+// dataSize messages go into the measured conversation and group, and as many again into
+// other conversations and groups, so queries have to filter.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RepositoryBenchmark {
+
+    private static final int INSERT_CHUNK = 1000;
+
+    @Param({"100", "1000", "10000"})
+    public int dataSize;
+
+    private ConfigurableApplicationContext context;
+    private ChatMessageRepository chatMessageRepository;
+    private GroupMessageRepository groupMessageRepository;
+    private Long groupId;
+    private String conversationKey;
+    private long nextTimestamp;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = new SpringApplicationBuilder(ChatApplication.class)
+                .profiles("test")
+                .properties("server.port=0", "logging.level.root=WARN")
+                .run();
+        chatMessageRepository = context.getBean(ChatMessageRepository.class);
+        groupMessageRepository = context.getBean(GroupMessageRepository.class);
+        GroupRepository groupRepository = context.getBean(GroupRepository.class);
+
+        Random random = new Random(42);
+        ChatGroup group = newGroup(groupRepository, "measured");
+        ChatGroup otherGroup = newGroup(groupRepository, "other");
+        groupId = group.getId();
+        conversationKey = ChatMessage.conversationKey("alice", "bob");
+
+        long timestamp = 1_700_000_000_000L;
+        List<ChatMessage> chatMessages = new ArrayList<>(INSERT_CHUNK);
+        List<GroupMessage> groupMessages = new ArrayList<>(INSERT_CHUNK);
+        for (int i = 0; i < dataSize * 2; i++) {
+            boolean measured = i % 2 == 0;
+            String sender = measured ? (i % 4 == 0 ? "alice" : "bob") : "user" + random.nextInt(50);
+            String receiver = measured ? (i % 4 == 0 ? "bob" : "alice") : "user" + random.nextInt(50);
+            chatMessages.add(new ChatMessage(sender, receiver, BenchmarkData.text(random, 64),
+                    null, null, Status.MESSAGE, timestamp + i));
+
+            GroupMessage groupMessage = new GroupMessage(sender, BenchmarkData.text(random, 64),
+                    null, null, measured ? group : otherGroup);
+            groupMessage.setTimestamp(LocalDateTime.of(2024, 1, 1, 0, 0).plusSeconds(i));
+            groupMessages.add(groupMessage);
+
+            if (chatMessages.size() == INSERT_CHUNK) {
+                chatMessageRepository.saveAll(chatMessages);
+                groupMessageRepository.saveAll(groupMessages);
+                chatMessages.clear();
+                groupMessages.clear();
+            }
+        }
+        chatMessageRepository.saveAll(chatMessages);
+        groupMessageRepository.saveAll(groupMessages);
+        nextTimestamp = timestamp + dataSize * 2L;
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public List<ChatMessage> findChatHistoryBetweenUsers() {
+        return chatMessageRepository.findChatHistoryBetweenUsers("alice", "bob");
+    }
+
+    // The keyset page the history endpoint serves, for comparison with the full history
+    @Benchmark
+    public List<ChatMessage> findLatestInConversation() {
+        return chatMessageRepository.findLatestInConversation(conversationKey, PageRequest.of(0, 50));
+    }
+
+    @Benchmark
+    public List<GroupMessage> findByGroupIdOrderByIdAsc() {
+        return groupMessageRepository.findByGroupIdOrderByIdAsc(groupId);
+    }
+
+    @Benchmark
+    public ChatMessage saveChatMessage() {
+        return chatMessageRepository.save(new ChatMessage("alice", "bob", "benchmark message",
+                null, null, Status.MESSAGE, nextTimestamp++));
+    }
+
+    private static ChatGroup newGroup(GroupRepository groupRepository, String name) {
+        ChatGroup group = new ChatGroup();
+        group.setName(name);
+        return groupRepository.save(group);
+    }
+}
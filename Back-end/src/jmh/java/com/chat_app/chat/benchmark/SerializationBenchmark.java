@@ -0,0 +1,82 @@
+package com.chat_app.chat.benchmark;
+
+import com.chat_app.chat.entity.ChatGroup;
+import com.chat_app.chat.entity.GroupMessage;
+import com.chat_app.chat.model.GroupMessageDTO;
+import com.chat_app.chat.model.Message;
+import com.chat_app.chat.model.Status;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+// Jackson (de)serialization of the STOMP payloads, with the mapper configured the way
+// Spring Boot configures it. Message bodies are generated from a fixed seed.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class SerializationBenchmark {
+
+    @Param({"16", "256", "4096"})
+    public int messageLength;
+
+    private ObjectMapper objectMapper;
+    private Message message;
+    private byte[] messageJson;
+    private GroupMessageDTO groupMessage;
+    private List<GroupMessageDTO> historyPage;
+
+    @Setup
+    public void setUp() throws Exception {
+        objectMapper = Jackson2ObjectMapperBuilder.json()
+                .featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+                .build();
+
+        String text = BenchmarkData.text(new Random(42), messageLength);
+        message = new Message("alice", "bob", text, null, Status.MESSAGE, null);
+        messageJson = objectMapper.writeValueAsBytes(message);
+
+        ChatGroup group = new ChatGroup();
+        group.setId(1L);
+        group.setName("engineering");
+        GroupMessage entity = new GroupMessage("alice", text, null, null, group);
+        entity.setId(1L);
+        entity.setTimestamp(LocalDateTime.of(2024, 1, 1, 12, 0));
+        groupMessage = new GroupMessageDTO(entity);
+
+        historyPage = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            historyPage.add(groupMessage);
+        }
+    }
+
+    @Benchmark
+    public byte[] serializeMessage() throws Exception {
+        return objectMapper.writeValueAsBytes(message);
+    }
+
+    @Benchmark
+    public Message deserializeMessage() throws Exception {
+        return objectMapper.readValue(messageJson, Message.class);
+    }
+
+    @Benchmark
+    public byte[] serializeGroupMessage() throws Exception {
+        return objectMapper.writeValueAsBytes(groupMessage);
+    }
+
+    // What GET /api/groups/{groupId}/messages writes for a page of 50
+    @Benchmark
+    public byte[] serializeGroupHistoryPage() throws Exception {
+        return objectMapper.writeValueAsBytes(historyPage);
+    }
+}
@@ -0,0 +1,11 @@
+package com.chat_app.chat.load;
+
+import org.springframework.messaging.simp.stomp.StompSession;
+
+// One simulated user; session is null until connected
+record LoadClient(int index, String username, String peer, Long groupId, StompSession session) {
+
+    LoadClient withSession(StompSession session) {
+        return new LoadClient(index, username, peer, groupId, session);
+    }
+}
@@ -0,0 +1,92 @@
+package com.chat_app.chat.load;
+
+import com.chat_app.chat.model.GroupMessageRequest;
+import com.chat_app.chat.model.Message;
+import com.chat_app.chat.model.Status;
+
+import java.util.List;
+
+// What a simulated client subscribes to and sends in each scenario
+enum LoadScenario {
+
+    // Every message fans out to every connected client
+    PUBLIC {
+        @Override
+        String subscription(LoadClient client) {
+            return "/chatroom/public";
+        }
+
+        @Override
+        String sendDestination() {
+            return "/app/message";
+        }
+
+        @Override
+        Object payload(LoadClient client, String text) {
+            return new Message(client.username(), null, text, null, Status.MESSAGE, null);
+        }
+
+        @Override
+        long expectedDeliveries(LoadClient sender, List<LoadClient> connected) {
+            return connected.size();
+        }
+    },
+
+    // Clients are paired up and message their peer
+    PRIVATE {
+        @Override
+        String subscription(LoadClient client) {
+            return "/user/" + client.username() + "/private";
+        }
+
+        @Override
+        String sendDestination() {
+            return "/app/private-message";
+        }
+
+        @Override
+        Object payload(LoadClient client, String text) {
+            return new Message(client.username(), client.peer(), text, null, Status.MESSAGE, null);
+        }
+
+        @Override
+        long expectedDeliveries(LoadClient sender, List<LoadClient> connected) {
+            return 1;
+        }
+    },
+
+    // Clients are split into groups of load.group-size and message their group
+    GROUP {
+        @Override
+        String subscription(LoadClient client) {
+            return "/topic/group/" + client.groupId();
+        }
+
+        @Override
+        String sendDestination() {
+            return "/app/group-message";
+        }
+
+        @Override
+        Object payload(LoadClient client, String text) {
+            GroupMessageRequest request = new GroupMessageRequest();
+            request.setGroupId(client.groupId());
+            request.setSenderName(client.username());
+            request.setMessage(text);
+            return request;
+        }
+
+        @Override
+        long expectedDeliveries(LoadClient sender, List<LoadClient> connected) {
+            return connected.stream().filter(client -> sender.groupId().equals(client.groupId())).count();
+        }
+    };
+
+    abstract String subscription(LoadClient client);
+
+    abstract String sendDestination();
+
+    abstract Object payload(LoadClient client, String text);
+
+    abstract long expectedDeliveries(LoadClient sender, List<LoadClient> connected);
+}
@@ -0,0 +1,230 @@
+package com.chat_app.chat.load;
+
+import com.chat_app.chat.ChatApplication;
+import com.chat_app.chat.entity.ChatGroup;
+import com.chat_app.chat.entity.Users;
+import com.chat_app.chat.repository.UserRepository;
+import com.chat_app.chat.service.GroupService;
+import com.fasterxml.jackson.databind.JsonNode;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.messaging.converter.MappingJackson2MessageConverter;
+import org.springframework.messaging.simp.stomp.StompFrameHandler;
+import org.springframework.messaging.simp.stomp.StompHeaders;
+import org.springframework.messaging.simp.stomp.StompSessionHandlerAdapter;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+import org.springframework.web.socket.client.standard.StandardWebSocketClient;
+import org.springframework.web.socket.messaging.WebSocketStompClient;
+import org.springframework.web.socket.sockjs.client.SockJsClient;
+import org.springframework.web.socket.sockjs.client.WebSocketTransport;
+
+import java.lang.reflect.Type;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+// Starts the app on the in-memory test database and drives /ws with simulated STOMP
+// clients, one scenario at a time. Each scenario connects load.clients clients (at most
+// load.connect-concurrency handshakes in flight), subscribes them, lets load.senders of
+// them send load.rate messages per second for load.duration-seconds, then waits
+// load.drain-seconds for stragglers. Messages carry their send time, so send-to-receive
+// latency is measured per delivery. Run with:
+//   mvn -Ploadtest verify -Dload.args="-Dload.clients=2000 -Dload.scenarios=public,group"
+public class LoadTest {
+
+    private static final int CLIENTS = Integer.getInteger("load.clients", 1000);
+    private static final String SCENARIOS = System.getProperty("load.scenarios", "public,private,group");
+    private static final int DURATION_SECONDS = Integer.getInteger("load.duration-seconds", 30);
+    private static final int DRAIN_SECONDS = Integer.getInteger("load.drain-seconds", 5);
+    private static final double SENDERS = Double.parseDouble(System.getProperty("load.senders", "0.1"));
+    private static final double RATE = Double.parseDouble(System.getProperty("load.rate", "1"));
+    private static final int GROUP_SIZE = Integer.getInteger("load.group-size", 50);
+    private static final int MESSAGE_LENGTH = Integer.getInteger("load.message-length", 100);
+    private static final int CONNECT_CONCURRENCY = Integer.getInteger("load.connect-concurrency", 200);
+    private static final int CONNECT_TIMEOUT_SECONDS = Integer.getInteger("load.connect-timeout-seconds", 30);
+    private static final long SEED = Long.getLong("load.seed", 42);
+
+    public static void main(String[] args) throws Exception {
+        // devtools would restart the app in a separate class loader
+        System.setProperty("spring.devtools.restart.enabled", "false");
+        ConfigurableApplicationContext context = new SpringApplicationBuilder(ChatApplication.class)
+                .profiles("test")
+                .properties("server.port=0", "logging.level.root=WARN")
+                .run(args);
+        int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+        String url = "ws://localhost:" + port + "/ws";
+
+        List<LoadClient> clients = createUsers(context);
+
+        ThreadPoolTaskScheduler scheduler = new ThreadPoolTaskScheduler();
+        scheduler.setPoolSize(4);
+        scheduler.initialize();
+        WebSocketStompClient stompClient = new WebSocketStompClient(
+                new SockJsClient(List.of(new WebSocketTransport(new StandardWebSocketClient()))));
+        stompClient.setMessageConverter(new MappingJackson2MessageConverter());
+        stompClient.setTaskScheduler(scheduler);
+        stompClient.setDefaultHeartbeat(new long[]{0, 0});
+
+        List<ScenarioReport> reports = new ArrayList<>();
+        try {
+            for (String name : SCENARIOS.split(",")) {
+                LoadScenario scenario = LoadScenario.valueOf(name.trim().toUpperCase());
+                System.out.println("Running " + name.trim() + " with " + CLIENTS + " clients");
+                ScenarioReport report = run(scenario, stompClient, url, clients);
+                report.writeDistribution(Path.of("target", "load"));
+                reports.add(report);
+            }
+        } finally {
+            scheduler.shutdown();
+            context.close();
+        }
+
+        System.out.println();
+        ScenarioReport.printHeader(System.out);
+        reports.forEach(report -> report.print(System.out));
+        System.out.println("Latency distributions: target/load/<scenario>.hgrm");
+    }
+
+    private static List<LoadClient> createUsers(ConfigurableApplicationContext context) {
+        UserRepository userRepository = context.getBean(UserRepository.class);
+        GroupService groupService = context.getBean(GroupService.class);
+
+        List<Users> users = new ArrayList<>(CLIENTS);
+        for (int i = 0; i < CLIENTS; i++) {
+            users.add(new Users("load" + i, "Load " + i, "load" + i + "@example.com", "secret"));
+        }
+        users = userRepository.saveAll(users);
+
+        List<LoadClient> clients = new ArrayList<>(CLIENTS);
+        for (int start = 0; start < CLIENTS; start += GROUP_SIZE) {
+            List<Users> members = users.subList(start, Math.min(CLIENTS, start + GROUP_SIZE));
+            ChatGroup group = groupService.createGroup("load-group-" + start / GROUP_SIZE);
+            groupService.addUsersToGroup(group.getId(), members.stream().map(Users::getId).toList());
+            for (int i = start; i < start + members.size(); i++) {
+                // Pairs (0,1), (2,3)...; an odd last client talks to itself
+                int peer = i % 2 == 0 ? Math.min(i + 1, CLIENTS - 1) : i - 1;
+                clients.add(new LoadClient(i, "load" + i, "load" + peer, group.getId(), null));
+            }
+        }
+        return clients;
+    }
+
+    private static ScenarioReport run(LoadScenario scenario, WebSocketStompClient stompClient,
+                                      String url, List<LoadClient> clients) throws Exception {
+        ScenarioReport report = new ScenarioReport(scenario, clients.size());
+        List<LoadClient> connected = connect(scenario, stompClient, url, clients, report);
+
+        if (connected.isEmpty()) {
+            return report;
+        }
+        Thread.sleep(1000);
+        Random random = new Random(SEED);
+        List<LoadClient> senders = new ArrayList<>(connected);
+        Collections.shuffle(senders, random);
+        senders = senders.subList(0, (int) Math.max(1, Math.min(senders.size(), Math.round(connected.size() * SENDERS))));
+
+        long periodMicros = (long) (1_000_000 / RATE);
+        ScheduledExecutorService executor = Executors.newScheduledThreadPool(
+                Math.max(2, Runtime.getRuntime().availableProcessors()));
+        List<ScheduledFuture<?>> tasks = new ArrayList<>();
+        String padding = "x".repeat(MESSAGE_LENGTH);
+        long started = System.nanoTime();
+        for (LoadClient sender : senders) {
+            long expectedPerMessage = scenario.expectedDeliveries(sender, connected);
+            tasks.add(executor.scheduleAtFixedRate(() -> {
+                try {
+                    String text = System.nanoTime() + ":" + padding;
+                    sender.session().send(scenario.sendDestination(), scenario.payload(sender, text));
+                    report.sent.incrementAndGet();
+                    report.expected.addAndGet(expectedPerMessage);
+                } catch (RuntimeException e) {
+                    report.sendFailures.incrementAndGet();
+                }
+            }, (long) (random.nextDouble() * periodMicros), periodMicros, TimeUnit.MICROSECONDS));
+        }
+
+        Thread.sleep(TimeUnit.SECONDS.toMillis(DURATION_SECONDS));
+        tasks.forEach(task -> task.cancel(false));
+        executor.shutdown();
+        executor.awaitTermination(10, TimeUnit.SECONDS);
+        Thread.sleep(TimeUnit.SECONDS.toMillis(DRAIN_SECONDS));
+        report.measuredNanos = System.nanoTime() - started;
+
+        for (LoadClient client : connected) {
+            try {
+                client.session().disconnect();
+            } catch (RuntimeException ignored) {
+                // already gone
+            }
+        }
+        return report;
+    }
+
+    // Connects and subscribes every client; returns the ones whose subscription was confirmed
+    private static List<LoadClient> connect(LoadScenario scenario, WebSocketStompClient stompClient, String url,
+                                            List<LoadClient> clients, ScenarioReport report) throws InterruptedException {
+        Semaphore inFlight = new Semaphore(CONNECT_CONCURRENCY);
+        List<CompletableFuture<LoadClient>> futures = new ArrayList<>();
+        for (LoadClient client : clients) {
+            inFlight.acquire();
+            long started = System.nanoTime();
+            CompletableFuture<LoadClient> future = stompClient.connectAsync(url, new StompSessionHandlerAdapter() {
+                    })
+                    .thenApply(session -> subscribe(scenario, client.withSession(session), report))
+                    .orTimeout(CONNECT_TIMEOUT_SECONDS, TimeUnit.SECONDS)
+                    .whenComplete((result, error) -> {
+                        inFlight.release();
+                        if (error == null) {
+                            report.connected.incrementAndGet();
+                            report.connectTime.recordValue(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - started));
+                        } else if (report.connectFailures.getAndIncrement() == 0) {
+                            System.out.println("First connect failure: " + error);
+                        }
+                    });
+            futures.add(future);
+        }
+
+        List<LoadClient> connected = new ArrayList<>();
+        for (CompletableFuture<LoadClient> future : futures) {
+            try {
+                connected.add(future.join());
+            } catch (RuntimeException ignored) {
+                // counted as a failure above
+            }
+        }
+        return connected;
+    }
+
+    // The simple broker sends no RECEIPT frames, so a subscription counts once it is sent;
+    // SUBSCRIBE is processed before any later SEND, run() settles briefly before sending
+    private static LoadClient subscribe(LoadScenario scenario, LoadClient client, ScenarioReport report) {
+        client.session().subscribe(scenario.subscription(client), new StompFrameHandler() {
+            @Override
+            public Type getPayloadType(StompHeaders headers) {
+                return JsonNode.class;
+            }
+
+            @Override
+            public void handleFrame(StompHeaders headers, Object payload) {
+                long now = System.nanoTime();
+                String text = ((JsonNode) payload).path("message").asText("");
+                int separator = text.indexOf(':');
+                if (separator > 0) {
+                    long sentAt = Long.parseLong(text.substring(0, separator));
+                    report.latency.recordValue(Math.max(0, TimeUnit.NANOSECONDS.toMicros(now - sentAt)));
+                    report.received.incrementAndGet();
+                }
+            }
+        });
+        return client;
+    }
+}
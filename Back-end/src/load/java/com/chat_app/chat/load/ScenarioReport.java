@@ -0,0 +1,60 @@
+package com.chat_app.chat.load;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Counters and HDR histograms for one scenario run. Latencies are recorded in microseconds.
+class ScenarioReport {
+
+    final LoadScenario scenario;
+    final int clients;
+    final ConcurrentHistogram connectTime = new ConcurrentHistogram(3);
+    final ConcurrentHistogram latency = new ConcurrentHistogram(3);
+    final AtomicLong connected = new AtomicLong();
+    final AtomicLong connectFailures = new AtomicLong();
+    final AtomicLong sent = new AtomicLong();
+    final AtomicLong sendFailures = new AtomicLong();
+    final AtomicLong expected = new AtomicLong();
+    final AtomicLong received = new AtomicLong();
+    long measuredNanos;
+
+    ScenarioReport(LoadScenario scenario, int clients) {
+        this.scenario = scenario;
+        this.clients = clients;
+    }
+
+    static void printHeader(PrintStream out) {
+        out.printf("%-8s %8s %9s %7s %10s %10s %10s %10s %11s %9s %9s %9s %9s%n",
+                "scenario", "clients", "connected", "failed", "connect99",
+                "sent", "expected", "received", "recv/s", "p50", "p99", "p999", "max");
+    }
+
+    void print(PrintStream out) {
+        double seconds = measuredNanos / 1e9;
+        out.printf("%-8s %8d %9d %7d %8.1fms %10d %10d %10d %11.1f %7.2fms %7.2fms %7.2fms %7.2fms%n",
+                scenario.name().toLowerCase(), clients, connected.get(), connectFailures.get(),
+                millis(connectTime, 99.0), sent.get(), expected.get(), received.get(),
+                seconds > 0 ? received.get() / seconds : 0.0,
+                millis(latency, 50.0), millis(latency, 99.0), millis(latency, 99.9),
+                latency.getTotalCount() == 0 ? 0.0 : latency.getMaxValue() / 1000.0);
+    }
+
+    // Full percentile distribution, loadable in the HdrHistogram plotter
+    void writeDistribution(Path directory) throws IOException {
+        Files.createDirectories(directory);
+        Path file = directory.resolve(scenario.name().toLowerCase() + ".hgrm");
+        try (PrintStream out = new PrintStream(Files.newOutputStream(file))) {
+            latency.outputPercentileDistribution(out, 1000.0);
+        }
+    }
+
+    private static double millis(Histogram histogram, double percentile) {
+        return histogram.getTotalCount() == 0 ? 0.0 : histogram.getValueAtPercentile(percentile) / 1000.0;
+    }
+}
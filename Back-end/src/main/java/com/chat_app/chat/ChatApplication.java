@@ -10,8 +10,10 @@ import com.corundumstudio.socketio.listener.DisconnectListener;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.context.annotation.Bean;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
+@EnableScheduling
 public class 	ChatApplication {
 
 	public static void main(String[] args) {
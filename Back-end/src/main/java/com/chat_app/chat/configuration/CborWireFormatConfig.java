@@ -0,0 +1,134 @@
+package com.chat_app.chat.configuration;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.annotation.Order;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.MessageHeaders;
+import org.springframework.messaging.converter.MappingJackson2MessageConverter;
+import org.springframework.messaging.converter.MessageConverter;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.simp.config.ChannelRegistration;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.messaging.support.MessageHeaderAccessor;
+import org.springframework.util.MimeType;
+import org.springframework.util.MimeTypeUtils;
+import org.springframework.web.socket.config.annotation.WebSocketMessageBrokerConfigurer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Opt-in CBOR payloads for STOMP clients on the native /ws-native endpoint.
+//  - Frames sent with content-type:application/cbor are decoded like JSON ones.
+//  - A session that sends content-type:application/cbor on CONNECT receives MESSAGE
+//    payloads as CBOR, labelled application/octet-stream;format=cbor (octet-stream is
+//    what makes Spring write a binary websocket frame; SockJS sessions cannot carry them).
+// Payloads are still serialized to JSON once per send; the CBOR version is transcoded once
+// per payload and reused for every binary subscriber of a broadcast.
+@Configuration
+// Before StompCompressionConfig, so large CBOR payloads get deflated too
+@Order(1)
+public class CborWireFormatConfig implements WebSocketMessageBrokerConfigurer {
+
+    public static final MimeType APPLICATION_CBOR = new MimeType("application", "cbor");
+    public static final MimeType BINARY_CBOR = new MimeType(MimeTypeUtils.APPLICATION_OCTET_STREAM, Map.of("format", "cbor"));
+
+    private final CBORMapper cborMapper = (CBORMapper) new CBORMapper().findAndRegisterModules();
+    private final JsonFactory jsonFactory = new JsonFactory();
+    private final Set<String> cborSessions = ConcurrentHashMap.newKeySet();
+    // Weak keys compare by identity: the simple broker hands the same payload array to every subscriber
+    private final Cache<byte[], byte[]> transcoded = Caffeine.newBuilder()
+            .weakKeys()
+            .maximumSize(1024)
+            .build();
+
+    @Override
+    public boolean configureMessageConverters(List<MessageConverter> messageConverters) {
+        MappingJackson2MessageConverter cborConverter = new MappingJackson2MessageConverter(APPLICATION_CBOR);
+        cborConverter.setObjectMapper(cborMapper);
+        cborConverter.setSerializedPayloadClass(byte[].class);
+        // Only for payloads that say they are CBOR, everything else falls through to JSON
+        cborConverter.setStrictContentTypeMatch(true);
+        messageConverters.add(cborConverter);
+        // Keep the default converters, JSON stays the default format
+        return true;
+    }
+
+    @Override
+    public void configureClientInboundChannel(ChannelRegistration registration) {
+        registration.interceptors(new ChannelInterceptor() {
+            @Override
+            public Message<?> preSend(Message<?> message, MessageChannel channel) {
+                StompHeaderAccessor accessor = MessageHeaderAccessor.getAccessor(message, StompHeaderAccessor.class);
+                if (accessor == null) {
+                    return message;
+                }
+                if (accessor.getCommand() == StompCommand.CONNECT) {
+                    MimeType contentType = accessor.getContentType();
+                    if (contentType != null && APPLICATION_CBOR.equalsTypeAndSubtype(contentType)
+                            && WebSocketConfig.isNativeTransport(accessor.getSessionAttributes())) {
+                        cborSessions.add(accessor.getSessionId());
+                    }
+                } else if (accessor.getCommand() == StompCommand.DISCONNECT) {
+                    cborSessions.remove(accessor.getSessionId());
+                }
+                return message;
+            }
+        });
+    }
+
+    @Override
+    public void configureClientOutboundChannel(ChannelRegistration registration) {
+        registration.interceptors(new ChannelInterceptor() {
+            @Override
+            public Message<?> preSend(Message<?> message, MessageChannel channel) {
+                MessageHeaders headers = message.getHeaders();
+                String sessionId = SimpMessageHeaderAccessor.getSessionId(headers);
+                if (sessionId == null || !cborSessions.contains(sessionId)
+                        || SimpMessageHeaderAccessor.getMessageType(headers) != SimpMessageType.MESSAGE
+                        || !(message.getPayload() instanceof byte[] payload)) {
+                    return message;
+                }
+                SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.wrap(message);
+                MimeType contentType = accessor.getContentType();
+                if (contentType == null || !MimeTypeUtils.APPLICATION_JSON.equalsTypeAndSubtype(contentType)) {
+                    return message;
+                }
+                byte[] cbor = transcoded.get(payload, CborWireFormatConfig.this::toCbor);
+                accessor.setContentType(BINARY_CBOR);
+                accessor.setNativeHeader(StompHeaderAccessor.STOMP_CONTENT_TYPE_HEADER, BINARY_CBOR.toString());
+                return MessageBuilder.createMessage(cbor, accessor.getMessageHeaders());
+            }
+        });
+    }
+
+    // Streaming copy from JSON tokens to CBOR, no object or tree in between
+    private byte[] toCbor(byte[] json) {
+        try (JsonParser parser = jsonFactory.createParser(json)) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream(json.length);
+            try (JsonGenerator generator = cborMapper.getFactory().createGenerator(out)) {
+                while (parser.nextToken() != null) {
+                    generator.copyCurrentEvent(parser);
+                }
+            }
+            return out.toByteArray();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
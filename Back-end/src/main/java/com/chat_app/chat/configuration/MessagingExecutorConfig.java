@@ -0,0 +1,121 @@
+package com.chat_app.chat.configuration;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.core.task.TaskDecorator;
+import org.springframework.messaging.simp.config.ChannelRegistration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.web.socket.config.annotation.WebSocketMessageBrokerConfigurer;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Executors behind clientInboundChannel/clientOutboundChannel, selected by
+// chat.messaging.executor.mode:
+//   default - Spring's built-in pools
+//   pool    - sized ThreadPoolTaskExecutors
+//   virtual - a virtual thread per message, so blocking JPA calls no longer pin a pool thread
+// Every mode except default publishes chat.messaging.executor.* metrics tagged by channel.
+@Configuration
+public class MessagingExecutorConfig implements WebSocketMessageBrokerConfigurer {
+
+    private final MeterRegistry meterRegistry;
+
+    @Value("${chat.messaging.executor.mode:default}")
+    private String mode;
+
+    @Value("${chat.messaging.executor.virtual-concurrency-limit:-1}")
+    private int virtualConcurrencyLimit;
+
+    @Value("${chat.messaging.executor.inbound.core-size:16}")
+    private int inboundCoreSize;
+
+    @Value("${chat.messaging.executor.inbound.max-size:64}")
+    private int inboundMaxSize;
+
+    @Value("${chat.messaging.executor.inbound.queue-capacity:10000}")
+    private int inboundQueueCapacity;
+
+    @Value("${chat.messaging.executor.outbound.core-size:16}")
+    private int outboundCoreSize;
+
+    @Value("${chat.messaging.executor.outbound.max-size:64}")
+    private int outboundMaxSize;
+
+    @Value("${chat.messaging.executor.outbound.queue-capacity:10000}")
+    private int outboundQueueCapacity;
+
+    public MessagingExecutorConfig(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public void configureClientInboundChannel(ChannelRegistration registration) {
+        configure(registration, "inbound", inboundCoreSize, inboundMaxSize, inboundQueueCapacity);
+    }
+
+    @Override
+    public void configureClientOutboundChannel(ChannelRegistration registration) {
+        configure(registration, "outbound", outboundCoreSize, outboundMaxSize, outboundQueueCapacity);
+    }
+
+    private void configure(ChannelRegistration registration, String channel,
+                           int coreSize, int maxSize, int queueCapacity) {
+        Tags tags = Tags.of("channel", channel);
+        if ("virtual".equalsIgnoreCase(mode)) {
+            SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor("ws-" + channel + "-");
+            executor.setVirtualThreads(true);
+            // Past the limit submitters wait, which pushes back on the websocket reader threads
+            executor.setConcurrencyLimit(virtualConcurrencyLimit);
+            executor.setTaskDecorator(instrument(tags));
+            Gauge.builder("chat.messaging.executor.limit", () -> virtualConcurrencyLimit)
+                    .tags(tags).register(meterRegistry);
+            registration.executor(executor);
+        } else if ("pool".equalsIgnoreCase(mode)) {
+            ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+            executor.setThreadNamePrefix("ws-" + channel + "-");
+            executor.setTaskDecorator(instrument(tags));
+            Gauge.builder("chat.messaging.executor.queued", executor, ThreadPoolTaskExecutor::getQueueSize)
+                    .tags(tags).register(meterRegistry);
+            Gauge.builder("chat.messaging.executor.pool.size", executor, ThreadPoolTaskExecutor::getPoolSize)
+                    .tags(tags).register(meterRegistry);
+            Gauge.builder("chat.messaging.executor.limit", executor, ThreadPoolTaskExecutor::getMaxPoolSize)
+                    .tags(tags).register(meterRegistry);
+            // Spring initializes the executor and applies the sizes
+            registration.taskExecutor(executor)
+                    .corePoolSize(coreSize)
+                    .maxPoolSize(maxSize)
+                    .queueCapacity(queueCapacity);
+        }
+    }
+
+    // Counts running tasks and times how long each one waited before it started
+    private TaskDecorator instrument(Tags tags) {
+        AtomicInteger active = new AtomicInteger();
+        Gauge.builder("chat.messaging.executor.active", active, AtomicInteger::get)
+                .tags(tags).register(meterRegistry);
+        Timer wait = Timer.builder("chat.messaging.executor.wait")
+                .description("Time a message spent queued before a thread picked it up")
+                .tags(tags)
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+
+        return task -> {
+            long submitted = System.nanoTime();
+            return () -> {
+                wait.record(System.nanoTime() - submitted, TimeUnit.NANOSECONDS);
+                active.incrementAndGet();
+                try {
+                    task.run();
+                } finally {
+                    active.decrementAndGet();
+                }
+            };
+        };
+    }
+}
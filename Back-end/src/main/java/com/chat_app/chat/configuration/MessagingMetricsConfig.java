@@ -0,0 +1,142 @@
+package com.chat_app.chat.configuration;
+
+import com.chat_app.chat.service.MessagingMetrics;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.MessageHandler;
+import org.springframework.messaging.MessageHeaders;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.simp.annotation.support.SimpAnnotationMethodMessageHandler;
+import org.springframework.messaging.simp.broker.AbstractBrokerMessageHandler;
+import org.springframework.messaging.simp.config.ChannelRegistration;
+import org.springframework.messaging.simp.config.MessageBrokerRegistry;
+import org.springframework.messaging.support.ExecutorChannelInterceptor;
+import org.springframework.util.PathMatcher;
+import org.springframework.web.socket.config.annotation.WebSocketMessageBrokerConfigurer;
+
+import java.util.List;
+
+// Feeds MessagingMetrics from the STOMP channels:
+//  - clientInboundChannel: @MessageMapping handling time, session and subscription counts
+//  - brokerChannel: publish time in the broker (simple or relay). The broker channel has no
+//    executor, so publishes run on the thread handling the message and count towards it.
+@Configuration
+public class MessagingMetricsConfig implements WebSocketMessageBrokerConfigurer {
+
+    // Handling and publishing happen on the same thread, so each needs its own start time
+    private static final ThreadLocal<Long> HANDLE_STARTED = new ThreadLocal<>();
+    private static final ThreadLocal<Long> PUBLISH_STARTED = new ThreadLocal<>();
+
+    private final MessagingMetrics messagingMetrics;
+    private volatile List<String> mappings;
+
+    public MessagingMetricsConfig(MessagingMetrics messagingMetrics) {
+        this.messagingMetrics = messagingMetrics;
+    }
+
+    @Override
+    public void configureClientInboundChannel(ChannelRegistration registration) {
+        registration.interceptors(new ExecutorChannelInterceptor() {
+            @Override
+            public Message<?> preSend(Message<?> message, MessageChannel channel) {
+                MessageHeaders headers = message.getHeaders();
+                String sessionId = SimpMessageHeaderAccessor.getSessionId(headers);
+                SimpMessageType type = SimpMessageHeaderAccessor.getMessageType(headers);
+                if (sessionId == null || type == null) {
+                    return message;
+                }
+                switch (type) {
+                    case CONNECT -> messagingMetrics.sessionConnected(sessionId);
+                    case DISCONNECT -> messagingMetrics.sessionDisconnected(sessionId);
+                    case SUBSCRIBE -> messagingMetrics.subscribed(sessionId,
+                            SimpMessageHeaderAccessor.getSubscriptionId(headers),
+                            SimpMessageHeaderAccessor.getDestination(headers));
+                    case UNSUBSCRIBE -> messagingMetrics.unsubscribed(sessionId,
+                            SimpMessageHeaderAccessor.getSubscriptionId(headers));
+                    default -> {
+                    }
+                }
+                return message;
+            }
+
+            @Override
+            public Message<?> beforeHandle(Message<?> message, MessageChannel channel, MessageHandler handler) {
+                if (handler instanceof SimpAnnotationMethodMessageHandler
+                        && SimpMessageHeaderAccessor.getMessageType(message.getHeaders()) == SimpMessageType.MESSAGE) {
+                    messagingMetrics.handlingStarted();
+                    HANDLE_STARTED.set(System.nanoTime());
+                }
+                return message;
+            }
+
+            @Override
+            public void afterMessageHandled(Message<?> message, MessageChannel channel, MessageHandler handler, Exception ex) {
+                if (handler instanceof SimpAnnotationMethodMessageHandler annotationHandler) {
+                    Long started = HANDLE_STARTED.get();
+                    if (started != null) {
+                        HANDLE_STARTED.remove();
+                        String destination = SimpMessageHeaderAccessor.getDestination(message.getHeaders());
+                        messagingMetrics.handlingFinished(mappingOf(annotationHandler, destination), started, ex);
+                    }
+                }
+            }
+        });
+    }
+
+    @Override
+    public void configureMessageBroker(MessageBrokerRegistry registry) {
+        registry.configureBrokerChannel().interceptors(new ExecutorChannelInterceptor() {
+            @Override
+            public Message<?> beforeHandle(Message<?> message, MessageChannel channel, MessageHandler handler) {
+                if (handler instanceof AbstractBrokerMessageHandler
+                        && SimpMessageHeaderAccessor.getMessageType(message.getHeaders()) == SimpMessageType.MESSAGE) {
+                    PUBLISH_STARTED.set(System.nanoTime());
+                }
+                return message;
+            }
+
+            @Override
+            public void afterMessageHandled(Message<?> message, MessageChannel channel, MessageHandler handler, Exception ex) {
+                if (handler instanceof AbstractBrokerMessageHandler) {
+                    Long started = PUBLISH_STARTED.get();
+                    if (started != null) {
+                        PUBLISH_STARTED.remove();
+                        messagingMetrics.recordPublish(SimpMessageHeaderAccessor.getDestination(message.getHeaders()),
+                                System.nanoTime() - started);
+                    }
+                }
+            }
+        });
+    }
+
+    // The @MessageMapping pattern the destination resolves to, so tags stay bounded
+    private String mappingOf(SimpAnnotationMethodMessageHandler handler, String destination) {
+        if (destination == null) {
+            return "none";
+        }
+        List<String> patterns = mappings;
+        if (patterns == null) {
+            patterns = handler.getHandlerMethods().keySet().stream()
+                    .flatMap(info -> info.getDestinationConditions().getPatterns().stream())
+                    .distinct()
+                    .toList();
+            mappings = patterns;
+        }
+        String lookup = destination;
+        for (String prefix : handler.getDestinationPrefixes()) {
+            if (destination.startsWith(prefix)) {
+                lookup = destination.substring(prefix.length() - (prefix.endsWith("/") ? 1 : 0));
+                break;
+            }
+        }
+        PathMatcher pathMatcher = handler.getPathMatcher();
+        for (String pattern : patterns) {
+            if (pathMatcher.match(pattern, lookup)) {
+                return pattern;
+            }
+        }
+        return "unmapped";
+    }
+}
@@ -0,0 +1,38 @@
+package com.chat_app.chat.configuration;
+
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.WebSocketHandler;
+import org.springframework.web.socket.WebSocketMessage;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.WebSocketHandlerDecorator;
+
+// Hands the STOMP handler a queue-backed session instead of the raw transport session
+public class OutboundQueueHandlerDecorator extends WebSocketHandlerDecorator {
+
+    private final OutboundQueueRegistry registry;
+
+    public OutboundQueueHandlerDecorator(WebSocketHandler delegate, OutboundQueueRegistry registry) {
+        super(delegate);
+        this.registry = registry;
+    }
+
+    @Override
+    public void afterConnectionEstablished(WebSocketSession session) throws Exception {
+        super.afterConnectionEstablished(registry.open(session));
+    }
+
+    @Override
+    public void handleMessage(WebSocketSession session, WebSocketMessage<?> message) throws Exception {
+        super.handleMessage(registry.get(session), message);
+    }
+
+    @Override
+    public void handleTransportError(WebSocketSession session, Throwable exception) throws Exception {
+        super.handleTransportError(registry.get(session), exception);
+    }
+
+    @Override
+    public void afterConnectionClosed(WebSocketSession session, CloseStatus closeStatus) throws Exception {
+        super.afterConnectionClosed(registry.close(session), closeStatus);
+    }
+}
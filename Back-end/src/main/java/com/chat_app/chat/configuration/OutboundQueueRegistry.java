@@ -0,0 +1,131 @@
+package com.chat_app.chat.configuration;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+// Settings, live sessions and metrics for the per-session outbound queues.
+// Per-session depth is served at /actuator/outboundqueues.
+@Component
+@Endpoint(id = "outboundqueues")
+public class OutboundQueueRegistry {
+
+    private final Map<String, OutboundQueueSession> sessions = new ConcurrentHashMap<>();
+    // One virtual thread per session that currently has frames to write
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final MeterRegistry meterRegistry;
+    private final Counter evicted;
+
+    private final int maxFrames;
+    private final long maxBytes;
+    private final long sendTimeLimit;
+    private final OutboundQueueSession.OverflowPolicy overflowPolicy;
+    private final String[] nonCriticalPrefixes;
+
+    public OutboundQueueRegistry(MeterRegistry meterRegistry,
+                                 @Value("${chat.outbound.max-frames:1000}") int maxFrames,
+                                 @Value("${chat.outbound.max-bytes:4194304}") long maxBytes,
+                                 @Value("${chat.outbound.send-time-limit-ms:15000}") long sendTimeLimit,
+                                 @Value("${chat.outbound.overflow-policy:DROP_OLDEST}") OutboundQueueSession.OverflowPolicy overflowPolicy,
+                                 @Value("${chat.outbound.non-critical-prefixes:/topic/online-users,/topic/typing}") String[] nonCriticalPrefixes) {
+        this.meterRegistry = meterRegistry;
+        this.maxFrames = maxFrames;
+        this.maxBytes = maxBytes;
+        this.sendTimeLimit = sendTimeLimit;
+        this.overflowPolicy = overflowPolicy;
+        this.nonCriticalPrefixes = nonCriticalPrefixes;
+
+        this.evicted = Counter.builder("chat.outbound.evicted")
+                .description("Sessions closed because they could not keep up")
+                .register(meterRegistry);
+    }
+
+    // Registered once construction is done, the gauges hold on to the registry
+    @PostConstruct
+    void registerGauges() {
+        Gauge.builder("chat.outbound.sessions", sessions, Map::size).register(meterRegistry);
+        Gauge.builder("chat.outbound.queued.frames", this, registry -> registry.sessions.values().stream()
+                .mapToInt(OutboundQueueSession::getQueueDepth).sum()).register(meterRegistry);
+        Gauge.builder("chat.outbound.queue.max-depth", this, registry -> registry.sessions.values().stream()
+                .mapToInt(OutboundQueueSession::getQueueDepth).max().orElse(0)).register(meterRegistry);
+    }
+
+    public OutboundQueueSession open(WebSocketSession session) {
+        return sessions.computeIfAbsent(session.getId(), id -> new OutboundQueueSession(session, this));
+    }
+
+    public WebSocketSession get(WebSocketSession session) {
+        OutboundQueueSession queued = sessions.get(session.getId());
+        return queued != null ? queued : session;
+    }
+
+    public WebSocketSession close(WebSocketSession session) {
+        OutboundQueueSession queued = sessions.remove(session.getId());
+        return queued != null ? queued : session;
+    }
+
+    @ReadOperation
+    public Map<String, Integer> queueDepths() {
+        Map<String, Integer> depths = new TreeMap<>();
+        sessions.forEach((id, session) -> depths.put(id, session.getQueueDepth()));
+        return depths;
+    }
+
+    boolean isCritical(String destination) {
+        if (destination == null) {
+            return true;
+        }
+        for (String prefix : nonCriticalPrefixes) {
+            if (destination.startsWith(prefix)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    void recordDropped(String reason) {
+        meterRegistry.counter("chat.outbound.dropped", "reason", reason).increment();
+    }
+
+    void recordEvicted() {
+        evicted.increment();
+    }
+
+    ExecutorService getExecutor() {
+        return executor;
+    }
+
+    int getMaxFrames() {
+        return maxFrames;
+    }
+
+    long getMaxBytes() {
+        return maxBytes;
+    }
+
+    long getSendTimeLimit() {
+        return sendTimeLimit;
+    }
+
+    OutboundQueueSession.OverflowPolicy getOverflowPolicy() {
+        return overflowPolicy;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,275 @@
+package com.chat_app.chat.configuration;
+
+import org.springframework.web.socket.BinaryMessage;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketMessage;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.WebSocketSessionDecorator;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Bounded outbound queue for one websocket session. sendMessage only enqueues, a drain
+// task does the (possibly slow) network write, so one slow client never holds up the
+// thread broadcasting to everyone else. When the queue is full the overflow policy decides
+// what gives: old non-critical frames, an older frame for the same destination, or the session.
+public class OutboundQueueSession extends WebSocketSessionDecorator {
+
+    public enum OverflowPolicy {
+        DROP_OLDEST,
+        COALESCE,
+        DISCONNECT
+    }
+
+    private enum Outcome {
+        ENQUEUE,
+        SKIP,
+        EVICT
+    }
+
+    private record Frame(WebSocketMessage<?> message, String destination, int size, boolean critical,
+                         boolean error) {
+    }
+
+    private final OutboundQueueRegistry registry;
+    private final Deque<Frame> queue = new ArrayDeque<>();
+    // Held for every write to the delegate, which allows only one at a time
+    private final ReentrantLock writeLock = new ReentrantLock();
+    private long queuedBytes;
+    private boolean draining;
+    private boolean closed;
+    private volatile long sendStartedAt;
+
+    public OutboundQueueSession(WebSocketSession delegate, OutboundQueueRegistry registry) {
+        super(delegate);
+        this.registry = registry;
+    }
+
+    public synchronized int getQueueDepth() {
+        return queue.size();
+    }
+
+    public synchronized long getQueuedBytes() {
+        return queuedBytes;
+    }
+
+    @Override
+    public void sendMessage(WebSocketMessage<?> message) throws IOException {
+        String headers = headersOf(message);
+        String destination = destinationOf(headers);
+        Frame frame = new Frame(message, destination, message.getPayloadLength(), registry.isCritical(destination),
+                headers != null && headers.startsWith("ERROR"));
+
+        boolean startDrain = false;
+        boolean evict = false;
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            long started = sendStartedAt;
+            if (started > 0 && System.currentTimeMillis() - started > registry.getSendTimeLimit()) {
+                // The write in progress has been stuck for too long
+                evict = true;
+            } else {
+                Outcome outcome = makeRoom(frame);
+                if (outcome == Outcome.ENQUEUE) {
+                    queue.addLast(frame);
+                    queuedBytes += frame.size();
+                    if (!draining) {
+                        draining = true;
+                        startDrain = true;
+                    }
+                } else if (outcome == Outcome.EVICT) {
+                    evict = true;
+                }
+            }
+        }
+
+        if (evict) {
+            evict();
+        } else if (startDrain) {
+            registry.getExecutor().execute(this::drain);
+        }
+    }
+
+    // Called with the lock held
+    private Outcome makeRoom(Frame frame) {
+        if (fits(frame)) {
+            return Outcome.ENQUEUE;
+        }
+        OverflowPolicy policy = registry.getOverflowPolicy();
+        if (policy == OverflowPolicy.DISCONNECT) {
+            return Outcome.EVICT;
+        }
+
+        // Coalesce first: the new frame supersedes older non-critical ones for the same destination
+        if (policy == OverflowPolicy.COALESCE && !frame.critical() && frame.destination() != null) {
+            Iterator<Frame> iterator = queue.iterator();
+            while (iterator.hasNext() && !fits(frame)) {
+                Frame queued = iterator.next();
+                if (!queued.critical() && frame.destination().equals(queued.destination())) {
+                    iterator.remove();
+                    queuedBytes -= queued.size();
+                    registry.recordDropped("coalesced");
+                }
+            }
+        }
+
+        // Then drop the oldest non-critical frames
+        Iterator<Frame> iterator = queue.iterator();
+        while (iterator.hasNext() && !fits(frame)) {
+            Frame queued = iterator.next();
+            if (!queued.critical()) {
+                iterator.remove();
+                queuedBytes -= queued.size();
+                registry.recordDropped("dropped");
+            }
+        }
+        if (fits(frame)) {
+            return Outcome.ENQUEUE;
+        }
+
+        // Only critical frames are left: a non-critical newcomer is dropped, a critical
+        // one means the client cannot keep up with real messages and has to go
+        if (!frame.critical()) {
+            registry.recordDropped("dropped");
+            return Outcome.SKIP;
+        }
+        return Outcome.EVICT;
+    }
+
+    // An oversized frame still goes through when nothing else is waiting
+    private boolean fits(Frame frame) {
+        return queue.isEmpty() || (queue.size() < registry.getMaxFrames()
+                && queuedBytes + frame.size() <= registry.getMaxBytes());
+    }
+
+    private void drain() {
+        while (true) {
+            Frame frame;
+            synchronized (this) {
+                frame = queue.pollFirst();
+                if (frame == null || closed) {
+                    draining = false;
+                    return;
+                }
+                queuedBytes -= frame.size();
+                sendStartedAt = System.currentTimeMillis();
+            }
+            writeLock.lock();
+            try {
+                getDelegate().sendMessage(frame.message());
+            } catch (IOException | RuntimeException e) {
+                synchronized (this) {
+                    draining = false;
+                }
+                evict();
+                return;
+            } finally {
+                writeLock.unlock();
+                sendStartedAt = 0;
+            }
+        }
+    }
+
+    @Override
+    public void close(CloseStatus status) throws IOException {
+        List<Frame> errors = new ArrayList<>();
+        synchronized (this) {
+            closed = true;
+            queue.stream().filter(Frame::error).forEach(errors::add);
+            queue.clear();
+            queuedBytes = 0;
+        }
+        sendBeforeClose(errors);
+        super.close(status);
+    }
+
+    // An ERROR frame queued just before the close says why, so it still goes out; a write
+    // stuck for longer than the send time limit is not waited for
+    private void sendBeforeClose(List<Frame> errors) {
+        if (errors.isEmpty()) {
+            return;
+        }
+        try {
+            if (!writeLock.tryLock(registry.getSendTimeLimit(), TimeUnit.MILLISECONDS)) {
+                return;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        }
+        try {
+            for (Frame frame : errors) {
+                getDelegate().sendMessage(frame.message());
+            }
+        } catch (IOException | RuntimeException ignored) {
+            // the session is closing anyway
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    private void evict() {
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            queue.clear();
+            queuedBytes = 0;
+        }
+        registry.recordEvicted();
+        try {
+            getDelegate().close(CloseStatus.SESSION_NOT_RELIABLE);
+        } catch (IOException ignored) {
+            // the transport is already gone
+        }
+    }
+
+    // STOMP frames start with the command line followed by headers. Binary frames still have text headers.
+    private static String headersOf(WebSocketMessage<?> message) {
+        if (message instanceof TextMessage textMessage) {
+            return textMessage.getPayload();
+        } else if (message instanceof BinaryMessage binaryMessage) {
+            return headersOf(binaryMessage.getPayload());
+        }
+        return null;
+    }
+
+    // Only MESSAGE frames have a destination worth looking at
+    private static String destinationOf(String payload) {
+        if (payload == null || !payload.startsWith("MESSAGE")) {
+            return null;
+        }
+        int headerEnd = payload.indexOf("\n\n");
+        int start = payload.indexOf("\ndestination:");
+        if (start < 0 || (headerEnd >= 0 && start > headerEnd)) {
+            return null;
+        }
+        start += "\ndestination:".length();
+        int end = payload.indexOf('\n', start);
+        return end < 0 ? payload.substring(start) : payload.substring(start, end);
+    }
+
+    private static String headersOf(ByteBuffer buffer) {
+        ByteBuffer frame = buffer.duplicate();
+        int start = frame.position();
+        for (int i = start; i < frame.limit() - 1; i++) {
+            if (frame.get(i) == '\n' && frame.get(i + 1) == '\n') {
+                frame.limit(i);
+                break;
+            }
+        }
+        return StandardCharsets.UTF_8.decode(frame).toString();
+    }
+}
@@ -0,0 +1,31 @@
+package com.chat_app.chat.configuration;
+
+import com.chat_app.chat.model.UserPrincipal;
+import jakarta.servlet.http.HttpSession;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServletServerHttpRequest;
+import org.springframework.web.socket.WebSocketHandler;
+import org.springframework.web.socket.server.support.DefaultHandshakeHandler;
+
+import java.security.Principal;
+import java.util.Map;
+
+// Gives the websocket session the user logged in on the HTTP session, so /user
+// destinations and presence can find it; without a login the session stays anonymous
+public class SessionUserHandshakeHandler extends DefaultHandshakeHandler {
+
+    // Where ChatController's login keeps the user
+    public static final String SESSION_USER_ATTRIBUTE = "user";
+
+    @Override
+    protected Principal determineUser(ServerHttpRequest request, WebSocketHandler wsHandler,
+                                      Map<String, Object> attributes) {
+        if (request instanceof ServletServerHttpRequest servletRequest) {
+            HttpSession session = servletRequest.getServletRequest().getSession(false);
+            if (session != null && session.getAttribute(SESSION_USER_ATTRIBUTE) instanceof UserPrincipal user) {
+                return user;
+            }
+        }
+        return super.determineUser(request, wsHandler, attributes);
+    }
+}
@@ -0,0 +1,188 @@
+package com.chat_app.chat.configuration;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.annotation.Order;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.MessageHeaders;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.simp.config.ChannelRegistration;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.messaging.support.MessageHeaderAccessor;
+import org.springframework.util.MimeType;
+import org.springframework.util.MimeTypeUtils;
+import org.springframework.web.socket.config.annotation.WebSocketMessageBrokerConfigurer;
+
+import java.io.ByteArrayOutputStream;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.Deflater;
+
+// Per-message deflate for STOMP bodies on /ws-native, with the threshold and level the
+// container's permessage-deflate does not offer. A session opts in with
+// accept-encoding:deflate on CONNECT; MESSAGE bodies of at least threshold-bytes are then
+// raw-deflated and sent as binary frames with content-encoding:deflate and
+// content-type application/octet-stream;format=<original subtype>.
+// chat.websocket.compression.* metrics show bytes in/out and the time spent compressing.
+@Configuration
+@Order(2)
+public class StompCompressionConfig implements WebSocketMessageBrokerConfigurer {
+
+    public static final String CONTENT_ENCODING_HEADER = "content-encoding";
+
+    // Cached for payloads that deflate does not shrink (the cache must not hold on to its own keys)
+    private static final byte[] INCOMPRESSIBLE = new byte[0];
+
+    private final boolean enabled;
+    private final int threshold;
+    private final int level;
+
+    private final Set<String> sessions = ConcurrentHashMap.newKeySet();
+    // Keyed by payload identity, a broadcast is compressed once for all its subscribers
+    private final Cache<byte[], byte[]> compressed = Caffeine.newBuilder()
+            .weakKeys()
+            .maximumSize(1024)
+            .build();
+    // Deflaters hold native memory, reuse them instead of one per frame
+    private final Queue<Deflater> deflaters = new ConcurrentLinkedQueue<>();
+
+    private final Counter rawBytes;
+    private final Counter compressedBytes;
+    private final Counter belowThreshold;
+    private final Counter incompressible;
+    private final Timer compressTime;
+
+    public StompCompressionConfig(MeterRegistry meterRegistry,
+                                  @Value("${chat.websocket.compression.enabled:true}") boolean enabled,
+                                  @Value("${chat.websocket.compression.threshold-bytes:1024}") int threshold,
+                                  @Value("${chat.websocket.compression.level:1}") int level) {
+        this.enabled = enabled;
+        this.threshold = threshold;
+        this.level = level;
+
+        rawBytes = Counter.builder("chat.websocket.compression.bytes")
+                .tag("stage", "raw").baseUnit("bytes").register(meterRegistry);
+        compressedBytes = Counter.builder("chat.websocket.compression.bytes")
+                .tag("stage", "compressed").baseUnit("bytes").register(meterRegistry);
+        belowThreshold = Counter.builder("chat.websocket.compression.skipped")
+                .tag("reason", "threshold").register(meterRegistry);
+        incompressible = Counter.builder("chat.websocket.compression.skipped")
+                .tag("reason", "incompressible").register(meterRegistry);
+        compressTime = Timer.builder("chat.websocket.compression.time")
+                .description("CPU time spent deflating outbound frames")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+
+    @Override
+    public void configureClientInboundChannel(ChannelRegistration registration) {
+        registration.interceptors(new ChannelInterceptor() {
+            @Override
+            public Message<?> preSend(Message<?> message, MessageChannel channel) {
+                StompHeaderAccessor accessor = MessageHeaderAccessor.getAccessor(message, StompHeaderAccessor.class);
+                if (accessor == null) {
+                    return message;
+                }
+                if (accessor.getCommand() == StompCommand.CONNECT) {
+                    String acceptEncoding = accessor.getFirstNativeHeader("accept-encoding");
+                    if (enabled && acceptEncoding != null && acceptEncoding.contains("deflate")
+                            && WebSocketConfig.isNativeTransport(accessor.getSessionAttributes())) {
+                        sessions.add(accessor.getSessionId());
+                    }
+                } else if (accessor.getCommand() == StompCommand.DISCONNECT) {
+                    sessions.remove(accessor.getSessionId());
+                }
+                return message;
+            }
+        });
+    }
+
+    @Override
+    public void configureClientOutboundChannel(ChannelRegistration registration) {
+        registration.interceptors(new ChannelInterceptor() {
+            @Override
+            public Message<?> preSend(Message<?> message, MessageChannel channel) {
+                MessageHeaders headers = message.getHeaders();
+                String sessionId = SimpMessageHeaderAccessor.getSessionId(headers);
+                if (sessionId == null || !sessions.contains(sessionId)
+                        || SimpMessageHeaderAccessor.getMessageType(headers) != SimpMessageType.MESSAGE
+                        || !(message.getPayload() instanceof byte[] payload)) {
+                    return message;
+                }
+                if (payload.length < threshold) {
+                    belowThreshold.increment();
+                    return message;
+                }
+                byte[] deflated = compressed.get(payload, StompCompressionConfig.this::deflate);
+                if (deflated == INCOMPRESSIBLE) {
+                    return message;
+                }
+
+                SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.wrap(message);
+                MimeType binaryType = binaryType(accessor.getContentType());
+                accessor.setContentType(binaryType);
+                accessor.setNativeHeader(StompHeaderAccessor.STOMP_CONTENT_TYPE_HEADER, binaryType.toString());
+                accessor.setNativeHeader(CONTENT_ENCODING_HEADER, "deflate");
+                return MessageBuilder.createMessage(deflated, accessor.getMessageHeaders());
+            }
+        });
+    }
+
+    // Octet-stream is what makes Spring write a binary frame; the format parameter keeps the original type
+    private static MimeType binaryType(MimeType contentType) {
+        if (contentType == null) {
+            return MimeTypeUtils.APPLICATION_OCTET_STREAM;
+        }
+        if (MimeTypeUtils.APPLICATION_OCTET_STREAM.equalsTypeAndSubtype(contentType)) {
+            return contentType;
+        }
+        return new MimeType(MimeTypeUtils.APPLICATION_OCTET_STREAM, Map.of("format", contentType.getSubtype()));
+    }
+
+    // Returns INCOMPRESSIBLE when deflating does not make the payload smaller
+    private byte[] deflate(byte[] payload) {
+        long started = System.nanoTime();
+        Deflater deflater = deflaters.poll();
+        if (deflater == null) {
+            // nowrap: raw deflate, what DecompressionStream("deflate-raw") reads
+            deflater = new Deflater(level, true);
+        }
+        try {
+            deflater.setInput(payload);
+            deflater.finish();
+            ByteArrayOutputStream out = new ByteArrayOutputStream(payload.length / 2);
+            byte[] buffer = new byte[8192];
+            while (!deflater.finished()) {
+                out.write(buffer, 0, deflater.deflate(buffer));
+            }
+            byte[] result = out.toByteArray();
+
+            rawBytes.increment(payload.length);
+            if (result.length >= payload.length) {
+                incompressible.increment();
+                compressedBytes.increment(payload.length);
+                return INCOMPRESSIBLE;
+            }
+            compressedBytes.increment(result.length);
+            return result;
+        } finally {
+            deflater.reset();
+            deflaters.offer(deflater);
+            compressTime.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+        }
+    }
+}
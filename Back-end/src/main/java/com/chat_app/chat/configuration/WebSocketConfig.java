@@ -1,29 +1,133 @@
 package com.chat_app.chat.configuration;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
 import org.springframework.messaging.simp.config.MessageBrokerRegistry;
+import org.springframework.web.socket.WebSocketExtension;
+import org.springframework.web.socket.WebSocketHandler;
 import org.springframework.web.socket.config.annotation.*;
+import org.springframework.web.socket.server.HandshakeInterceptor;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
 
 @Configuration
 @EnableWebSocketMessageBroker
 public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
 
+    // Session attribute set for connections on /ws-native, the only ones that can take binary frames
+    public static final String NATIVE_TRANSPORT_ATTRIBUTE = "chat.nativeTransport";
+
+    private final OutboundQueueRegistry outboundQueueRegistry;
+
+    // "simple" keeps the in-memory broker (single node), "relay" fans out through an
+    // external STOMP broker so several instances can serve the same rooms
+    @Value("${chat.broker.mode:simple}")
+    private String brokerMode;
+
+    @Value("${chat.broker.relay.host:localhost}")
+    private String relayHost;
+
+    @Value("${chat.broker.relay.port:61613}")
+    private int relayPort;
+
+    @Value("${chat.broker.relay.client-login:guest}")
+    private String relayClientLogin;
+
+    @Value("${chat.broker.relay.client-passcode:guest}")
+    private String relayClientPasscode;
+
+    @Value("${chat.broker.relay.system-login:guest}")
+    private String relaySystemLogin;
+
+    @Value("${chat.broker.relay.system-passcode:guest}")
+    private String relaySystemPasscode;
+
+    // "/private" covers user destinations once resolved: a subscription to /user/private
+    // becomes /private-user{sessionId}, which needs the principal SessionUserHandshakeHandler sets
+    @Value("${chat.broker.relay.prefixes:/chatroom,/topic,/queue,/private}")
+    private String[] relayPrefixes;
+
+    // Tomcat's permessage-deflate compresses every frame at the default level, with no
+    // threshold; StompCompressionConfig does it selectively, so the container one is off by default
+    @Value("${chat.websocket.compression.container-deflate:false}")
+    private boolean containerDeflate;
+
+    public static boolean isNativeTransport(Map<String, Object> sessionAttributes) {
+        return sessionAttributes != null && Boolean.TRUE.equals(sessionAttributes.get(NATIVE_TRANSPORT_ATTRIBUTE));
+    }
+
+    public WebSocketConfig(OutboundQueueRegistry outboundQueueRegistry) {
+        this.outboundQueueRegistry = outboundQueueRegistry;
+    }
+
     @Override
     public void registerStompEndpoints(StompEndpointRegistry registry) {
-        registry.addEndpoint("/ws").setAllowedOriginPatterns("*").withSockJS();
+        registry.addEndpoint("/ws")
+                .setAllowedOriginPatterns("*")
+                .setHandshakeHandler(new SessionUserHandshakeHandler())
+                .withSockJS();
+        // Plain websocket endpoint, needed for binary (CBOR) frames
+        registry.addEndpoint("/ws-native")
+                .setAllowedOriginPatterns("*")
+                .setHandshakeHandler(new SessionUserHandshakeHandler() {
+                    @Override
+                    protected List<WebSocketExtension> filterRequestedExtensions(ServerHttpRequest request,
+                                                                                 List<WebSocketExtension> requested,
+                                                                                 List<WebSocketExtension> supported) {
+                        List<WebSocketExtension> extensions = new ArrayList<>(super.filterRequestedExtensions(request, requested, supported));
+                        if (!containerDeflate) {
+                            extensions.removeIf(extension -> "permessage-deflate".equalsIgnoreCase(extension.getName()));
+                        }
+                        return extensions;
+                    }
+                })
+                .addInterceptors(new HandshakeInterceptor() {
+                    @Override
+                    public boolean beforeHandshake(ServerHttpRequest request, ServerHttpResponse response,
+                                                   WebSocketHandler wsHandler, Map<String, Object> attributes) {
+                        attributes.put(NATIVE_TRANSPORT_ATTRIBUTE, true);
+                        return true;
+                    }
+
+                    @Override
+                    public void afterHandshake(ServerHttpRequest request, ServerHttpResponse response,
+                                               WebSocketHandler wsHandler, Exception exception) {
+                    }
+                });
     }
 
     @Override
     public void configureMessageBroker(MessageBrokerRegistry registry) {
         registry.setApplicationDestinationPrefixes("/app");
-        registry.enableSimpleBroker("/chatroom", "/user", "/topic");
+        if ("relay".equalsIgnoreCase(brokerMode)) {
+            registry.enableStompBrokerRelay(relayPrefixes)
+                    .setRelayHost(relayHost)
+                    .setRelayPort(relayPort)
+                    .setClientLogin(relayClientLogin)
+                    .setClientPasscode(relayClientPasscode)
+                    .setSystemLogin(relaySystemLogin)
+                    .setSystemPasscode(relaySystemPasscode)
+                    // Share connected users between nodes and pass on messages for users
+                    // connected elsewhere, so /user destinations resolve cluster-wide
+                    .setUserRegistryBroadcast("/topic/simp-user-registry")
+                    .setUserDestinationBroadcast("/topic/unresolved-user-destination");
+        } else {
+            registry.enableSimpleBroker("/chatroom", "/user", "/topic");
+        }
         registry.setUserDestinationPrefix("/user");
     }
 
     @Override
     public void configureWebSocketTransport(WebSocketTransportRegistration registry) {
+        // Outbound frames are buffered and bounded per session by OutboundQueueSession,
+        // Spring's own send buffer only ever sees one frame at a time
         registry.setSendTimeLimit(60 * 1000)
-                .setSendBufferSizeLimit(50 * 1024 * 1024)
-                .setMessageSizeLimit(50 * 1024 * 1024);
+                .setSendBufferSizeLimit(512 * 1024)
+                .setMessageSizeLimit(50 * 1024 * 1024)
+                .addDecoratorFactory(handler -> new OutboundQueueHandlerDecorator(handler, outboundQueueRegistry));
     }
-}
\ No newline at end of file
+}
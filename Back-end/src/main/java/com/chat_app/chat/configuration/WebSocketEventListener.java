@@ -22,7 +22,7 @@ public class WebSocketEventListener {
         SimpMessageHeaderAccessor headers = SimpMessageHeaderAccessor.wrap(event.getMessage());
         String username = headers.getUser() != null ? headers.getUser().getName() : null;
         if (username != null) {
-            userPresenceService.userConnected(username);
+            userPresenceService.userConnected(username, headers.getSessionId());
         }
     }
 
@@ -31,7 +31,7 @@ public class WebSocketEventListener {
         StompHeaderAccessor headerAccessor = StompHeaderAccessor.wrap(event.getMessage());
         String username = headerAccessor.getUser() != null ? headerAccessor.getUser().getName() : null;
         if (username != null) {
-            userPresenceService.userDisconnected(username);
+            userPresenceService.userDisconnected(username, event.getSessionId());
         }
     }
 }
\ No newline at end of file
@@ -0,0 +1,39 @@
+package com.chat_app.chat.controller;
+
+import com.chat_app.chat.model.ArchiveRunStatus;
+import com.chat_app.chat.service.MessageArchive;
+import com.chat_app.chat.service.MessageArchiver;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+@RestController
+@RequestMapping("/api/archive")
+public class ArchiveController {
+
+    private final MessageArchive messageArchive;
+    private final MessageArchiver messageArchiver;
+
+    public ArchiveController(MessageArchive messageArchive, MessageArchiver messageArchiver) {
+        this.messageArchive = messageArchive;
+        this.messageArchiver = messageArchiver;
+    }
+
+    // Archive old messages now instead of waiting for the next scheduled run
+    @PostMapping("/run")
+    public ResponseEntity<ArchiveRunStatus> run() {
+        if (!messageArchive.isEnabled()) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.accepted().body(messageArchiver.startRun());
+    }
+
+    // Progress of the last run
+    @GetMapping("/run")
+    public ResponseEntity<ArchiveRunStatus> getRunStatus() {
+        ArchiveRunStatus status = messageArchiver.getStatus();
+        if (status == null) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok(status);
+    }
+}
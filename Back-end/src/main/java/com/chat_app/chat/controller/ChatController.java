@@ -1,59 +1,87 @@
 package com.chat_app.chat.controller;
 
+import com.chat_app.chat.configuration.SessionUserHandshakeHandler;
 import com.chat_app.chat.entity.ChatMessage;
 import com.chat_app.chat.entity.Users;
+import com.chat_app.chat.model.CachedUser;
+import com.chat_app.chat.model.ImageVariant;
 import com.chat_app.chat.model.LoginRequest;
 import com.chat_app.chat.model.Message;
+import com.chat_app.chat.model.PresenceSnapshot;
 import com.chat_app.chat.model.UserDto;
+import com.chat_app.chat.model.UserPrincipal;
 import com.chat_app.chat.repository.ChatMessageRepository;
-import com.chat_app.chat.repository.UserRepository;
+import com.chat_app.chat.service.ChatHistoryService;
+import com.chat_app.chat.service.ChatMessageWriter;
+import com.chat_app.chat.service.FileStorageService;
+import com.chat_app.chat.service.PublicMessageBuffer;
+import com.chat_app.chat.service.ThumbnailService;
 import com.chat_app.chat.service.UserPresenceService;
 import com.chat_app.chat.service.UserService;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.servlet.http.HttpSession;
 import lombok.AllArgsConstructor;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpRange;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.messaging.handler.annotation.MessageMapping;
 import org.springframework.messaging.handler.annotation.SendTo;
 import org.springframework.messaging.simp.SimpMessagingTemplate;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.ServletWebRequest;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
 import java.util.List;
 import java.util.Set;
-import java.util.UUID;
 
 @RestController
 @AllArgsConstructor
 @RequestMapping("/api/users")
 public class ChatController {
 
+    private static final String SENDFILE_SUPPORT = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
     private final SimpMessagingTemplate simpMessagingTemplate;
-    private final UserRepository userRepository;
     private final ChatMessageRepository chatMessageRepository;
     private final UserPresenceService userPresenceService;
+    private final ChatMessageWriter chatMessageWriter;
+    private final ChatHistoryService chatHistoryService;
+    private final PublicMessageBuffer publicMessageBuffer;
+    private final FileStorageService fileStorageService;
+    private final ThumbnailService thumbnailService;
 
     @Autowired
     private UserService userService;
 
     @PostMapping("/login")
     public ResponseEntity<?> login(@RequestBody LoginRequest loginRequest, HttpSession session) {
-        Users user = userRepository.findByUsername(loginRequest.getUsername());
+        CachedUser user = userService.findByUsername(loginRequest.getUsername());
         if (user == null) {
             return ResponseEntity.status(404).body("User not found");
         }
 
-        if (!user.getPassword().equals(loginRequest.getPassword())) {
+        if (!user.password().equals(loginRequest.getPassword())) {
             return ResponseEntity.status(401).body("Invalid password");
         }
 
-        // Set session attribute
-        session.setAttribute("user", user);
+        // The session only keeps who is logged in, not the user row
+        session.setAttribute(SessionUserHandshakeHandler.SESSION_USER_ATTRIBUTE,
+                new UserPrincipal(user.id(), user.username()));
 
         return ResponseEntity.ok("Login successful");
     }
@@ -65,8 +93,8 @@ public class ChatController {
     }
 
     @GetMapping("/search")
-    public ResponseEntity<Users> findByUsername(@RequestParam String username) {
-        Users user = userService.findByUsername(username);
+    public ResponseEntity<CachedUser> findByUsername(@RequestParam String username) {
+        CachedUser user = userService.findByUsername(username);
         if (user == null) {
             return ResponseEntity.status(HttpStatus.NOT_FOUND).body(null);
         }
@@ -74,13 +102,12 @@ public class ChatController {
     }
 
     @PostMapping("/signup")
-    public ResponseEntity<?> signup(@RequestBody UserDto userDto) {
-        Users user = new Users();
-        user.setUsername(userDto.getUsername());
-        user.setName(userDto.getName());
-        user.setEmail(userDto.getEmail());
-        user.setPassword(userDto.getPassword());
-        userRepository.save(user);
+    public ResponseEntity<?> signup(@RequestBody UserDto userDto, HttpSession session) {
+        Users user = userService.signUpUser(userDto.getUsername(), userDto.getName(),
+                userDto.getEmail(), userDto.getPassword());
+        // The client goes straight to the chat, which needs the login for its websocket
+        session.setAttribute(SessionUserHandshakeHandler.SESSION_USER_ATTRIBUTE,
+                new UserPrincipal(user.getId(), user.getUsername()));
         return ResponseEntity.ok("User created successfully");
     }
 
@@ -88,19 +115,9 @@ public class ChatController {
     @PostMapping("/upload")
     public ResponseEntity<String> handleFileUpload(@RequestParam("file") MultipartFile file) {
         try {
-            // Create uploads directory if it doesn't exist
-            Path uploadsDir = Paths.get("uploads");
-            if (!Files.exists(uploadsDir)) {
-                Files.createDirectories(uploadsDir);
-            }
-
-            // Generate unique filename
-            String fileName = UUID.randomUUID().toString() + "_" + file.getOriginalFilename();
-            Path filePath = uploadsDir.resolve(fileName);
-
-            // Save file
-            Files.write(filePath, file.getBytes());
-
+            // Content-addressed: re-uploading the same file returns the existing handle
+            String fileName = fileStorageService.store(file);
+            thumbnailService.submit(fileName, fileStorageService.getContentType(fileName));
             return ResponseEntity.ok(fileName);
         } catch (IOException e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
@@ -108,54 +125,120 @@ public class ChatController {
         }
     }
 
-    // File retrieval endpoint
+    // File retrieval endpoint: streams from disk with Range and conditional GET support.
+    // ?variant=thumb|preview serves a downscaled image once it has been generated.
     @GetMapping("/files/{filename}")
-    public ResponseEntity<byte[]> getFile(@PathVariable String filename) {
-        try {
-            Path filePath = Paths.get("uploads").resolve(filename);
-            if (!Files.exists(filePath)) {
-                return ResponseEntity.notFound().build();
+    public void getFile(@PathVariable String filename,
+                        @RequestParam(required = false) String variant,
+                        ServletWebRequest webRequest,
+                        HttpServletRequest request, HttpServletResponse response) throws IOException {
+        Path filePath = fileStorageService.resolve(filename);
+        if (filePath == null || !Files.isRegularFile(filePath)) {
+            response.sendError(HttpStatus.NOT_FOUND.value());
+            return;
+        }
+
+        String contentTypeName = filename;
+        ImageVariant imageVariant = ImageVariant.fromParam(variant);
+        if (imageVariant != null) {
+            // Falls back to the original while the variant is still being generated
+            Path variantPath = fileStorageService.resolveVariant(filename, imageVariant);
+            if (variantPath != null) {
+                filePath = variantPath;
+                contentTypeName = variantPath.getFileName().toString();
             }
+        }
 
-            byte[] fileContent = Files.readAllBytes(filePath);
-            String contentType = Files.probeContentType(filePath);
-            if (contentType == null) {
-                contentType = "application/octet-stream";
+        BasicFileAttributes attributes = Files.readAttributes(filePath, BasicFileAttributes.class);
+        long length = attributes.size();
+        long lastModified = attributes.lastModifiedTime().toMillis();
+        String etag = "\"" + Long.toHexString(length) + "-" + Long.toHexString(lastModified) + "\"";
+
+        // Sets ETag/Last-Modified and answers 304 when the client copy is current
+        if (webRequest.checkNotModified(etag, lastModified)) {
+            return;
+        }
+
+        response.setContentType(fileStorageService.getContentType(contentTypeName));
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+
+        long start = 0;
+        long count = length;
+        String rangeHeader = request.getHeader(HttpHeaders.RANGE);
+        String ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+        if (rangeHeader != null && (ifRange == null || ifRange.equals(etag))) {
+            try {
+                List<HttpRange> ranges = HttpRange.parseRanges(rangeHeader);
+                // Multipart byte ranges are not worth it here, those clients get the whole file
+                if (ranges.size() == 1) {
+                    start = ranges.get(0).getRangeStart(length);
+                    count = ranges.get(0).getRangeEnd(length) - start + 1;
+                    response.setStatus(HttpStatus.PARTIAL_CONTENT.value());
+                    response.setHeader(HttpHeaders.CONTENT_RANGE,
+                            "bytes " + start + "-" + (start + count - 1) + "/" + length);
+                }
+            } catch (IllegalArgumentException e) {
+                response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + length);
+                response.sendError(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE.value());
+                return;
             }
+        }
 
-            return ResponseEntity.ok()
-                    .header("Content-Type", contentType)
-                    .body(fileContent);
-        } catch (IOException e) {
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+        response.setContentLengthLong(count);
+        if (HttpMethod.HEAD.matches(request.getMethod()) || count == 0) {
+            return;
+        }
+        writeFile(filePath, start, count, request, response);
+    }
+
+    private void writeFile(Path filePath, long start, long count,
+                           HttpServletRequest request, HttpServletResponse response) throws IOException {
+        // Tomcat can hand the file straight to the kernel once the handler returns
+        if (Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT))) {
+            request.setAttribute(SENDFILE_FILENAME, filePath.toString());
+            request.setAttribute(SENDFILE_START, start);
+            request.setAttribute(SENDFILE_END, start + count);
+            return;
+        }
+
+        try (FileChannel channel = FileChannel.open(filePath, StandardOpenOption.READ)) {
+            WritableByteChannel out = Channels.newChannel(response.getOutputStream());
+            long position = start;
+            long remaining = count;
+            while (remaining > 0) {
+                long sent = channel.transferTo(position, remaining, out);
+                if (sent <= 0) {
+                    break;
+                }
+                position += sent;
+                remaining -= sent;
+            }
         }
     }
 
     @MessageMapping("/message")
     @SendTo("/chatroom/public")
-    public Message receiveMessage(Message message) throws InterruptedException {
-        // Save to the database (now stores filename instead of base64)
-        chatMessageRepository.save(new ChatMessage(
-                message.getSenderName(),
-                message.getReceiverName(),
-                message.getMessage(),
-                message.getMedia(), // This is now the filename
-                message.getMediaType(),
-                message.getStatus(),
-                System.currentTimeMillis()
-        ));
-
-        Thread.sleep(1000);
+    public Message receiveMessage(Message message) {
+        // Broadcast right away, persistence happens behind the write-behind queue;
+        // queueing numbers the message and puts it in the public buffer, so it goes out with its seq
+        ChatMessage chatMessage = toEntity(message);
+        chatMessageWriter.enqueue(chatMessage);
+        message.setSeq(chatMessage.getSeq());
         return message;
     }
 
     @MessageMapping("/private-message")
     public void privateMessage(Message message) {
-        String receiver = message.getReceiverName();
-        simpMessagingTemplate.convertAndSendToUser(receiver, "/private", message);
+        // Queue for the database first, that assigns the seq the receiver gets to see
+        ChatMessage chatMessage = toEntity(message);
+        chatMessageWriter.enqueue(chatMessage);
+        message.setSeq(chatMessage.getSeq());
+
+        simpMessagingTemplate.convertAndSendToUser(message.getReceiverName(), "/private", message);
+    }
 
-        // Save private message to the database
-        chatMessageRepository.save(new ChatMessage(
+    private ChatMessage toEntity(Message message) {
+        return new ChatMessage(
                 message.getSenderName(),
                 message.getReceiverName(),
                 message.getMessage(),
@@ -163,15 +246,20 @@ public class ChatController {
                 message.getMediaType(),
                 message.getStatus(),
                 System.currentTimeMillis()
-        ));
+        );
     }
 
+    // Keyset-paginated history, oldest first: pass the first id as "before" to load
+    // older messages or the last id as "after" to catch up
     @GetMapping("/messages/history/{user1}/{user2}")
     public ResponseEntity<List<ChatMessage>> getChatHistory(
             @PathVariable String user1,
-            @PathVariable String user2
+            @PathVariable String user2,
+            @RequestParam(required = false) Long before,
+            @RequestParam(required = false) Long after,
+            @RequestParam(required = false) Integer limit
     ) {
-        List<ChatMessage> messages = chatMessageRepository.findChatHistoryBetweenUsers(user1, user2);
+        List<ChatMessage> messages = chatHistoryService.getHistoryPage(user1, user2, before, after, limit);
         return ResponseEntity.ok(messages);
     }
 
@@ -181,14 +269,23 @@ public class ChatController {
         return ResponseEntity.ok(userPresenceService.getOnlineUsers());
     }
 
+    // Published presence state with its version, for clients that missed a delta
+    @GetMapping("/online-users/snapshot")
+    public ResponseEntity<PresenceSnapshot> getOnlineUsersSnapshot() {
+        return ResponseEntity.ok(userPresenceService.getSnapshot());
+    }
+
     @GetMapping("/users/{username}/status")
     public ResponseEntity<Boolean> isUserOnline(@PathVariable String username) {
         return ResponseEntity.ok(userPresenceService.isUserOnline(username));
     }
     @GetMapping("/messages/public")
-    public ResponseEntity<List<ChatMessage>> getPublicMessages() {
-        // Get messages where receiver is null (public messages)
-        List<ChatMessage> publicMessages = chatMessageRepository.findByReceiverNameIsNull();
+    public ResponseEntity<List<ChatMessage>> getPublicMessages(
+            @RequestParam(required = false) Long before,
+            @RequestParam(required = false) Integer limit
+    ) {
+        // Recent public messages come from memory, older pages from the database
+        List<ChatMessage> publicMessages = publicMessageBuffer.getPage(before, limit);
         return ResponseEntity.ok(publicMessages);
     }
 }
\ No newline at end of file
@@ -1,6 +1,8 @@
 package com.chat_app.chat.controller;
 
 import com.chat_app.chat.entity.ChatGroup;
+import com.chat_app.chat.model.GroupDeletionStatus;
+import com.chat_app.chat.service.GroupDeletionService;
 import com.chat_app.chat.service.GroupService;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
@@ -11,9 +13,11 @@ import java.util.List;
 @RequestMapping("/api/groups")
 public class GroupController {
     private final GroupService groupService;
+    private final GroupDeletionService groupDeletionService;
 
-    public GroupController(GroupService groupService) {
+    public GroupController(GroupService groupService, GroupDeletionService groupDeletionService) {
         this.groupService = groupService;
+        this.groupDeletionService = groupDeletionService;
     }
 
     // Create group
@@ -48,10 +52,38 @@ public class GroupController {
         return ResponseEntity.ok(groupService.removeUserFromGroup(groupId, userId));
     }
 
-    // Delete group
+    // Add several users to group
+    @PostMapping("/{groupId}/addUsers")
+    public ResponseEntity<ChatGroup> addUsersToGroup(@PathVariable Long groupId,
+                                                     @RequestBody List<Long> userIds) {
+        return ResponseEntity.ok(groupService.addUsersToGroup(groupId, userIds));
+    }
+
+    // Remove several users from group
+    @DeleteMapping("/{groupId}/removeUsers")
+    public ResponseEntity<ChatGroup> removeUsersFromGroup(@PathVariable Long groupId,
+                                                          @RequestBody List<Long> userIds) {
+        return ResponseEntity.ok(groupService.removeUsersFromGroup(groupId, userIds));
+    }
+
+    // Delete group, with ?async=true the history is removed by a background job
     @DeleteMapping("/{groupId}")
-    public ResponseEntity<?> deleteGroup(@PathVariable Long groupId) {
+    public ResponseEntity<?> deleteGroup(@PathVariable Long groupId,
+                                         @RequestParam(defaultValue = "false") boolean async) {
+        if (async) {
+            return ResponseEntity.accepted().body(groupDeletionService.startDeletion(groupId));
+        }
         groupService.deleteGroup(groupId);
         return ResponseEntity.ok().build();
     }
+
+    // Progress of a background group deletion
+    @GetMapping("/{groupId}/deletion")
+    public ResponseEntity<GroupDeletionStatus> getDeletionStatus(@PathVariable Long groupId) {
+        GroupDeletionStatus status = groupDeletionService.getStatus(groupId);
+        if (status == null) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok(status);
+    }
 }
\ No newline at end of file
@@ -0,0 +1,42 @@
+package com.chat_app.chat.controller;
+
+import com.chat_app.chat.entity.ConversationSummary;
+import com.chat_app.chat.service.ConversationInboxService;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/inbox")
+public class InboxController {
+
+    private final ConversationInboxService inboxService;
+
+    public InboxController(ConversationInboxService inboxService) {
+        this.inboxService = inboxService;
+    }
+
+    // A user's conversations, most recently active first
+    @GetMapping("/{username}")
+    public ResponseEntity<List<ConversationSummary>> getInbox(@PathVariable String username,
+                                                              @RequestParam(required = false) Integer limit) {
+        return ResponseEntity.ok(inboxService.getInbox(username, limit));
+    }
+
+    // Clear the unread count of one conversation, given either the peer or the group
+    @PostMapping("/{username}/read")
+    public ResponseEntity<Void> markRead(@PathVariable String username,
+                                         @RequestParam(required = false) String peer,
+                                         @RequestParam(required = false) Long groupId) {
+        if ((peer == null) == (groupId == null)) {
+            return ResponseEntity.badRequest().build();
+        }
+        if (peer != null) {
+            inboxService.markPeerRead(username, peer);
+        } else {
+            inboxService.markGroupRead(username, groupId);
+        }
+        return ResponseEntity.noContent().build();
+    }
+}
@@ -0,0 +1,48 @@
+package com.chat_app.chat.controller;
+
+import com.chat_app.chat.model.ReadReceipt;
+import com.chat_app.chat.model.TypingEvent;
+import com.chat_app.chat.service.ReadReceiptService;
+import com.chat_app.chat.service.TypingIndicatorService;
+import org.springframework.http.ResponseEntity;
+import org.springframework.messaging.handler.annotation.MessageMapping;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.Map;
+
+// Typing and read events are ephemeral: they are handled in memory and never stored per event
+@RestController
+@RequestMapping("/api/receipts")
+public class ReceiptController {
+
+    private final TypingIndicatorService typingIndicatorService;
+    private final ReadReceiptService readReceiptService;
+
+    public ReceiptController(TypingIndicatorService typingIndicatorService,
+                             ReadReceiptService readReceiptService) {
+        this.typingIndicatorService = typingIndicatorService;
+        this.readReceiptService = readReceiptService;
+    }
+
+    @MessageMapping("/typing")
+    public void handleTyping(TypingEvent event) {
+        typingIndicatorService.onEvent(event);
+    }
+
+    @MessageMapping("/read")
+    public void handleRead(ReadReceipt receipt) {
+        readReceiptService.onReceipt(receipt);
+    }
+
+    // How far the peer has read in their conversation with username, for a client that just connected
+    @GetMapping("/{username}/peers/{peer}")
+    public ResponseEntity<Long> getPeerReadSeq(@PathVariable String username, @PathVariable String peer) {
+        Long seq = readReceiptService.getPeerReadSeq(username, peer);
+        return seq != null ? ResponseEntity.ok(seq) : ResponseEntity.notFound().build();
+    }
+
+    @GetMapping("/groups/{groupId}")
+    public ResponseEntity<Map<String, Long>> getGroupReadSeqs(@PathVariable Long groupId) {
+        return ResponseEntity.ok(readReceiptService.getGroupReadSeqs(groupId));
+    }
+}
@@ -0,0 +1,72 @@
+package com.chat_app.chat.controller;
+
+import com.chat_app.chat.model.MessageSearchPage;
+import com.chat_app.chat.model.SearchRebuildStatus;
+import com.chat_app.chat.service.MessageSearchIndex;
+import com.chat_app.chat.service.SearchIndexRebuilder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+@RestController
+@RequestMapping("/api/search")
+public class SearchController {
+
+    private final MessageSearchIndex searchIndex;
+    private final SearchIndexRebuilder searchIndexRebuilder;
+    private final int defaultPageSize;
+    private final int maxPageSize;
+
+    public SearchController(MessageSearchIndex searchIndex,
+                            SearchIndexRebuilder searchIndexRebuilder,
+                            @Value("${chat.search.default-page-size:20}") int defaultPageSize,
+                            @Value("${chat.search.max-page-size:100}") int maxPageSize) {
+        this.searchIndex = searchIndex;
+        this.searchIndexRebuilder = searchIndexRebuilder;
+        this.defaultPageSize = defaultPageSize;
+        this.maxPageSize = maxPageSize;
+    }
+
+    // Search one private conversation
+    @GetMapping("/conversations/{user1}/{user2}")
+    public ResponseEntity<MessageSearchPage> searchConversation(@PathVariable String user1,
+                                                                @PathVariable String user2,
+                                                                @RequestParam String q,
+                                                                @RequestParam(defaultValue = "0") int page,
+                                                                @RequestParam(required = false) Integer size) {
+        return search(MessageSearchIndex.conversationScope(user1, user2), q, page, size);
+    }
+
+    // Search one group
+    @GetMapping("/groups/{groupId}")
+    public ResponseEntity<MessageSearchPage> searchGroup(@PathVariable Long groupId,
+                                                         @RequestParam String q,
+                                                         @RequestParam(defaultValue = "0") int page,
+                                                         @RequestParam(required = false) Integer size) {
+        return search(MessageSearchIndex.groupScope(groupId), q, page, size);
+    }
+
+    private ResponseEntity<MessageSearchPage> search(String scope, String q, int page, Integer size) {
+        if (q.isBlank() || page < 0) {
+            return ResponseEntity.badRequest().build();
+        }
+        int pageSize = size == null || size <= 0 ? defaultPageSize : Math.min(size, maxPageSize);
+        return ResponseEntity.ok(searchIndex.search(scope, q, page, pageSize));
+    }
+
+    // Reindex every stored message in the background
+    @PostMapping("/rebuild")
+    public ResponseEntity<SearchRebuildStatus> rebuild() {
+        return ResponseEntity.accepted().body(searchIndexRebuilder.startRebuild());
+    }
+
+    // Progress of the last rebuild
+    @GetMapping("/rebuild")
+    public ResponseEntity<SearchRebuildStatus> getRebuildStatus() {
+        SearchRebuildStatus status = searchIndexRebuilder.getStatus();
+        if (status == null) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok(status);
+    }
+}
@@ -0,0 +1,32 @@
+package com.chat_app.chat.controller;
+
+import com.chat_app.chat.model.SyncRequest;
+import com.chat_app.chat.model.SyncResponse;
+import com.chat_app.chat.service.SyncService;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+@RestController
+@RequestMapping("/api/sync")
+public class SyncController {
+
+    private final SyncService syncService;
+
+    public SyncController(SyncService syncService) {
+        this.syncService = syncService;
+    }
+
+    // Called after a reconnect with the last seq seen per conversation, instead of
+    // reloading every history
+    @PostMapping
+    public ResponseEntity<SyncResponse> sync(@RequestBody SyncRequest request) {
+        if (request.getUsername() == null) {
+            return ResponseEntity.badRequest().build();
+        }
+        if (syncService.isTooLarge(request)) {
+            return ResponseEntity.status(HttpStatus.PAYLOAD_TOO_LARGE).build();
+        }
+        return ResponseEntity.ok(syncService.sync(request));
+    }
+}
@@ -3,7 +3,9 @@ package com.chat_app.chat.entity;
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 @Entity
 public class ChatGroup {
@@ -14,9 +16,19 @@ public class ChatGroup {
 
     private String name;
 
+    // Last sequence number handed out to a message of this group, only ever written by
+    // GroupRepository.nextSeq, never by flushing a loaded (possibly stale) group
+    @Column(name = "last_seq", insertable = false, updatable = false)
+    private Long lastSeq;
+
+    // A Set rather than a bag, so Hibernate inserts/deletes single join rows instead of
+    // rewriting the whole join table. Table and column names are the ones the bag used.
     @ManyToMany(fetch = FetchType.LAZY)
+    @JoinTable(name = "chat_group_members",
+            joinColumns = @JoinColumn(name = "chat_group_id"),
+            inverseJoinColumns = @JoinColumn(name = "members_id"))
     @JsonIgnore // Prevent serialization of members to avoid lazy loading issues
-    private List<Users> members = new ArrayList<>();
+    private Set<Users> members = new HashSet<>();
 
     @OneToMany(mappedBy = "group", cascade = CascadeType.ALL, orphanRemoval = true)
     @JsonIgnore // Prevent serialization of messages
@@ -29,8 +41,11 @@ public class ChatGroup {
     public String getName() { return name; }
     public void setName(String name) { this.name = name; }
 
-    public List<Users> getMembers() { return members; }
-    public void setMembers(List<Users> members) { this.members = members; }
+    public Long getLastSeq() { return lastSeq; }
+    public void setLastSeq(Long lastSeq) { this.lastSeq = lastSeq; }
+
+    public Set<Users> getMembers() { return members; }
+    public void setMembers(Set<Users> members) { this.members = members; }
 
     public List<GroupMessage> getMessages() { return messages; }
     public void setMessages(List<GroupMessage> messages) { this.messages = messages; }
@@ -8,11 +8,16 @@ import lombok.NoArgsConstructor;
 @Data
 @NoArgsConstructor
 @Entity
-@Table(name = "chat_message")
+@Table(name = "chat_message", indexes = {
+        @Index(name = "idx_chat_message_conversation", columnList = "conversation_key, id"),
+        @Index(name = "idx_chat_message_receiver", columnList = "receiver_name, id"),
+        @Index(name = "idx_chat_message_conversation_seq", columnList = "conversation_key, seq"),
+        @Index(name = "idx_chat_message_receiver_seq", columnList = "receiver_name, seq")
+})
 public class ChatMessage {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @SnowflakeId // time-ordered, so id order is insert order
     private Long id;
 
     private String senderName;
@@ -30,6 +35,14 @@ public class ChatMessage {
     @Column(nullable = false)
     private Long timestamp;
 
+    // Same value for both directions of a private conversation, null for public messages
+    @Column(name = "conversation_key", length = 520)
+    private String conversationKey;
+
+    // Position within the conversation (or the public room), assigned when the message is
+    // accepted; null for rows stored before sequences existed
+    private Long seq;
+
     public ChatMessage(String senderName, String receiverName, String message,
                        String media, String mediaType, Status status, Long timestamp) {
         this.senderName = senderName;
@@ -39,5 +52,17 @@ public class ChatMessage {
         this.mediaType = mediaType;
         this.status = status;
         this.timestamp = timestamp;
+        this.conversationKey = senderName != null && receiverName != null
+                ? conversationKey(senderName, receiverName)
+                : null;
+    }
+
+    // Order-independent key for the pair; the length prefix keeps it unambiguous
+    // whatever characters the usernames contain
+    public static String conversationKey(String user1, String user2) {
+        if (user1.compareTo(user2) > 0) {
+            return user2.length() + ":" + user2 + ":" + user1;
+        }
+        return user1.length() + ":" + user1 + ":" + user2;
     }
 }
\ No newline at end of file
@@ -0,0 +1,22 @@
+package com.chat_app.chat.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Last seq handed out in a private conversation or the public room, shared by every node.
+// Only ever written through ChatSequenceRepository's single-statement increment.
+@Data
+@NoArgsConstructor
+@Entity
+@Table(name = "chat_sequence")
+public class ChatSequence {
+
+    // A conversation_key, or ChatMessageWriter.PUBLIC_SCOPE
+    @Id
+    @Column(length = 520)
+    private String scope;
+
+    @Column(name = "last_seq", nullable = false)
+    private Long lastSeq;
+}
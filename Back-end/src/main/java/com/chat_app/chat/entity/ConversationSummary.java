@@ -0,0 +1,88 @@
+package com.chat_app.chat.entity;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// One row per user and conversation (a peer or a group), kept current by the message
+// write paths, so a user's inbox is a single range scan over idx_conversation_summary_inbox
+@Data
+@NoArgsConstructor
+@Entity
+@Table(name = "conversation_summary",
+        uniqueConstraints = @UniqueConstraint(name = "uk_conversation_summary_thread",
+                columnNames = {"owner_name", "thread_key"}),
+        indexes = {
+                @Index(name = "idx_conversation_summary_inbox", columnList = "owner_name, last_activity"),
+                @Index(name = "idx_conversation_summary_group", columnList = "group_id")
+        })
+public class ConversationSummary {
+
+    @Id
+    @SnowflakeId
+    private Long id;
+
+    @Column(name = "owner_name", nullable = false)
+    private String ownerName;
+
+    // "user:<peer>" or "group:<id>"
+    @Column(name = "thread_key", nullable = false)
+    private String threadKey;
+
+    private String peerName;
+
+    @Column(name = "group_id")
+    private Long groupId;
+
+    private String groupName;
+
+    private Long lastMessageId;
+    private String lastSenderName;
+
+    @Column(length = 200)
+    private String lastMessagePreview;
+
+    // Epoch millis of the last message, or of joining a group that has none yet
+    @Column(name = "last_activity", nullable = false)
+    private Long lastActivity;
+
+    @Column(nullable = false)
+    private int unreadCount;
+
+    // Seq of the last message, and the owner's read watermark (written by ReadReceiptService);
+    // null for conversations from before sequence numbers
+    private Long lastSeq;
+    private Long lastReadSeq;
+
+    // Bumped by every update, including the bulk ones, so concurrent writers notice each other
+    @Version
+    @JsonIgnore
+    private Long version;
+
+    public static String peerThread(String peerName) {
+        return "user:" + peerName;
+    }
+
+    public static String groupThread(Long groupId) {
+        return "group:" + groupId;
+    }
+
+    public static ConversationSummary forPeer(String ownerName, String peerName) {
+        ConversationSummary summary = new ConversationSummary();
+        summary.setOwnerName(ownerName);
+        summary.setThreadKey(peerThread(peerName));
+        summary.setPeerName(peerName);
+        return summary;
+    }
+
+    public static ConversationSummary forGroup(String ownerName, Long groupId, String groupName, long joinedAt) {
+        ConversationSummary summary = new ConversationSummary();
+        summary.setOwnerName(ownerName);
+        summary.setThreadKey(groupThread(groupId));
+        summary.setGroupId(groupId);
+        summary.setGroupName(groupName);
+        summary.setLastActivity(joinedAt);
+        return summary;
+    }
+}
@@ -10,10 +10,12 @@ import java.time.LocalDateTime;
 @Data
 @NoArgsConstructor
 @Entity
-@Table(name = "group_message")
+@Table(name = "group_message", indexes = {
+        @Index(name = "idx_group_message_group_seq", columnList = "group_id, seq")
+})
 public class GroupMessage {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @SnowflakeId // time-ordered, so id order is insert order
     private Long id;
 
     private String senderName;
@@ -28,6 +30,9 @@ public class GroupMessage {
 
     private LocalDateTime timestamp;
 
+    // Position within the group, taken from chat_group.last_seq in the sending transaction
+    private Long seq;
+
     public GroupMessage(String senderName, String message, String media,
                         String mediaType, ChatGroup group) {
         this.senderName = senderName;
@@ -0,0 +1,86 @@
+package com.chat_app.chat.entity;
+
+import org.hibernate.engine.config.spi.ConfigurationService;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.generator.BeforeExecutionGenerator;
+import org.hibernate.generator.EventType;
+import org.hibernate.generator.EventTypeSets;
+import org.hibernate.id.factory.spi.CustomIdGeneratorCreationContext;
+
+import java.io.Serial;
+import java.lang.reflect.Member;
+import java.time.Instant;
+import java.util.EnumSet;
+
+// Time-ordered ids generated in the application, so Hibernate can batch inserts instead
+// of reading an IDENTITY key back per row. Layout, high to low bits:
+//   41 bits milliseconds since 2024-01-01 | 5 bits node | 7 bits sequence
+// 53 bits in total, so ids stay exact as JSON numbers in JavaScript clients. That leaves
+// 32 nodes (chat.ids.node-id) and 128 ids per millisecond per node; past that the
+// generator moves on to the next millisecond.
+public class SnowflakeIdGenerator implements BeforeExecutionGenerator {
+
+    // Hibernate's Generator is Serializable; the state that matters is static anyway
+    @Serial
+    private static final long serialVersionUID = 1L;
+
+    public static final String NODE_ID_SETTING = "chat.ids.node-id";
+
+    private static final long EPOCH = Instant.parse("2024-01-01T00:00:00Z").toEpochMilli();
+    private static final int NODE_BITS = 5;
+    private static final int SEQUENCE_BITS = 7;
+    private static final long MAX_NODE = (1L << NODE_BITS) - 1;
+    private static final long SEQUENCE_MASK = (1L << SEQUENCE_BITS) - 1;
+
+    // Shared by every entity, ids are unique across tables
+    private static final Object LOCK = new Object();
+    private static long lastMillis = -1;
+    private static long sequence;
+
+    private final long node;
+
+    public SnowflakeIdGenerator(SnowflakeId config, Member idMember, CustomIdGeneratorCreationContext context) {
+        Object setting = context.getServiceRegistry()
+                .requireService(ConfigurationService.class)
+                .getSettings()
+                .get(NODE_ID_SETTING);
+        long configured = setting == null ? 0 : Long.parseLong(setting.toString().trim());
+        if (configured < 0 || configured > MAX_NODE) {
+            throw new IllegalArgumentException(NODE_ID_SETTING + " must be between 0 and " + MAX_NODE);
+        }
+        this.node = configured;
+    }
+
+    @Override
+    public Object generate(SharedSessionContractImplementor session, Object owner, Object currentValue, EventType eventType) {
+        return nextId(node);
+    }
+
+    @Override
+    public EnumSet<EventType> getEventTypes() {
+        return EventTypeSets.INSERT_ONLY;
+    }
+
+    // Lowest id that can be generated at or after a point in time, so an age cutoff
+    // becomes an id cutoff
+    public static long firstIdAt(long epochMillis) {
+        return Math.max(0, epochMillis - EPOCH) << (NODE_BITS + SEQUENCE_BITS);
+    }
+
+    static long nextId(long node) {
+        synchronized (LOCK) {
+            // A clock that steps back keeps using the last millisecond rather than repeating ids
+            long millis = Math.max(System.currentTimeMillis() - EPOCH, lastMillis);
+            if (millis == lastMillis) {
+                sequence = (sequence + 1) & SEQUENCE_MASK;
+                if (sequence == 0) {
+                    millis = lastMillis + 1;
+                }
+            } else {
+                sequence = 0;
+            }
+            lastMillis = millis;
+            return (millis << (NODE_BITS + SEQUENCE_BITS)) | (node << SEQUENCE_BITS) | sequence;
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package com.chat_app.chat.model;
+
+import lombok.Data;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+@Data
+public class ArchiveRunStatus {
+
+    public enum State {
+        RUNNING,
+        COMPLETED,
+        FAILED
+    }
+
+    private volatile State state = State.RUNNING;
+    private final AtomicLong archivedMessages = new AtomicLong();
+    private final AtomicLong writtenSegments = new AtomicLong();
+    private final long startedAt = System.currentTimeMillis();
+    private volatile Long finishedAt;
+    private volatile String error;
+}
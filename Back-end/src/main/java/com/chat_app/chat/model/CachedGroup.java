@@ -0,0 +1,11 @@
+package com.chat_app.chat.model;
+
+import java.util.Set;
+
+// Immutable view of a group as seen by the message hot path
+public record CachedGroup(Long id, String name, Set<String> memberUsernames) {
+
+    public boolean isMember(String username) {
+        return memberUsernames.contains(username);
+    }
+}
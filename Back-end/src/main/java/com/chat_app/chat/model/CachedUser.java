@@ -0,0 +1,7 @@
+package com.chat_app.chat.model;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+// Immutable copy of a user row for login/search; the password never leaves the server
+public record CachedUser(Long id, String username, String name, String email, @JsonIgnore String password) {
+}
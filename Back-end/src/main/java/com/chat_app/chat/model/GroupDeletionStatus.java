@@ -0,0 +1,20 @@
+package com.chat_app.chat.model;
+
+import lombok.Data;
+
+@Data
+public class GroupDeletionStatus {
+
+    public enum State {
+        RUNNING,
+        COMPLETED,
+        FAILED
+    }
+
+    private final Long groupId;
+    private volatile State state = State.RUNNING;
+    private volatile long deletedMessages;
+    private final long startedAt = System.currentTimeMillis();
+    private volatile Long finishedAt;
+    private volatile String error;
+}
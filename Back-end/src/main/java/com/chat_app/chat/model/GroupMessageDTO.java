@@ -14,6 +14,7 @@ public class GroupMessageDTO {
     private Long groupId;
     private String groupName;
     private LocalDateTime timestamp;
+    private Long seq;
 
     public GroupMessageDTO(GroupMessage message) {
         this.id = message.getId();
@@ -24,5 +25,19 @@ public class GroupMessageDTO {
         this.groupId = message.getGroup().getId();
         this.groupName = message.getGroup().getName();
         this.timestamp = message.getTimestamp();
+        this.seq = message.getSeq();
+    }
+
+    // For callers that already know the group, so a lazy group reference stays uninitialized
+    public GroupMessageDTO(GroupMessage message, Long groupId, String groupName) {
+        this.id = message.getId();
+        this.senderName = message.getSenderName();
+        this.message = message.getMessage();
+        this.media = message.getMedia();
+        this.mediaType = message.getMediaType();
+        this.groupId = groupId;
+        this.groupName = groupName;
+        this.timestamp = message.getTimestamp();
+        this.seq = message.getSeq();
     }
 }
\ No newline at end of file
@@ -0,0 +1,36 @@
+package com.chat_app.chat.model;
+
+import java.util.Locale;
+
+public enum ImageVariant {
+    THUMB(160),
+    PREVIEW(640);
+
+    private final int maxSize;
+
+    ImageVariant(int maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    // Longest edge in pixels
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    public String getSuffix() {
+        return name().toLowerCase(Locale.ROOT);
+    }
+
+    // Unknown or missing values mean the original file
+    public static ImageVariant fromParam(String value) {
+        if (value == null) {
+            return null;
+        }
+        for (ImageVariant variant : values()) {
+            if (variant.getSuffix().equalsIgnoreCase(value)) {
+                return variant;
+            }
+        }
+        return null;
+    }
+}
@@ -22,4 +22,12 @@ public class Message {
 
     private Status status;
     private String mediaType;
+
+    // Position within the conversation or public room, set by the server
+    private Long seq;
+
+    public Message(String senderName, String receiverName, String message,
+                   String media, Status status, String mediaType) {
+        this(senderName, receiverName, message, media, status, mediaType, null);
+    }
 }
@@ -0,0 +1,7 @@
+package com.chat_app.chat.model;
+
+// One search result; highlight is the matching passage with terms wrapped in <mark>,
+// HTML-escaped, or null when only the sender or other fields matched
+public record MessageSearchHit(Long id, String senderName, String receiverName, Long groupId,
+                               String message, String highlight, Long timestamp) {
+}
@@ -0,0 +1,8 @@
+package com.chat_app.chat.model;
+
+import java.util.List;
+
+// totalHits is a lower bound when totalHitsExact is false
+public record MessageSearchPage(String query, int page, int size, long totalHits, boolean totalHitsExact,
+                                List<MessageSearchHit> hits) {
+}
@@ -0,0 +1,17 @@
+package com.chat_app.chat.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Set;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PresenceDelta {
+    // Clients holding version - 1 can apply this directly, anyone else should resync
+    private long version;
+    private Set<String> joined;
+    private Set<String> left;
+}
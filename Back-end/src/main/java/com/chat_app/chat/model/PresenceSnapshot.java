@@ -0,0 +1,15 @@
+package com.chat_app.chat.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Set;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PresenceSnapshot {
+    private long version;
+    private Set<String> users;
+}
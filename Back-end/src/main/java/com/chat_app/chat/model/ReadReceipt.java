@@ -0,0 +1,13 @@
+package com.chat_app.chat.model;
+
+import lombok.Data;
+
+// Sent to /app/read: readerName has read everything up to seq, in the conversation with
+// peerName or in the group
+@Data
+public class ReadReceipt {
+    private String readerName;
+    private String peerName;
+    private Long groupId;
+    private Long seq;
+}
@@ -0,0 +1,18 @@
+package com.chat_app.chat.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Map;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ReadUpdate {
+    // The peer for a private conversation, or the group
+    private String peerName;
+    private Long groupId;
+    // New read watermarks by reader
+    private Map<String, Long> readSeqs;
+}
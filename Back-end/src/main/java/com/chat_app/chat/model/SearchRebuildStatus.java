@@ -0,0 +1,21 @@
+package com.chat_app.chat.model;
+
+import lombok.Data;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+@Data
+public class SearchRebuildStatus {
+
+    public enum State {
+        RUNNING,
+        COMPLETED,
+        FAILED
+    }
+
+    private volatile State state = State.RUNNING;
+    private final AtomicLong indexedMessages = new AtomicLong();
+    private final long startedAt = System.currentTimeMillis();
+    private volatile Long finishedAt;
+    private volatile String error;
+}
@@ -0,0 +1,16 @@
+package com.chat_app.chat.model;
+
+import lombok.Data;
+
+import java.util.HashMap;
+import java.util.Map;
+
+// Last seq a reconnecting client has seen, per peer username and per group id;
+// publicSeq is left out by clients that do not follow the public room
+@Data
+public class SyncRequest {
+    private String username;
+    private Map<String, Long> conversations = new HashMap<>();
+    private Map<Long, Long> groups = new HashMap<>();
+    private Long publicSeq;
+}
@@ -0,0 +1,12 @@
+package com.chat_app.chat.model;
+
+import java.util.List;
+import java.util.Map;
+
+// Everything after the requested seqs, oldest first. Conversations listed in truncated
+// ("user:<peer>", "group:<id>" or "public") had more than fit; reload those from history.
+public record SyncResponse(Map<String, List<Message>> conversations,
+                           Map<Long, List<GroupMessageDTO>> groups,
+                           List<Message> publicMessages,
+                           List<String> truncated) {
+}
@@ -0,0 +1,13 @@
+package com.chat_app.chat.model;
+
+import lombok.Data;
+
+// Sent to /app/typing while typing (again every few seconds) and once more with
+// typing=false on stop; receiverName for a private conversation, groupId for a group
+@Data
+public class TypingEvent {
+    private String senderName;
+    private String receiverName;
+    private Long groupId;
+    private boolean typing;
+}
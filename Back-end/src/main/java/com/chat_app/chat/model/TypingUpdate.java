@@ -0,0 +1,19 @@
+package com.chat_app.chat.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Set;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class TypingUpdate {
+    // The peer for a private conversation, or the group
+    private String peerName;
+    private Long groupId;
+    // Who is typing right now; clients drop the indicator after ttlMs without a new update
+    private Set<String> typing;
+    private long ttlMs;
+}
@@ -0,0 +1,13 @@
+package com.chat_app.chat.model;
+
+import java.io.Serializable;
+import java.security.Principal;
+
+// What the HTTP session keeps about the logged-in user
+public record UserPrincipal(Long id, String username) implements Principal, Serializable {
+
+    @Override
+    public String getName() {
+        return username;
+    }
+}
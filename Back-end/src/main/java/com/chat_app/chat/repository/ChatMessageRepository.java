@@ -1,7 +1,9 @@
 package com.chat_app.chat.repository;
 
 import com.chat_app.chat.entity.ChatMessage;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 
@@ -12,11 +14,72 @@ public interface ChatMessageRepository extends JpaRepository<ChatMessage, Long>
     @Query("SELECT cm FROM ChatMessage cm WHERE " +
             "(cm.senderName = :user1 AND cm.receiverName = :user2) OR " +
             "(cm.senderName = :user2 AND cm.receiverName = :user1) " +
-            "ORDER BY cm.timestamp ASC")
+            "ORDER BY cm.id ASC")
     List<ChatMessage> findChatHistoryBetweenUsers(@Param("user1") String user1, @Param("user2") String user2);
 
+    // Keyset pages over (conversation_key, id), each one a single index range scan
+    @Query("SELECT cm FROM ChatMessage cm WHERE cm.conversationKey = :key ORDER BY cm.id DESC")
+    List<ChatMessage> findLatestInConversation(@Param("key") String conversationKey, Pageable pageable);
+
+    @Query("SELECT cm FROM ChatMessage cm WHERE cm.conversationKey = :key AND cm.id < :before ORDER BY cm.id DESC")
+    List<ChatMessage> findInConversationBefore(@Param("key") String conversationKey,
+                                               @Param("before") Long before, Pageable pageable);
+
+    @Query("SELECT cm FROM ChatMessage cm WHERE cm.conversationKey = :key AND cm.id > :after ORDER BY cm.id ASC")
+    List<ChatMessage> findInConversationAfter(@Param("key") String conversationKey,
+                                              @Param("after") Long after, Pageable pageable);
+
+    // Sequence numbers: the last one handed out per conversation, and what came after one
+    @Query("SELECT MAX(cm.seq) FROM ChatMessage cm WHERE cm.conversationKey = :key")
+    Long findMaxSeqInConversation(@Param("key") String conversationKey);
+
+    @Query("SELECT MAX(cm.seq) FROM ChatMessage cm WHERE cm.receiverName IS NULL")
+    Long findMaxPublicSeq();
+
+    @Query("SELECT cm FROM ChatMessage cm WHERE cm.conversationKey = :key AND cm.seq > :after ORDER BY cm.seq ASC")
+    List<ChatMessage> findInConversationAfterSeq(@Param("key") String conversationKey,
+                                                 @Param("after") Long after, Pageable pageable);
+
+    @Query("SELECT cm FROM ChatMessage cm WHERE cm.receiverName IS NULL AND cm.seq > :after ORDER BY cm.seq ASC")
+    List<ChatMessage> findPublicAfterSeq(@Param("after") Long after, Pageable pageable);
+
+    // Rows written before conversation_key existed
+    @Query("SELECT cm FROM ChatMessage cm WHERE cm.conversationKey IS NULL AND cm.receiverName IS NOT NULL " +
+            "AND cm.senderName IS NOT NULL AND cm.id > :after ORDER BY cm.id ASC")
+    List<ChatMessage> findWithoutConversationKey(@Param("after") Long after, Pageable pageable);
+
+    // Id bounds and id-range pages, so a reindex can scan the table in parallel slices
+    @Query("SELECT MIN(cm.id) FROM ChatMessage cm")
+    Long findMinId();
+
+    @Query("SELECT MAX(cm.id) FROM ChatMessage cm")
+    Long findMaxId();
+
+    @Query("SELECT cm FROM ChatMessage cm WHERE cm.id > :after AND cm.id <= :upTo ORDER BY cm.id ASC")
+    List<ChatMessage> findInIdRange(@Param("after") Long after, @Param("upTo") Long upTo, Pageable pageable);
+
+    // Archiving: ids of an id range to cut it into bounded pieces, and removal of a piece
+    @Query("SELECT cm.id FROM ChatMessage cm WHERE cm.id > :after AND cm.id <= :upTo ORDER BY cm.id ASC")
+    List<Long> findIdsInIdRange(@Param("after") Long after, @Param("upTo") Long upTo, Pageable pageable);
+
+    // First row of an id range that is newer than since; walks the primary key and stops there
+    @Query("SELECT cm.id FROM ChatMessage cm WHERE cm.id > :after AND cm.id <= :upTo " +
+            "AND cm.timestamp > :since ORDER BY cm.id ASC")
+    List<Long> findIdsNewerThan(@Param("after") Long after, @Param("upTo") Long upTo,
+                                @Param("since") Long since, Pageable pageable);
+
+    @Modifying
+    @Query("DELETE FROM ChatMessage cm WHERE cm.id > :after AND cm.id <= :upTo")
+    int deleteInIdRange(@Param("after") Long after, @Param("upTo") Long upTo);
+
     List<ChatMessage> findByReceiverNameOrSenderName(String receiverName, String senderName);
 
     // ADD THIS METHOD FOR PUBLIC MESSAGES
     List<ChatMessage> findByReceiverNameIsNull();
-}
\ No newline at end of file
+
+    @Query("SELECT cm FROM ChatMessage cm WHERE cm.receiverName IS NULL ORDER BY cm.id DESC")
+    List<ChatMessage> findLatestPublic(Pageable pageable);
+
+    @Query("SELECT cm FROM ChatMessage cm WHERE cm.receiverName IS NULL AND cm.id < :before ORDER BY cm.id DESC")
+    List<ChatMessage> findPublicBefore(@Param("before") Long before, Pageable pageable);
+}
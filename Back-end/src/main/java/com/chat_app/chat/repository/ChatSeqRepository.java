@@ -0,0 +1,13 @@
+package com.chat_app.chat.repository;
+
+// Mixed into ChatSequenceRepository, implemented in ChatSeqRepositoryImpl
+public interface ChatSeqRepository {
+
+    // Creates the scope's counter at lastSeq unless a row is there already, possibly put
+    // there by another node a moment ago
+    void insertIfMissing(String scope, long lastSeq);
+
+    // Increments the scope's last seq and returns the new value in one statement, so nodes
+    // numbering the same conversation never hand out a seq twice
+    long nextSeq(String scope);
+}
@@ -0,0 +1,36 @@
+package com.chat_app.chat.repository;
+
+import jakarta.persistence.EntityNotFoundException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.List;
+
+public class ChatSeqRepositoryImpl implements ChatSeqRepository {
+
+    private final JdbcTemplate jdbcTemplate;
+    private final SeqCounter seqCounter;
+
+    public ChatSeqRepositoryImpl(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.seqCounter = new SeqCounter(jdbcTemplate);
+    }
+
+    @Override
+    public void insertIfMissing(String scope, long lastSeq) {
+        try {
+            jdbcTemplate.update("INSERT INTO chat_sequence (scope, last_seq) VALUES (?, ?)", scope, lastSeq);
+        } catch (DuplicateKeyException e) {
+            // Lost the race to another node, whose row counts
+        }
+    }
+
+    @Override
+    public long nextSeq(String scope) {
+        List<Long> seqs = seqCounter.increment("chat_sequence", "scope", scope);
+        if (seqs.isEmpty()) {
+            throw new EntityNotFoundException("No sequence for " + scope);
+        }
+        return seqs.get(0);
+    }
+}
@@ -0,0 +1,12 @@
+package com.chat_app.chat.repository;
+
+import com.chat_app.chat.entity.ChatSequence;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+public interface ChatSequenceRepository extends JpaRepository<ChatSequence, String>, ChatSeqRepository {
+
+    @Query("SELECT s.lastSeq FROM ChatSequence s WHERE s.scope = :scope")
+    Long findLastSeq(@Param("scope") String scope);
+}
@@ -0,0 +1,87 @@
+package com.chat_app.chat.repository;
+
+import com.chat_app.chat.entity.ConversationSummary;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+public interface ConversationSummaryRepository extends JpaRepository<ConversationSummary, Long> {
+
+    // Most recently active conversations first, served by idx_conversation_summary_inbox
+    List<ConversationSummary> findByOwnerNameOrderByLastActivityDesc(String ownerName, Pageable pageable);
+
+    // One private conversation's share of a persisted batch, applied on top of what the row
+    // holds now rather than a copy read earlier, so concurrent mark-reads never conflict with it.
+    // reset: the owner sent in this batch, so only what came after counts as unread.
+    @Modifying
+    @Query("UPDATE VERSIONED ConversationSummary s SET s.lastMessageId = :messageId, " +
+            "s.lastSenderName = :sender, s.lastMessagePreview = :preview, s.lastActivity = :at, " +
+            "s.unreadCount = CASE WHEN :reset = TRUE THEN :unread ELSE s.unreadCount + :unread END, " +
+            "s.lastSeq = :seq, " +
+            "s.lastReadSeq = CASE WHEN s.lastReadSeq IS NULL OR s.lastReadSeq < :readSeq " +
+            "THEN :readSeq ELSE s.lastReadSeq END " +
+            "WHERE s.ownerName = :owner AND s.threadKey = :threadKey")
+    int recordPeerMessages(@Param("owner") String ownerName, @Param("threadKey") String threadKey,
+                           @Param("messageId") Long messageId, @Param("sender") String sender,
+                           @Param("preview") String preview, @Param("at") Long at,
+                           @Param("reset") boolean reset, @Param("unread") int unread,
+                           @Param("seq") Long seq, @Param("readSeq") Long readSeq);
+
+    // One statement per group message for every member; the sender has read it
+    @Modifying
+    @Query("UPDATE VERSIONED ConversationSummary s SET s.lastMessageId = :messageId, " +
+            "s.lastSenderName = :sender, s.lastMessagePreview = :preview, s.lastActivity = :at, " +
+            "s.unreadCount = CASE WHEN s.ownerName = :sender THEN 0 ELSE s.unreadCount + 1 END, " +
+            "s.lastSeq = :seq, " +
+            "s.lastReadSeq = CASE WHEN s.ownerName = :sender THEN :seq ELSE s.lastReadSeq END " +
+            "WHERE s.groupId = :groupId")
+    int recordGroupMessage(@Param("groupId") Long groupId, @Param("messageId") Long messageId,
+                           @Param("sender") String sender, @Param("preview") String preview,
+                           @Param("at") Long at, @Param("seq") Long seq);
+
+    @Modifying
+    @Query("UPDATE VERSIONED ConversationSummary s SET s.unreadCount = 0 " +
+            "WHERE s.ownerName = :owner AND s.threadKey = :threadKey AND s.unreadCount > 0")
+    int markRead(@Param("owner") String ownerName, @Param("threadKey") String threadKey);
+
+    // Raises the read watermark, never lowers it. Unread is trimmed to the messages after it;
+    // the ELSE branch is at most unreadCount, so the cast cannot overflow.
+    @Modifying
+    @Query("UPDATE VERSIONED ConversationSummary s SET s.lastReadSeq = :seq, " +
+            "s.unreadCount = CASE WHEN s.lastSeq IS NULL OR s.lastSeq <= :seq THEN 0 " +
+            "WHEN s.unreadCount < s.lastSeq - :seq THEN s.unreadCount " +
+            "ELSE CAST(s.lastSeq - :seq AS Integer) END " +
+            "WHERE s.ownerName = :owner AND s.threadKey = :threadKey " +
+            "AND (s.lastReadSeq IS NULL OR s.lastReadSeq < :seq)")
+    int recordRead(@Param("owner") String ownerName, @Param("threadKey") String threadKey,
+                   @Param("seq") Long seq);
+
+    Optional<ConversationSummary> findByOwnerNameAndThreadKey(String ownerName, String threadKey);
+
+    List<ConversationSummary> findByGroupId(Long groupId);
+
+    @Query("SELECT s.ownerName FROM ConversationSummary s WHERE s.groupId = :groupId")
+    List<String> findOwnerNamesByGroupId(@Param("groupId") Long groupId);
+
+    @Modifying
+    @Query("DELETE FROM ConversationSummary s WHERE s.groupId = :groupId AND s.ownerName IN " +
+            "(SELECT u.username FROM Users u WHERE u.id IN :userIds)")
+    int deleteGroupMembers(@Param("groupId") Long groupId, @Param("userIds") Collection<Long> userIds);
+
+    @Modifying
+    @Query("DELETE FROM ConversationSummary s WHERE s.groupId = :groupId")
+    int deleteByGroupId(@Param("groupId") Long groupId);
+
+    // Newest message of every private conversation and group, for the first backfill
+    @Query("SELECT MAX(cm.id) FROM ChatMessage cm WHERE cm.conversationKey IS NOT NULL GROUP BY cm.conversationKey")
+    List<Long> findLastChatMessageIds();
+
+    @Query("SELECT MAX(gm.id) FROM GroupMessage gm GROUP BY gm.group.id")
+    List<Long> findLastGroupMessageIds();
+}
@@ -1,15 +1,55 @@
 package com.chat_app.chat.repository;
 
 import com.chat_app.chat.entity.GroupMessage;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 
+import java.time.LocalDateTime;
 import java.util.List;
 
 public interface GroupMessageRepository extends JpaRepository<GroupMessage, Long> {
-    List<GroupMessage> findByGroupIdOrderByTimestampAsc(Long groupId);
+    List<GroupMessage> findByGroupIdOrderByIdAsc(Long groupId);
 
-    @Query("SELECT gm FROM GroupMessage gm WHERE gm.group.id = :groupId ORDER BY gm.timestamp ASC")
+    @Query("SELECT gm FROM GroupMessage gm WHERE gm.group.id = :groupId ORDER BY gm.id ASC")
     List<GroupMessage> findGroupMessages(@Param("groupId") Long groupId);
+
+    // Messages of a group after a sequence number, for reconnect sync
+    @Query("SELECT gm FROM GroupMessage gm WHERE gm.group.id = :groupId AND gm.seq > :after ORDER BY gm.seq ASC")
+    List<GroupMessage> findInGroupAfterSeq(@Param("groupId") Long groupId, @Param("after") Long after,
+                                           Pageable pageable);
+
+    // Id bounds and id-range pages, so a reindex can scan the table in parallel slices
+    @Query("SELECT MIN(gm.id) FROM GroupMessage gm")
+    Long findMinId();
+
+    @Query("SELECT MAX(gm.id) FROM GroupMessage gm")
+    Long findMaxId();
+
+    @Query("SELECT gm FROM GroupMessage gm WHERE gm.id > :after AND gm.id <= :upTo ORDER BY gm.id ASC")
+    List<GroupMessage> findInIdRange(@Param("after") Long after, @Param("upTo") Long upTo, Pageable pageable);
+
+    // Archiving: ids of an id range to cut it into bounded pieces, and removal of a piece
+    @Query("SELECT gm.id FROM GroupMessage gm WHERE gm.id > :after AND gm.id <= :upTo ORDER BY gm.id ASC")
+    List<Long> findIdsInIdRange(@Param("after") Long after, @Param("upTo") Long upTo, Pageable pageable);
+
+    @Query("SELECT gm.id FROM GroupMessage gm WHERE gm.id > :after AND gm.id <= :upTo " +
+            "AND gm.timestamp > :since ORDER BY gm.id ASC")
+    List<Long> findIdsNewerThan(@Param("after") Long after, @Param("upTo") Long upTo,
+                                @Param("since") LocalDateTime since, Pageable pageable);
+
+    @Modifying
+    @Query("DELETE FROM GroupMessage gm WHERE gm.id > :after AND gm.id <= :upTo")
+    int deleteInIdRange(@Param("after") Long after, @Param("upTo") Long upTo);
+
+    // Oldest message ids of a group, used to delete its history in bounded id ranges
+    @Query("SELECT gm.id FROM GroupMessage gm WHERE gm.group.id = :groupId ORDER BY gm.id ASC")
+    List<Long> findIdsByGroupId(@Param("groupId") Long groupId, Pageable pageable);
+
+    @Modifying
+    @Query("DELETE FROM GroupMessage gm WHERE gm.group.id = :groupId AND gm.id BETWEEN :fromId AND :toId")
+    int deleteByGroupIdAndIdBetween(@Param("groupId") Long groupId,
+                                    @Param("fromId") Long fromId, @Param("toId") Long toId);
 }
@@ -3,6 +3,45 @@ package com.chat_app.chat.repository;
 
 import com.chat_app.chat.entity.ChatGroup;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
-public interface GroupRepository extends JpaRepository<ChatGroup, Long> {
+import java.util.Collection;
+import java.util.List;
+
+public interface GroupRepository extends JpaRepository<ChatGroup, Long>, GroupSeqRepository {
+
+    @Query("SELECT u.username FROM ChatGroup g JOIN g.members u WHERE g.id = :groupId")
+    List<String> findMemberUsernames(@Param("groupId") Long groupId);
+
+    @Query("SELECT CASE WHEN COUNT(u) > 0 THEN true ELSE false END " +
+            "FROM ChatGroup g JOIN g.members u WHERE g.id = :groupId AND u.id = :userId")
+    boolean isMember(@Param("groupId") Long groupId, @Param("userId") Long userId);
+
+    // Set-based membership changes straight on the join table, without loading the collection.
+    // Unknown user ids and existing members are skipped by the statement itself.
+    @Modifying
+    @Query(value = "INSERT INTO chat_group_members (chat_group_id, members_id) " +
+            "SELECT :groupId, u.id FROM users u WHERE u.id IN (:userIds) " +
+            "AND NOT EXISTS (SELECT 1 FROM chat_group_members m " +
+            "WHERE m.chat_group_id = :groupId AND m.members_id = u.id)", nativeQuery = true)
+    int addMembers(@Param("groupId") Long groupId, @Param("userIds") Collection<Long> userIds);
+
+    @Modifying
+    @Query(value = "DELETE FROM chat_group_members " +
+            "WHERE chat_group_id = :groupId AND members_id IN (:userIds)", nativeQuery = true)
+    int removeMembers(@Param("groupId") Long groupId, @Param("userIds") Collection<Long> userIds);
+
+    @Modifying
+    @Query(value = "DELETE FROM chat_group_members WHERE chat_group_id = :groupId", nativeQuery = true)
+    int removeAllMembers(@Param("groupId") Long groupId);
+
+    @Query("SELECT g.lastSeq FROM ChatGroup g WHERE g.id = :groupId")
+    Long findLastSeq(@Param("groupId") Long groupId);
+
+    // Bulk delete, skips the cascade that would load the messages collection
+    @Modifying
+    @Query("DELETE FROM ChatGroup g WHERE g.id = :groupId")
+    int deleteGroupById(@Param("groupId") Long groupId);
 }
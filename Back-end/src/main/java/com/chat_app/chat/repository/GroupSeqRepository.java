@@ -0,0 +1,10 @@
+package com.chat_app.chat.repository;
+
+// Mixed into GroupRepository, implemented in GroupSeqRepositoryImpl
+public interface GroupSeqRepository {
+
+    // Increments the group's last seq and returns the new value in one statement. Takes the
+    // row lock on the group until the transaction ends, so group messages commit in the
+    // order of their sequence numbers.
+    long nextSeq(Long groupId);
+}
@@ -0,0 +1,24 @@
+package com.chat_app.chat.repository;
+
+import jakarta.persistence.EntityNotFoundException;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.List;
+
+public class GroupSeqRepositoryImpl implements GroupSeqRepository {
+
+    private final SeqCounter seqCounter;
+
+    public GroupSeqRepositoryImpl(JdbcTemplate jdbcTemplate) {
+        this.seqCounter = new SeqCounter(jdbcTemplate);
+    }
+
+    @Override
+    public long nextSeq(Long groupId) {
+        List<Long> seqs = seqCounter.increment("chat_group", "id", groupId);
+        if (seqs.isEmpty()) {
+            throw new EntityNotFoundException("Group not found");
+        }
+        return seqs.get(0);
+    }
+}
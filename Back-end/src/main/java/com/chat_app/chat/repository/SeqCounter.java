@@ -0,0 +1,59 @@
+package com.chat_app.chat.repository;
+
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+
+import java.sql.PreparedStatement;
+import java.sql.Statement;
+import java.util.List;
+
+// Increments a last_seq column and reads the new value back in one statement. JPQL has no
+// UPDATE ... RETURNING, so this is plain JDBC on the JPA transaction's connection, in
+// whatever form the database offers:
+//   MySQL: LAST_INSERT_ID(expr) comes back as the generated key of the UPDATE
+//   H2: SELECT from the FINAL TABLE of the UPDATE
+//   others: UPDATE ... RETURNING
+class SeqCounter {
+
+    private final JdbcTemplate jdbcTemplate;
+    private volatile String product;
+
+    SeqCounter(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    // The new value, or nothing when no row has that key
+    List<Long> increment(String table, String keyColumn, Object key) {
+        String increment = "UPDATE " + table + " SET last_seq = COALESCE(last_seq, 0) + 1 WHERE " + keyColumn + " = ?";
+        String product = product();
+        if (product.contains("mysql") || product.contains("mariadb")) {
+            KeyHolder keys = new GeneratedKeyHolder();
+            jdbcTemplate.update(connection -> {
+                PreparedStatement statement = connection.prepareStatement(
+                        "UPDATE " + table + " SET last_seq = LAST_INSERT_ID(COALESCE(last_seq, 0) + 1) WHERE "
+                                + keyColumn + " = ?",
+                        Statement.RETURN_GENERATED_KEYS);
+                statement.setObject(1, key);
+                return statement;
+            }, keys);
+            return keys.getKeyList().stream()
+                    .map(row -> ((Number) row.values().iterator().next()).longValue())
+                    .toList();
+        } else if (product.contains("h2")) {
+            return jdbcTemplate.queryForList("SELECT last_seq FROM FINAL TABLE (" + increment + ")", Long.class, key);
+        }
+        return jdbcTemplate.queryForList(increment + " RETURNING last_seq", Long.class, key);
+    }
+
+    private String product() {
+        String name = product;
+        if (name == null) {
+            name = jdbcTemplate.execute((ConnectionCallback<String>) connection ->
+                    connection.getMetaData().getDatabaseProductName().toLowerCase());
+            product = name;
+        }
+        return name;
+    }
+}
@@ -2,7 +2,11 @@ package com.chat_app.chat.repository;
 
 import com.chat_app.chat.entity.Users;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
+import java.util.Collection;
 import java.util.List;
 
 public interface UserRepository extends JpaRepository<Users,Long> {
@@ -10,4 +14,11 @@ public interface UserRepository extends JpaRepository<Users,Long> {
     Users findByUsername(String username);
 
     Users findByEmail(String email);
+
+    @Query("SELECT u.username FROM Users u WHERE u.id IN :ids")
+    List<String> findUsernamesByIdIn(@Param("ids") Collection<Long> ids);
+
+    @Modifying
+    @Query("UPDATE Users u SET u.group = null WHERE u.group.id = :groupId")
+    int clearGroup(@Param("groupId") Long groupId);
 }
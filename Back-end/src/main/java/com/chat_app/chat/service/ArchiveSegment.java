@@ -0,0 +1,423 @@
+package com.chat_app.chat.service;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+// One immutable archive file holding the messages of an id range, sorted by (scope, id)
+// and packed into deflate-compressed blocks of about BLOCK_BYTES. Layout:
+//   blocks | bloom filter over scopes | block index | metadata | metadata offset, magic
+// The block index is sparse, one (scope, id) key per block, and is the only part kept on
+// the heap; the file itself is memory-mapped and a lookup inflates just the blocks whose
+// key range can hold the requested scope and ids. The bloom filter answers most lookups
+// for scopes that are not in the segment without touching a block.
+final class ArchiveSegment<T> {
+
+    private static final long MAGIC = 0x4348415453454731L; // "CHATSEG1"
+    private static final int VERSION = 1;
+    private static final int BLOCK_BYTES = 64 * 1024;
+    // About 1% false positives
+    private static final int BLOOM_BITS_PER_SCOPE = 10;
+    private static final int BLOOM_HASHES = 7;
+
+    // How one kind of message goes in and out of a block
+    interface Codec<T> {
+        String scope(T record);
+
+        long id(T record);
+
+        void write(DataOutput out, T record) throws IOException;
+
+        T read(DataInput in) throws IOException;
+    }
+
+    private final Path path;
+    private final Codec<T> codec;
+    private final MappedByteBuffer buffer;
+    private final long fromId; // exclusive
+    private final long toId;   // inclusive
+    private final long records;
+    private final int bloomOffset;
+    private final int bloomLongs;
+    private final String[] firstScopes;
+    private final long[] firstIds;
+    private final int[] offsets;
+    private final int[] compressedLengths;
+    private final int[] rawLengths;
+    private final int[] counts;
+
+    private ArchiveSegment(Path path, Codec<T> codec) throws IOException {
+        this.path = path;
+        this.codec = codec;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE || channel.size() < 16) {
+                throw new IOException("Archive segment " + path + " has an invalid size");
+            }
+            this.buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        int size = buffer.capacity();
+        if (buffer.getLong(size - 8) != MAGIC) {
+            throw new IOException("Archive segment " + path + " is incomplete or not a segment");
+        }
+        int metaOffset = (int) buffer.getLong(size - 16);
+        DataInputStream meta = new DataInputStream(new ByteArrayInputStream(
+                bytes(buffer.slice(metaOffset, size - 16 - metaOffset))));
+        if (meta.readInt() != VERSION) {
+            throw new IOException("Archive segment " + path + " has an unknown version");
+        }
+        this.fromId = meta.readLong();
+        this.toId = meta.readLong();
+        this.records = meta.readLong();
+        this.bloomOffset = meta.readInt();
+        this.bloomLongs = meta.readInt();
+        int indexOffset = meta.readInt();
+        int blocks = meta.readInt();
+
+        this.firstScopes = new String[blocks];
+        this.firstIds = new long[blocks];
+        this.offsets = new int[blocks];
+        this.compressedLengths = new int[blocks];
+        this.rawLengths = new int[blocks];
+        this.counts = new int[blocks];
+        DataInputStream index = new DataInputStream(new ByteArrayInputStream(
+                bytes(buffer.slice(indexOffset, metaOffset - indexOffset))));
+        for (int i = 0; i < blocks; i++) {
+            firstScopes[i] = readString(index);
+            firstIds[i] = index.readLong();
+            offsets[i] = index.readInt();
+            compressedLengths[i] = index.readInt();
+            rawLengths[i] = index.readInt();
+            counts[i] = index.readInt();
+        }
+    }
+
+    static <T> ArchiveSegment<T> open(Path path, Codec<T> codec) throws IOException {
+        return new ArchiveSegment<>(path, codec);
+    }
+
+    // Writes records that are already sorted by (scope, id) to a new file at path. The file
+    // appears under its name only once it is complete and on disk.
+    static <T> ArchiveSegment<T> write(Path path, Codec<T> codec, long fromId, long toId,
+                                       Iterator<T> sorted) throws IOException {
+        Path tmp = path.resolveSibling(path.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel)));
+            BlockWriter<T> blocks = new BlockWriter<>(codec, out);
+            while (sorted.hasNext()) {
+                blocks.add(sorted.next());
+            }
+            blocks.finish();
+
+            int bloomOffset = out.size();
+            long[] bloom = new long[Math.max(1, (blocks.scopes.size() * BLOOM_BITS_PER_SCOPE + 63) / 64)];
+            for (String scope : blocks.scopes) {
+                long hash = hash(scope);
+                for (int k = 0; k < BLOOM_HASHES; k++) {
+                    long bit = bloomBit(hash, k, bloom.length * 64L);
+                    bloom[(int) (bit >>> 6)] |= 1L << bit;
+                }
+            }
+            for (long word : bloom) {
+                out.writeLong(word);
+            }
+
+            int indexOffset = out.size();
+            out.write(blocks.index.toByteArray());
+
+            int metaOffset = out.size();
+            out.writeInt(VERSION);
+            out.writeLong(fromId);
+            out.writeLong(toId);
+            out.writeLong(blocks.records);
+            out.writeInt(bloomOffset);
+            out.writeInt(bloom.length);
+            out.writeInt(indexOffset);
+            out.writeInt(blocks.count);
+            out.writeLong(metaOffset);
+            out.writeLong(MAGIC);
+            out.flush();
+            // DataOutputStream.size() saturates, offsets are ints
+            if (out.size() == Integer.MAX_VALUE) {
+                throw new IOException("Archive segment " + path + " would exceed 2 GB");
+            }
+            channel.force(true);
+        }
+        Files.move(tmp, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        return open(path, codec);
+    }
+
+    Path path() {
+        return path;
+    }
+
+    long fromId() {
+        return fromId;
+    }
+
+    long toId() {
+        return toId;
+    }
+
+    long records() {
+        return records;
+    }
+
+    boolean mightContain(String scope) {
+        long hash = hash(scope);
+        long bits = bloomLongs * 64L;
+        for (int k = 0; k < BLOOM_HASHES; k++) {
+            long bit = bloomBit(hash, k, bits);
+            if ((buffer.getLong(bloomOffset + (int) (bit >>> 6) * 8) & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Records of a scope with afterId < id < beforeId that pass the filter, at most limit
+    // of them, oldest or newest first
+    List<T> find(String scope, long afterId, long beforeId, int limit, boolean newestFirst, Predicate<T> filter) {
+        if (limit <= 0 || afterId >= toId || beforeId <= fromId + 1 || firstIds.length == 0
+                || !mightContain(scope)) {
+            return List.of();
+        }
+        // Blocks from the one where (scope, afterId) would sit up to the one before the
+        // first block that starts at or after (scope, beforeId)
+        int start = Math.max(0, lastBlockStartingAtOrBefore(scope, afterId));
+        int end = lastBlockStartingAtOrBefore(scope, beforeId - 1) + 1;
+
+        List<T> found = new ArrayList<>();
+        for (int n = 0; n < end - start && found.size() < limit; n++) {
+            List<T> block = block(newestFirst ? end - 1 - n : start + n);
+            for (int j = 0; j < block.size() && found.size() < limit; j++) {
+                T record = block.get(newestFirst ? block.size() - 1 - j : j);
+                long id = codec.id(record);
+                if (id > afterId && id < beforeId && scope.equals(codec.scope(record)) && filter.test(record)) {
+                    found.add(record);
+                }
+            }
+        }
+        return found;
+    }
+
+    void forEachBlock(Consumer<List<T>> consumer) {
+        for (int i = 0; i < firstIds.length; i++) {
+            consumer.accept(block(i));
+        }
+    }
+
+    Stream<T> stream() {
+        return IntStream.range(0, firstIds.length).boxed().flatMap(i -> block(i).stream());
+    }
+
+    private int lastBlockStartingAtOrBefore(String scope, long id) {
+        int low = 0;
+        int high = firstIds.length - 1;
+        int found = -1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int cmp = firstScopes[mid].compareTo(scope);
+            if (cmp < 0 || (cmp == 0 && firstIds[mid] <= id)) {
+                found = mid;
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return found;
+    }
+
+    private List<T> block(int i) {
+        byte[] raw = new byte[rawLengths[i]];
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(buffer.slice(offsets[i], compressedLengths[i]));
+            int read = 0;
+            while (read < raw.length && !inflater.finished()) {
+                int n = inflater.inflate(raw, read, raw.length - read);
+                if (n == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    break;
+                }
+                read += n;
+            }
+            if (read != raw.length) {
+                throw new IOException("Block " + i + " of archive segment " + path + " is truncated");
+            }
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(raw));
+            List<T> records = new ArrayList<>(counts[i]);
+            for (int n = 0; n < counts[i]; n++) {
+                records.add(codec.read(in));
+            }
+            return records;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } catch (DataFormatException e) {
+            throw new UncheckedIOException(new IOException("Block " + i + " of archive segment " + path
+                    + " is corrupt", e));
+        } finally {
+            inflater.end();
+        }
+    }
+
+    private static byte[] bytes(ByteBuffer slice) {
+        byte[] bytes = new byte[slice.remaining()];
+        slice.get(bytes);
+        return bytes;
+    }
+
+    // FNV-1a over the UTF-8 bytes with a final mix; both halves seed the bloom hashes
+    private static long hash(String scope) {
+        long hash = 0xcbf29ce484222325L;
+        for (byte b : scope.getBytes(StandardCharsets.UTF_8)) {
+            hash = (hash ^ (b & 0xff)) * 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+
+    private static long bloomBit(long hash, int k, long bits) {
+        return Math.floorMod((hash & 0xffffffffL) + k * (hash >>> 32), bits);
+    }
+
+    static void writeString(DataOutput out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    static String readString(DataInput in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    static void writeLong(DataOutput out, Long value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeLong(value);
+        }
+    }
+
+    static Long readLong(DataInput in) throws IOException {
+        return in.readBoolean() ? in.readLong() : null;
+    }
+
+    // Cuts the record stream into compressed blocks and collects the index and the scopes
+    private static final class BlockWriter<T> {
+        final Codec<T> codec;
+        final DataOutputStream out;
+        final ByteArrayOutputStream raw = new ByteArrayOutputStream(BLOCK_BYTES + 4096);
+        final DataOutputStream rawOut = new DataOutputStream(raw);
+        final ByteArrayOutputStream index = new ByteArrayOutputStream();
+        final DataOutputStream indexOut = new DataOutputStream(index);
+        final List<String> scopes = new ArrayList<>();
+        final Deflater deflater = new Deflater();
+        final byte[] chunk = new byte[16 * 1024];
+        String firstScope;
+        long firstId;
+        int inBlock;
+        int count;
+        long records;
+        String lastScope;
+        long lastId;
+
+        BlockWriter(Codec<T> codec, DataOutputStream out) {
+            this.codec = codec;
+            this.out = out;
+        }
+
+        void add(T record) throws IOException {
+            String scope = codec.scope(record);
+            long id = codec.id(record);
+            if (lastScope != null) {
+                int cmp = lastScope.compareTo(scope);
+                if (cmp > 0 || (cmp == 0 && lastId >= id)) {
+                    throw new IllegalArgumentException("Archive records must be sorted by scope and id");
+                }
+            }
+            if (!scope.equals(lastScope)) {
+                scopes.add(scope);
+            }
+            if (raw.size() >= BLOCK_BYTES) {
+                flush();
+            }
+            if (inBlock == 0) {
+                firstScope = scope;
+                firstId = id;
+            }
+            codec.write(rawOut, record);
+            inBlock++;
+            records++;
+            lastScope = scope;
+            lastId = id;
+        }
+
+        void finish() throws IOException {
+            try {
+                if (inBlock > 0) {
+                    flush();
+                }
+            } finally {
+                deflater.end();
+            }
+        }
+
+        private void flush() throws IOException {
+            int offset = out.size();
+            deflater.reset();
+            deflater.setInput(raw.toByteArray());
+            deflater.finish();
+            int compressed = 0;
+            while (!deflater.finished()) {
+                int n = deflater.deflate(chunk);
+                out.write(chunk, 0, n);
+                compressed += n;
+            }
+            writeString(indexOut, firstScope);
+            indexOut.writeLong(firstId);
+            indexOut.writeInt(offset);
+            indexOut.writeInt(compressed);
+            indexOut.writeInt(raw.size());
+            indexOut.writeInt(inBlock);
+            count++;
+            raw.reset();
+            inBlock = 0;
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package com.chat_app.chat.service;
+
+import com.chat_app.chat.entity.ChatMessage;
+import com.chat_app.chat.repository.ChatMessageRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+@Service
+public class ChatHistoryService {
+
+    private static final Logger log = LoggerFactory.getLogger(ChatHistoryService.class);
+    private static final int BACKFILL_CHUNK_SIZE = 500;
+
+    private final ChatMessageRepository chatMessageRepository;
+    private final MessageArchive messageArchive;
+    private final int defaultPageSize;
+    private final int maxPageSize;
+
+    public ChatHistoryService(ChatMessageRepository chatMessageRepository,
+                              MessageArchive messageArchive,
+                              @Value("${chat.history.default-page-size:50}") int defaultPageSize,
+                              @Value("${chat.history.max-page-size:200}") int maxPageSize) {
+        this.chatMessageRepository = chatMessageRepository;
+        this.messageArchive = messageArchive;
+        this.defaultPageSize = defaultPageSize;
+        this.maxPageSize = maxPageSize;
+    }
+
+    // One page of a private conversation, oldest first. Without a cursor the latest
+    // page is returned; "before" walks back in time, "after" catches up forwards.
+    // Archived messages are all older than the table's, so a page that runs past the
+    // oldest row in the table continues in the archive.
+    public List<ChatMessage> getHistoryPage(String user1, String user2, Long before, Long after, Integer limit) {
+        String key = ChatMessage.conversationKey(user1, user2);
+        int size = clampLimit(limit);
+
+        if (after != null) {
+            List<ChatMessage> messages = new ArrayList<>(messageArchive.chatAfter(key, after, size));
+            long cursor = messages.isEmpty() ? after : messages.get(messages.size() - 1).getId();
+            if (messages.size() < size) {
+                messages.addAll(chatMessageRepository.findInConversationAfter(key, cursor,
+                        PageRequest.of(0, size - messages.size())));
+            }
+            return messages;
+        }
+
+        PageRequest page = PageRequest.of(0, size);
+        List<ChatMessage> messages = new ArrayList<>(before != null
+                ? chatMessageRepository.findInConversationBefore(key, before, page)
+                : chatMessageRepository.findLatestInConversation(key, page));
+        if (messages.size() < size) {
+            long cursor = messages.isEmpty()
+                    ? (before != null ? before : Long.MAX_VALUE)
+                    : messages.get(messages.size() - 1).getId();
+            messages.addAll(messageArchive.chatBefore(key, cursor, size - messages.size()));
+        }
+        Collections.reverse(messages);
+        return messages;
+    }
+
+    private int clampLimit(Integer limit) {
+        if (limit == null || limit <= 0) {
+            return defaultPageSize;
+        }
+        return Math.min(limit, maxPageSize);
+    }
+
+    // Fill conversation_key for rows stored before the column existed, in small chunks
+    // so startup never holds a long transaction on chat_message
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfillConversationKeys() {
+        long lastId = 0L;
+        int updated = 0;
+        List<ChatMessage> chunk;
+        do {
+            chunk = chatMessageRepository.findWithoutConversationKey(lastId, PageRequest.of(0, BACKFILL_CHUNK_SIZE));
+            for (ChatMessage message : chunk) {
+                message.setConversationKey(ChatMessage.conversationKey(message.getSenderName(), message.getReceiverName()));
+                lastId = message.getId();
+            }
+            chatMessageRepository.saveAll(chunk);
+            updated += chunk.size();
+        } while (chunk.size() == BACKFILL_CHUNK_SIZE);
+
+        if (updated > 0) {
+            log.info("Backfilled conversation keys for {} chat messages", updated);
+        }
+    }
+}
@@ -0,0 +1,282 @@
+package com.chat_app.chat.service;
+
+import com.chat_app.chat.entity.ChatMessage;
+import com.chat_app.chat.repository.ChatMessageRepository;
+import com.chat_app.chat.repository.ChatSequenceRepository;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.TimeUnit;
+
+// Write-behind stage for chat messages: callers enqueue and return immediately,
+// a single background thread drains the queue and persists in batches.
+// Messages are numbered per conversation (and in the public room) as they are accepted,
+// from a counter row in chat_sequence, so nodes behind the broker relay never hand out the
+// same seq twice. Only this node's queue is kept in seq order: with several nodes writing
+// one conversation, a lower seq can still commit just after a higher one.
+@Service
+public class ChatMessageWriter {
+
+    private static final Logger log = LoggerFactory.getLogger(ChatMessageWriter.class);
+    // conversation_key values always contain ':', so this cannot clash with one
+    public static final String PUBLIC_SCOPE = "public";
+
+    private final ChatMessageRepository chatMessageRepository;
+    private final ChatSequenceRepository chatSequenceRepository;
+    private final MessagingMetrics messagingMetrics;
+    private final MessageSearchIndex searchIndex;
+    private final ConversationInboxService inboxService;
+    private final MessageArchive messageArchive;
+    private final PublicMessageBuffer publicMessageBuffer;
+    private final TransactionTemplate transactionTemplate;
+    private final BlockingQueue<ChatMessage> queue;
+    // Per-scope lock for numbering and queueing, created once the scope's counter row is
+    // known to exist; dropped after sequence-idle-minutes without traffic
+    private final LoadingCache<String, Object> scopeLocks;
+    // Accepted but not yet committed messages by scope and seq, so a sync can see them
+    private final ConcurrentHashMap<String, ConcurrentSkipListMap<Long, ChatMessage>> unpersisted =
+            new ConcurrentHashMap<>();
+    private final int batchSize;
+    private final long flushIntervalMs;
+    private final long offerTimeoutMs;
+    private final long shutdownTimeoutMs;
+
+    private volatile boolean running = true;
+    private Thread writerThread;
+
+    public ChatMessageWriter(ChatMessageRepository chatMessageRepository,
+                             ChatSequenceRepository chatSequenceRepository,
+                             MessagingMetrics messagingMetrics,
+                             MessageSearchIndex searchIndex,
+                             ConversationInboxService inboxService,
+                             MessageArchive messageArchive,
+                             PublicMessageBuffer publicMessageBuffer,
+                             PlatformTransactionManager transactionManager,
+                             @Value("${chat.persistence.queue-capacity:10000}") int queueCapacity,
+                             @Value("${chat.persistence.batch-size:200}") int batchSize,
+                             @Value("${chat.persistence.flush-interval-ms:50}") long flushIntervalMs,
+                             @Value("${chat.persistence.offer-timeout-ms:100}") long offerTimeoutMs,
+                             @Value("${chat.persistence.shutdown-timeout-ms:10000}") long shutdownTimeoutMs,
+                             @Value("${chat.sync.sequence-idle-minutes:30}") long sequenceIdleMinutes) {
+        this.chatMessageRepository = chatMessageRepository;
+        this.chatSequenceRepository = chatSequenceRepository;
+        this.messagingMetrics = messagingMetrics;
+        this.searchIndex = searchIndex;
+        this.inboxService = inboxService;
+        this.messageArchive = messageArchive;
+        this.publicMessageBuffer = publicMessageBuffer;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.batchSize = Math.max(1, batchSize);
+        this.flushIntervalMs = flushIntervalMs;
+        this.offerTimeoutMs = offerTimeoutMs;
+        this.shutdownTimeoutMs = shutdownTimeoutMs;
+        this.scopeLocks = Caffeine.newBuilder()
+                .expireAfterAccess(Duration.ofMinutes(sequenceIdleMinutes))
+                .build(this::seedSequence);
+    }
+
+    public static String scopeOf(ChatMessage message) {
+        return message.getConversationKey() != null ? message.getConversationKey() : PUBLIC_SCOPE;
+    }
+
+    @PostConstruct
+    public void start() {
+        writerThread = new Thread(this::drainLoop, "chat-message-writer");
+        writerThread.setDaemon(true);
+        writerThread.start();
+    }
+
+    // Number a message and queue it for persistence; the message carries its seq on return.
+    // When the queue stays full for longer than the offer timeout the caller pays for the
+    // write itself, which slows producers down instead of dropping messages.
+    public void enqueue(ChatMessage message) {
+        String scope = scopeOf(message);
+        Object lock = scopeLocks.get(scope);
+        // Numbering and queueing under one lock keeps the queue in seq order per conversation
+        synchronized (lock) {
+            message.setSeq(chatSequenceRepository.nextSeq(scope));
+            unpersisted.compute(scope, (key, pending) -> {
+                if (pending == null) {
+                    pending = new ConcurrentSkipListMap<>();
+                }
+                pending.put(message.getSeq(), message);
+                return pending;
+            });
+            // Before the writer can see it, so its commit always finds the buffered copy
+            if (PUBLIC_SCOPE.equals(scope)) {
+                publicMessageBuffer.add(message);
+            }
+            try {
+                if (queue.offer(message, offerTimeoutMs, TimeUnit.MILLISECONDS)) {
+                    return;
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        log.warn("Chat message queue is full, persisting on caller thread");
+        try {
+            saveBatch("chat_message", List.of(message));
+        } finally {
+            forget(List.of(message));
+        }
+        publicMessageBuffer.persisted(List.of(message));
+        searchIndex.indexChatMessages(List.of(message));
+    }
+
+    // Messages of a scope after a seq that are accepted but not committed yet. Take this
+    // before querying the table: a message is then either here or already in the table.
+    public List<ChatMessage> unpersistedAfter(String scope, long afterSeq) {
+        ConcurrentSkipListMap<Long, ChatMessage> pending = unpersisted.get(scope);
+        if (pending == null) {
+            return List.of();
+        }
+        return new ArrayList<>(pending.tailMap(afterSeq, false).values());
+    }
+
+    // Last seq handed out in a scope, by any node
+    public long lastSeq(String scope) {
+        scopeLocks.get(scope);
+        Long last = chatSequenceRepository.findLastSeq(scope);
+        return last != null ? last : 0L;
+    }
+
+    // Conversations from before chat_sequence get their counter from the seqs already stored
+    private Object seedSequence(String scope) {
+        if (chatSequenceRepository.findLastSeq(scope) == null) {
+            Long max = PUBLIC_SCOPE.equals(scope)
+                    ? chatMessageRepository.findMaxPublicSeq()
+                    : chatMessageRepository.findMaxSeqInConversation(scope);
+            if (max == null) {
+                // Everything may have been archived already
+                max = messageArchive.lastChatSeq(scope);
+            }
+            chatSequenceRepository.insertIfMissing(scope, max != null ? max : 0L);
+        }
+        return new Object();
+    }
+
+    private void forget(Collection<ChatMessage> messages) {
+        for (ChatMessage message : messages) {
+            unpersisted.computeIfPresent(scopeOf(message), (key, pending) -> {
+                pending.remove(message.getSeq());
+                return pending.isEmpty() ? null : pending;
+            });
+        }
+    }
+
+    public int getQueueDepth() {
+        return queue.size();
+    }
+
+    private void drainLoop() {
+        List<ChatMessage> batch = new ArrayList<>(batchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                ChatMessage first = queue.poll(flushIntervalMs, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+
+                // Keep collecting until the batch is full or the flush interval has elapsed
+                long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(flushIntervalMs);
+                while (batch.size() < batchSize) {
+                    queue.drainTo(batch, batchSize - batch.size());
+                    long remaining = deadline - System.nanoTime();
+                    if (batch.size() >= batchSize || remaining <= 0 || !running) {
+                        break;
+                    }
+                    ChatMessage next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+            flush(batch);
+            batch.clear();
+        }
+        flush(batch);
+    }
+
+    private void flush(List<ChatMessage> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        try {
+            saveBatch("chat_message_batch", batch);
+            forget(batch);
+            publicMessageBuffer.persisted(batch);
+            searchIndex.indexChatMessages(batch);
+        } catch (RuntimeException e) {
+            // One bad row must not take the rest of the batch down with it
+            log.error("Batch save of {} chat messages failed, retrying individually", batch.size(), e);
+            for (ChatMessage message : batch) {
+                ChatMessage saved;
+                try {
+                    // The rolled-back batch left its id on the message; without it save()
+                    // persists this instance instead of merging a copy under a new id
+                    message.setId(null);
+                    saved = chatMessageRepository.save(message);
+                    publicMessageBuffer.persisted(List.of(saved));
+                    searchIndex.indexChatMessages(List.of(saved));
+                } catch (RuntimeException ex) {
+                    log.error("Dropping chat message from {} that could not be saved", message.getSenderName(), ex);
+                    continue;
+                } finally {
+                    forget(List.of(message));
+                }
+                try {
+                    transactionTemplate.executeWithoutResult(tx -> inboxService.recordChatMessages(List.of(saved)));
+                } catch (RuntimeException ex) {
+                    log.warn("Inbox update for chat message {} failed", saved.getId(), ex);
+                }
+            }
+        }
+    }
+
+    // Messages and the inbox rows they touch commit together
+    private void saveBatch(String repository, List<ChatMessage> messages) {
+        messagingMetrics.recordSave(repository, () -> transactionTemplate.execute(tx -> {
+            List<ChatMessage> saved = chatMessageRepository.saveAll(messages);
+            inboxService.recordChatMessages(saved);
+            return saved;
+        }));
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        running = false;
+        writerThread.join(shutdownTimeoutMs);
+        if (writerThread.isAlive()) {
+            writerThread.interrupt();
+            writerThread.join(shutdownTimeoutMs);
+        }
+
+        // Anything the writer could not get to is written here before the repository goes away
+        List<ChatMessage> remaining = new ArrayList<>();
+        queue.drainTo(remaining);
+        flush(remaining);
+    }
+}
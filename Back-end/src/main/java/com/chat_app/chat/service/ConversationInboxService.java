@@ -0,0 +1,280 @@
+package com.chat_app.chat.service;
+
+import com.chat_app.chat.entity.ChatGroup;
+import com.chat_app.chat.entity.ChatMessage;
+import com.chat_app.chat.entity.ConversationSummary;
+import com.chat_app.chat.entity.GroupMessage;
+import com.chat_app.chat.repository.ChatMessageRepository;
+import com.chat_app.chat.repository.ConversationSummaryRepository;
+import com.chat_app.chat.repository.GroupMessageRepository;
+import com.chat_app.chat.repository.GroupRepository;
+import com.chat_app.chat.repository.UserRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+// Per-user conversation list with the last message and unread count of each conversation.
+// The message write paths call in here inside their own transactions, so a summary never
+// disagrees with the messages that were committed.
+@Service
+public class ConversationInboxService {
+
+    private static final Logger log = LoggerFactory.getLogger(ConversationInboxService.class);
+    private static final int BACKFILL_CHUNK_SIZE = 500;
+
+    private final ConversationSummaryRepository summaryRepository;
+    private final ChatMessageRepository chatMessageRepository;
+    private final GroupMessageRepository groupMessageRepository;
+    private final GroupRepository groupRepository;
+    private final UserRepository userRepository;
+    private final int previewLength;
+    private final int defaultLimit;
+    private final int maxLimit;
+
+    public ConversationInboxService(ConversationSummaryRepository summaryRepository,
+                                    ChatMessageRepository chatMessageRepository,
+                                    GroupMessageRepository groupMessageRepository,
+                                    GroupRepository groupRepository,
+                                    UserRepository userRepository,
+                                    @Value("${chat.inbox.preview-length:100}") int previewLength,
+                                    @Value("${chat.inbox.default-limit:30}") int defaultLimit,
+                                    @Value("${chat.inbox.max-limit:200}") int maxLimit) {
+        this.summaryRepository = summaryRepository;
+        this.chatMessageRepository = chatMessageRepository;
+        this.groupMessageRepository = groupMessageRepository;
+        this.groupRepository = groupRepository;
+        this.userRepository = userRepository;
+        this.previewLength = Math.min(previewLength, 200);
+        this.defaultLimit = defaultLimit;
+        this.maxLimit = maxLimit;
+    }
+
+    @Transactional(readOnly = true)
+    public List<ConversationSummary> getInbox(String username, Integer limit) {
+        int size = limit == null || limit <= 0 ? defaultLimit : Math.min(limit, maxLimit);
+        return summaryRepository.findByOwnerNameOrderByLastActivityDesc(username, PageRequest.of(0, size));
+    }
+
+    @Transactional
+    public boolean markPeerRead(String username, String peerName) {
+        return summaryRepository.markRead(username, ConversationSummary.peerThread(peerName)) > 0;
+    }
+
+    @Transactional
+    public boolean markGroupRead(String username, Long groupId) {
+        return summaryRepository.markRead(username, ConversationSummary.groupThread(groupId)) > 0;
+    }
+
+    // Private messages of one persisted batch: the sender's row is marked read, the
+    // receiver's gets one more unread. Each touched row gets one conditional UPDATE per batch,
+    // in a fixed order so concurrent writers lock rows the same way round; rows that do not
+    // exist yet are inserted. Must run in the transaction that saved the messages.
+    public void recordChatMessages(List<ChatMessage> messages) {
+        Map<String, Pending> pending = new TreeMap<>();
+        for (ChatMessage message : messages) {
+            String sender = message.getSenderName();
+            String receiver = message.getReceiverName();
+            if (sender == null || receiver == null) {
+                continue; // public room, not part of anyone's inbox
+            }
+            pending.computeIfAbsent(sender + '\n' + receiver, key -> new Pending(sender, receiver))
+                    .sent(message);
+            if (!receiver.equals(sender)) {
+                pending.computeIfAbsent(receiver + '\n' + sender, key -> new Pending(receiver, sender))
+                        .received(message);
+            }
+        }
+
+        List<ConversationSummary> created = new ArrayList<>();
+        for (Pending update : pending.values()) {
+            ChatMessage last = update.last;
+            int updated = summaryRepository.recordPeerMessages(update.owner,
+                    ConversationSummary.peerThread(update.peer), last.getId(), last.getSenderName(),
+                    preview(last.getMessage()), last.getTimestamp(), update.reset, update.unread,
+                    last.getSeq(), update.readSeq);
+            if (updated == 0) {
+                ConversationSummary summary = peerSummary(update.owner, update.peer, last);
+                summary.setUnreadCount(update.unread);
+                summary.setLastReadSeq(update.readSeq);
+                created.add(summary);
+            }
+        }
+        summaryRepository.saveAll(created);
+    }
+
+    // Must run in the transaction that saved the message
+    public void recordGroupMessage(GroupMessage message, Long groupId) {
+        summaryRepository.recordGroupMessage(groupId, message.getId(), message.getSenderName(),
+                preview(message.getMessage()), epochMillis(message), message.getSeq());
+    }
+
+    // Read watermarks by owner and thread key, as collected by ReadReceiptService. They only
+    // move forward, and the unread count shrinks to what lies beyond the watermark. Each one
+    // is a conditional UPDATE on the row as it is now, so a group send or batch persisted
+    // meanwhile never makes the flush fail; owners go in the same order as recordChatMessages.
+    @Transactional
+    public void recordReads(Map<String, Map<String, Long>> readSeqs) {
+        new TreeMap<>(readSeqs).forEach((owner, byThread) -> new TreeMap<>(byThread).forEach((threadKey, seq) ->
+                summaryRepository.recordRead(owner, threadKey, seq)));
+    }
+
+    @Transactional(readOnly = true)
+    public Long getReadSeq(String ownerName, String threadKey) {
+        return summaryRepository.findByOwnerNameAndThreadKey(ownerName, threadKey)
+                .map(ConversationSummary::getLastReadSeq)
+                .orElse(null);
+    }
+
+    // Read watermark of every member of a group that has one
+    @Transactional(readOnly = true)
+    public Map<String, Long> getGroupReadSeqs(Long groupId) {
+        Map<String, Long> readSeqs = new HashMap<>();
+        for (ConversationSummary summary : summaryRepository.findByGroupId(groupId)) {
+            if (summary.getLastReadSeq() != null) {
+                readSeqs.put(summary.getOwnerName(), summary.getLastReadSeq());
+            }
+        }
+        return readSeqs;
+    }
+
+    // New members see the group in their inbox straight away
+    public void addGroupMembers(ChatGroup group, Collection<Long> userIds) {
+        Set<String> present = new HashSet<>(summaryRepository.findOwnerNamesByGroupId(group.getId()));
+        long now = System.currentTimeMillis();
+        List<ConversationSummary> added = new ArrayList<>();
+        for (String username : userRepository.findUsernamesByIdIn(userIds)) {
+            if (present.add(username)) {
+                added.add(ConversationSummary.forGroup(username, group.getId(), group.getName(), now));
+            }
+        }
+        summaryRepository.saveAll(added);
+    }
+
+    public void removeGroupMembers(Long groupId, Collection<Long> userIds) {
+        summaryRepository.deleteGroupMembers(groupId, userIds);
+    }
+
+    public void deleteGroup(Long groupId) {
+        summaryRepository.deleteByGroupId(groupId);
+    }
+
+    private String preview(String text) {
+        if (text == null || text.length() <= previewLength) {
+            return text;
+        }
+        return text.substring(0, previewLength - 1) + "…";
+    }
+
+    private static Long epochMillis(GroupMessage message) {
+        return message.getTimestamp() != null
+                ? message.getTimestamp().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli()
+                : System.currentTimeMillis();
+    }
+
+    // First start with an empty summary table: one row per group membership and per side of
+    // every private conversation, pointing at its newest message, with nothing unread
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional
+    public void backfill() {
+        if (summaryRepository.count() > 0) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        List<ConversationSummary> summaries = new ArrayList<>();
+
+        Map<Long, GroupMessage> lastGroupMessages = new HashMap<>();
+        for (List<Long> chunk : chunks(summaryRepository.findLastGroupMessageIds())) {
+            groupMessageRepository.findAllById(chunk)
+                    .forEach(message -> lastGroupMessages.put(message.getGroup().getId(), message));
+        }
+        for (ChatGroup group : groupRepository.findAll()) {
+            GroupMessage last = lastGroupMessages.get(group.getId());
+            for (String username : groupRepository.findMemberUsernames(group.getId())) {
+                ConversationSummary summary = ConversationSummary.forGroup(username, group.getId(), group.getName(), now);
+                if (last != null) {
+                    summary.setLastMessageId(last.getId());
+                    summary.setLastSenderName(last.getSenderName());
+                    summary.setLastMessagePreview(preview(last.getMessage()));
+                    summary.setLastActivity(epochMillis(last));
+                    summary.setLastSeq(last.getSeq());
+                }
+                summaries.add(summary);
+            }
+        }
+
+        for (List<Long> chunk : chunks(summaryRepository.findLastChatMessageIds())) {
+            for (ChatMessage last : chatMessageRepository.findAllById(chunk)) {
+                summaries.add(peerSummary(last.getSenderName(), last.getReceiverName(), last));
+                if (!last.getReceiverName().equals(last.getSenderName())) {
+                    summaries.add(peerSummary(last.getReceiverName(), last.getSenderName(), last));
+                }
+            }
+        }
+
+        summaryRepository.saveAll(summaries);
+        if (!summaries.isEmpty()) {
+            log.info("Backfilled {} conversation summaries", summaries.size());
+        }
+    }
+
+    private ConversationSummary peerSummary(String owner, String peer, ChatMessage last) {
+        ConversationSummary summary = ConversationSummary.forPeer(owner, peer);
+        summary.setLastMessageId(last.getId());
+        summary.setLastSenderName(last.getSenderName());
+        summary.setLastMessagePreview(preview(last.getMessage()));
+        summary.setLastActivity(last.getTimestamp());
+        summary.setLastSeq(last.getSeq());
+        return summary;
+    }
+
+    private static List<List<Long>> chunks(List<Long> ids) {
+        List<List<Long>> chunks = new ArrayList<>();
+        for (int start = 0; start < ids.size(); start += BACKFILL_CHUNK_SIZE) {
+            chunks.add(ids.subList(start, Math.min(start + BACKFILL_CHUNK_SIZE, ids.size())));
+        }
+        return chunks;
+    }
+
+    // What one batch does to one owner's row for one peer
+    private static final class Pending {
+        final String owner;
+        final String peer;
+        ChatMessage last;
+        boolean reset;
+        int unread;
+        Long readSeq;
+
+        Pending(String owner, String peer) {
+            this.owner = owner;
+            this.peer = peer;
+        }
+
+        // Sending implies the sender has read everything before it
+        void sent(ChatMessage message) {
+            last = message;
+            reset = true;
+            unread = 0;
+            readSeq = message.getSeq();
+        }
+
+        void received(ChatMessage message) {
+            last = message;
+            unread++;
+        }
+    }
+}
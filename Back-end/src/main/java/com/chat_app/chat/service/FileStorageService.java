@@ -0,0 +1,145 @@
+package com.chat_app.chat.service;
+
+import com.chat_app.chat.model.ImageVariant;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.http.MediaTypeFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+@Service
+public class FileStorageService {
+
+    private static final String DEFAULT_CONTENT_TYPE = "application/octet-stream";
+    // Handles of content-addressed files: sha-256 in hex plus the original extension
+    private static final Pattern HASH_HANDLE = Pattern.compile("([0-9a-f]{64})(\\.[a-z0-9]{1,16})?");
+    private static final Pattern EXTENSION = Pattern.compile("[A-Za-z0-9]{1,16}");
+    private static final List<String> VARIANT_FORMATS = List.of("jpg", "png");
+
+    private final Path uploadsDir;
+
+    public FileStorageService(@Value("${chat.uploads.dir:uploads}") String uploadsDir) {
+        this.uploadsDir = Paths.get(uploadsDir).toAbsolutePath().normalize();
+    }
+
+    public Path getUploadsDir() {
+        return uploadsDir;
+    }
+
+    // Store an upload under its content hash and return the handle clients use to fetch it.
+    // The hash is computed in a streaming pass over the spooled part, and the bytes are
+    // only written when that content is not stored yet.
+    public String store(MultipartFile file) throws IOException {
+        String hash = sha256(file);
+        String handle = hash + extensionOf(file.getOriginalFilename());
+        Path target = contentPath(hash);
+        if (Files.exists(target)) {
+            return handle;
+        }
+
+        Files.createDirectories(target.getParent());
+        Path temp = Files.createTempFile(target.getParent(), hash, ".part");
+        try {
+            // For parts already spooled to disk this is a rename rather than a copy
+            file.transferTo(temp.toFile());
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+        return handle;
+    }
+
+    // Resolve a stored file, refusing anything that would escape the uploads directory.
+    // Hash handles live in the sharded layout, older uploads still sit flat in the directory.
+    public Path resolve(String filename) {
+        Matcher matcher = HASH_HANDLE.matcher(filename);
+        if (matcher.matches()) {
+            return contentPath(matcher.group(1));
+        }
+
+        Path filePath = uploadsDir.resolve(filename).normalize();
+        if (!filePath.startsWith(uploadsDir)) {
+            return null;
+        }
+        return filePath;
+    }
+
+    public boolean isContentAddressed(String handle) {
+        return HASH_HANDLE.matcher(handle).matches();
+    }
+
+    // Generated variants sit next to the original as <hash>.<variant>.<format>
+    public Path variantPath(String handle, ImageVariant variant, String format) {
+        Matcher matcher = HASH_HANDLE.matcher(handle);
+        if (!matcher.matches()) {
+            return null;
+        }
+        String hash = matcher.group(1);
+        return contentPath(hash).resolveSibling(hash + "." + variant.getSuffix() + "." + format);
+    }
+
+    // The stored variant, or null while it has not been generated (yet)
+    public Path resolveVariant(String handle, ImageVariant variant) {
+        for (String format : VARIANT_FORMATS) {
+            Path variantPath = variantPath(handle, variant, format);
+            if (variantPath != null && Files.isRegularFile(variantPath)) {
+                return variantPath;
+            }
+        }
+        return null;
+    }
+
+    // uploads/ab/cd/abcd... keeps every directory small
+    private Path contentPath(String hash) {
+        return uploadsDir.resolve(hash.substring(0, 2)).resolve(hash.substring(2, 4)).resolve(hash);
+    }
+
+    private static String sha256(MultipartFile file) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+
+        try (InputStream in = new DigestInputStream(file.getInputStream(), digest)) {
+            byte[] buffer = new byte[64 * 1024];
+            while (in.read(buffer) != -1) {
+                // reading is enough, the digest stream does the work
+            }
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    private static String extensionOf(String originalFilename) {
+        if (originalFilename == null) {
+            return "";
+        }
+        int dot = originalFilename.lastIndexOf('.');
+        String extension = dot >= 0 ? originalFilename.substring(dot + 1) : "";
+        return EXTENSION.matcher(extension).matches() ? "." + extension.toLowerCase(Locale.ROOT) : "";
+    }
+
+    // Content type from the requested name, since content-addressed files carry no extension on disk.
+    // The extension is the client's choice, so this is a lookup in Spring's fixed table, not a cache.
+    public String getContentType(String filename) {
+        return MediaTypeFactory.getMediaType(filename)
+                .map(MediaType::toString)
+                .orElse(DEFAULT_CONTENT_TYPE);
+    }
+}
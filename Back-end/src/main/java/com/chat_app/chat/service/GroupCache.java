@@ -0,0 +1,64 @@
+package com.chat_app.chat.service;
+
+import com.chat_app.chat.entity.ChatGroup;
+import com.chat_app.chat.model.CachedGroup;
+import com.chat_app.chat.repository.GroupRepository;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import jakarta.persistence.EntityNotFoundException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.Set;
+
+// Group name and member usernames for sending messages without a round-trip per message
+@Service
+public class GroupCache {
+
+    private final GroupRepository groupRepository;
+    private final LoadingCache<Long, CachedGroup> cache;
+
+    public GroupCache(GroupRepository groupRepository,
+                      @Value("${chat.groups.cache-size:10000}") long maximumSize,
+                      @Value("${chat.groups.cache-ttl-minutes:10}") long ttlMinutes) {
+        this.groupRepository = groupRepository;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(Duration.ofMinutes(ttlMinutes))
+                .build(this::load);
+    }
+
+    public CachedGroup get(Long groupId) {
+        CachedGroup group = cache.get(groupId);
+        if (group == null) {
+            throw new EntityNotFoundException("Group not found");
+        }
+        return group;
+    }
+
+    private CachedGroup load(Long groupId) {
+        ChatGroup group = groupRepository.findById(groupId).orElse(null);
+        if (group == null) {
+            return null;
+        }
+        Set<String> members = Set.copyOf(groupRepository.findMemberUsernames(groupId));
+        return new CachedGroup(group.getId(), group.getName(), members);
+    }
+
+    // Evict now and again once the surrounding transaction commits, so a reader
+    // racing the change cannot put the old membership back
+    public void invalidate(Long groupId) {
+        cache.invalidate(groupId);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    cache.invalidate(groupId);
+                }
+            });
+        }
+    }
+}
@@ -0,0 +1,155 @@
+package com.chat_app.chat.service;
+
+import com.chat_app.chat.model.GroupDeletionStatus;
+import com.chat_app.chat.repository.GroupMessageRepository;
+import com.chat_app.chat.repository.GroupRepository;
+import com.chat_app.chat.repository.UserRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.EntityNotFoundException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+// Deletes a group's history in id-range chunks, each chunk in its own short transaction,
+// so neither the heap nor a table lock grows with the size of the group
+@Service
+public class GroupDeletionService {
+
+    private static final Logger log = LoggerFactory.getLogger(GroupDeletionService.class);
+
+    private final GroupRepository groupRepository;
+    private final GroupMessageRepository groupMessageRepository;
+    private final UserRepository userRepository;
+    private final GroupCache groupCache;
+    private final MessageSearchIndex searchIndex;
+    private final ConversationInboxService inboxService;
+    private final MessageArchive messageArchive;
+    private final TransactionTemplate transactionTemplate;
+    private final int chunkSize;
+
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "group-deletion");
+        thread.setDaemon(true);
+        return thread;
+    });
+    // Finished jobs stay queryable for a while, then drop out
+    private final Cache<Long, GroupDeletionStatus> statuses = Caffeine.newBuilder()
+            .expireAfterWrite(Duration.ofHours(1))
+            .build();
+
+    public GroupDeletionService(GroupRepository groupRepository,
+                                GroupMessageRepository groupMessageRepository,
+                                UserRepository userRepository,
+                                GroupCache groupCache,
+                                MessageSearchIndex searchIndex,
+                                ConversationInboxService inboxService,
+                                MessageArchive messageArchive,
+                                PlatformTransactionManager transactionManager,
+                                @Value("${chat.groups.delete-chunk-size:1000}") int chunkSize) {
+        this.groupRepository = groupRepository;
+        this.groupMessageRepository = groupMessageRepository;
+        this.userRepository = userRepository;
+        this.groupCache = groupCache;
+        this.searchIndex = searchIndex;
+        this.inboxService = inboxService;
+        this.messageArchive = messageArchive;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.chunkSize = chunkSize;
+    }
+
+    // Delete on the caller's thread
+    public void deleteGroup(Long groupId) {
+        if (!groupRepository.existsById(groupId)) {
+            throw new EntityNotFoundException("Group not found");
+        }
+        run(new GroupDeletionStatus(groupId));
+    }
+
+    // Delete in the background; asking again while a job runs returns that job
+    public GroupDeletionStatus startDeletion(Long groupId) {
+        if (!groupRepository.existsById(groupId)) {
+            throw new EntityNotFoundException("Group not found");
+        }
+        boolean[] started = new boolean[1];
+        GroupDeletionStatus status = statuses.asMap().compute(groupId, (id, existing) -> {
+            if (existing != null && existing.getState() == GroupDeletionStatus.State.RUNNING) {
+                return existing;
+            }
+            started[0] = true;
+            return new GroupDeletionStatus(id);
+        });
+        if (started[0]) {
+            executor.execute(() -> run(status));
+        }
+        return status;
+    }
+
+    public GroupDeletionStatus getStatus(Long groupId) {
+        return statuses.getIfPresent(groupId);
+    }
+
+    private void run(GroupDeletionStatus status) {
+        Long groupId = status.getGroupId();
+        // The send path reloads the group and fails once the row is gone
+        groupCache.invalidate(groupId);
+        try {
+            int deleted;
+            do {
+                if (Thread.currentThread().isInterrupted()) {
+                    throw new IllegalStateException("Deletion interrupted");
+                }
+                deleted = transactionTemplate.execute(tx -> deleteChunk(groupId));
+                status.setDeletedMessages(status.getDeletedMessages() + deleted);
+            } while (deleted > 0);
+
+            // Whatever arrived meanwhile goes together with the group row
+            transactionTemplate.executeWithoutResult(tx -> {
+                long lastDeleted;
+                do {
+                    lastDeleted = deleteChunk(groupId);
+                    status.setDeletedMessages(status.getDeletedMessages() + lastDeleted);
+                } while (lastDeleted > 0);
+                userRepository.clearGroup(groupId);
+                inboxService.deleteGroup(groupId);
+                groupRepository.removeAllMembers(groupId);
+                groupRepository.deleteGroupById(groupId);
+            });
+            groupCache.invalidate(groupId);
+            searchIndex.deleteGroup(groupId);
+            messageArchive.deleteGroup(groupId);
+
+            status.setState(GroupDeletionStatus.State.COMPLETED);
+        } catch (RuntimeException e) {
+            log.error("Deleting group {} failed after {} messages", groupId, status.getDeletedMessages(), e);
+            status.setError(e.getMessage());
+            status.setState(GroupDeletionStatus.State.FAILED);
+            throw e;
+        } finally {
+            status.setFinishedAt(System.currentTimeMillis());
+        }
+    }
+
+    private int deleteChunk(Long groupId) {
+        List<Long> ids = groupMessageRepository.findIdsByGroupId(groupId, PageRequest.of(0, chunkSize));
+        if (ids.isEmpty()) {
+            return 0;
+        }
+        return groupMessageRepository.deleteByGroupIdAndIdBetween(groupId, ids.get(0), ids.get(ids.size() - 1));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+}
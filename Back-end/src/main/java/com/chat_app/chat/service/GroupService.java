@@ -3,7 +3,7 @@ package com.chat_app.chat.service;
 
 import com.chat_app.chat.entity.ChatGroup;
 import com.chat_app.chat.entity.GroupMessage;
-import com.chat_app.chat.entity.Users;
+import com.chat_app.chat.model.CachedGroup;
 import com.chat_app.chat.model.GroupMessageDTO;
 import com.chat_app.chat.repository.GroupMessageRepository;
 import com.chat_app.chat.repository.GroupRepository;
@@ -12,28 +12,53 @@ import jakarta.persistence.EntityNotFoundException;
 import org.springframework.messaging.simp.SimpMessagingTemplate;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Objects;
 import java.util.Optional;
 
 @Service
 public class GroupService {
 
+    private static final int MEMBERSHIP_CHUNK_SIZE = 1000;
+
     private final GroupRepository groupRepository;
     private final UserRepository userRepository;
     private final GroupMessageRepository groupMessageRepository;
     private final SimpMessagingTemplate messagingTemplate;
+    private final GroupCache groupCache;
+    private final GroupDeletionService groupDeletionService;
+    private final MessagingMetrics messagingMetrics;
+    private final MessageSearchIndex searchIndex;
+    private final ConversationInboxService inboxService;
+    private final MessageArchive messageArchive;
 
     public GroupService(GroupRepository groupRepository,
                         UserRepository userRepository,
                         GroupMessageRepository groupMessageRepository,
-                        SimpMessagingTemplate messagingTemplate) {
+                        SimpMessagingTemplate messagingTemplate,
+                        GroupCache groupCache,
+                        GroupDeletionService groupDeletionService,
+                        MessagingMetrics messagingMetrics,
+                        MessageSearchIndex searchIndex,
+                        ConversationInboxService inboxService,
+                        MessageArchive messageArchive) {
         this.groupRepository = groupRepository;
         this.userRepository = userRepository;
         this.groupMessageRepository = groupMessageRepository;
         this.messagingTemplate = messagingTemplate;
+        this.groupCache = groupCache;
+        this.groupDeletionService = groupDeletionService;
+        this.messagingMetrics = messagingMetrics;
+        this.searchIndex = searchIndex;
+        this.inboxService = inboxService;
+        this.messageArchive = messageArchive;
     }
 
     // Create a new group
@@ -41,7 +66,7 @@ public class GroupService {
     public ChatGroup createGroup(String name) {
         ChatGroup group = new ChatGroup();
         group.setName(name);
-        group.setMembers(new ArrayList<>()); // Initialize members list
+        group.setMembers(new HashSet<>()); // Initialize members list
         return groupRepository.save(group);
     }
 
@@ -52,7 +77,7 @@ public class GroupService {
         // Ensure each group has members initialized
         groups.forEach(group -> {
             if (group.getMembers() == null) {
-                group.setMembers(new ArrayList<>());
+                group.setMembers(new HashSet<>());
             }
         });
         return groups;
@@ -63,22 +88,18 @@ public class GroupService {
     public ChatGroup addUserToGroup(Long groupId, Long userId) {
         ChatGroup group = groupRepository.findById(groupId)
                 .orElseThrow(() -> new EntityNotFoundException("Group not found"));
-        Users user = userRepository.findById(userId)
-                .orElseThrow(() -> new EntityNotFoundException("User not found"));
-
-        if (group.getMembers() == null) {
-            group.setMembers(new ArrayList<>());
+        if (!userRepository.existsById(userId)) {
+            throw new EntityNotFoundException("User not found");
         }
 
-        // Check if user is already in the group
-        boolean userExists = group.getMembers().stream()
-                .anyMatch(member -> member.getId().equals(userId));
-
-        if (!userExists) {
-            group.getMembers().add(user);
+        // Check if user is already in the group without loading the member collection
+        if (!groupRepository.isMember(groupId, userId)) {
+            groupRepository.addMembers(groupId, List.of(userId));
+            inboxService.addGroupMembers(group, List.of(userId));
         }
 
-        return groupRepository.save(group);
+        groupCache.invalidate(groupId);
+        return group;
     }
 
     // Remove user from group
@@ -86,27 +107,60 @@ public class GroupService {
     public ChatGroup removeUserFromGroup(Long groupId, Long userId) {
         ChatGroup group = groupRepository.findById(groupId)
                 .orElseThrow(() -> new EntityNotFoundException("Group not found"));
-        Users user = userRepository.findById(userId)
-                .orElseThrow(() -> new EntityNotFoundException("User not found"));
-
-        if (group.getMembers() != null) {
-            group.getMembers().removeIf(member -> member.getId().equals(userId));
+        if (!userRepository.existsById(userId)) {
+            throw new EntityNotFoundException("User not found");
         }
 
-        return groupRepository.save(group);
+        groupRepository.removeMembers(groupId, List.of(userId));
+        inboxService.removeGroupMembers(groupId, List.of(userId));
+
+        groupCache.invalidate(groupId);
+        return group;
     }
 
-    // Delete group
+    // Add many users at once, one INSERT ... SELECT per chunk of ids
     @Transactional
-    public void deleteGroup(Long groupId) {
-        // First delete all messages in the group
-        List<GroupMessage> messages = groupMessageRepository.findByGroupIdOrderByTimestampAsc(groupId);
-        groupMessageRepository.deleteAll(messages);
+    public ChatGroup addUsersToGroup(Long groupId, Collection<Long> userIds) {
+        ChatGroup group = groupRepository.findById(groupId)
+                .orElseThrow(() -> new EntityNotFoundException("Group not found"));
+
+        for (List<Long> chunk : chunks(userIds)) {
+            groupRepository.addMembers(groupId, chunk);
+            inboxService.addGroupMembers(group, chunk);
+        }
+
+        groupCache.invalidate(groupId);
+        return group;
+    }
 
-        // Then delete the group
+    // Remove many users at once, one DELETE per chunk of ids
+    @Transactional
+    public ChatGroup removeUsersFromGroup(Long groupId, Collection<Long> userIds) {
         ChatGroup group = groupRepository.findById(groupId)
                 .orElseThrow(() -> new EntityNotFoundException("Group not found"));
-        groupRepository.delete(group);
+
+        for (List<Long> chunk : chunks(userIds)) {
+            groupRepository.removeMembers(groupId, chunk);
+            inboxService.removeGroupMembers(groupId, chunk);
+        }
+
+        groupCache.invalidate(groupId);
+        return group;
+    }
+
+    // Keeps IN lists at a size every database handles comfortably
+    private static List<List<Long>> chunks(Collection<Long> ids) {
+        List<Long> distinct = ids.stream().filter(Objects::nonNull).distinct().toList();
+        List<List<Long>> chunks = new ArrayList<>();
+        for (int start = 0; start < distinct.size(); start += MEMBERSHIP_CHUNK_SIZE) {
+            chunks.add(distinct.subList(start, Math.min(start + MEMBERSHIP_CHUNK_SIZE, distinct.size())));
+        }
+        return chunks;
+    }
+
+    // Delete group, history is removed in chunks by GroupDeletionService
+    public void deleteGroup(Long groupId) {
+        groupDeletionService.deleteGroup(groupId);
     }
 
     // Get group by ID
@@ -117,7 +171,7 @@ public class GroupService {
 
         // Ensure members are initialized
         if (group.getMembers() == null) {
-            group.setMembers(new ArrayList<>());
+            group.setMembers(new HashSet<>());
         }
 
         return group;
@@ -127,38 +181,86 @@ public class GroupService {
     @Transactional
     public GroupMessageDTO sendGroupMessage(Long groupId, String senderName, String message,
                                             String media, String mediaType) {
-        ChatGroup group = getGroup(groupId);
+        // Group and membership come from the cache; the statements here are the seq
+        // increment, the INSERT and the inbox update
+        CachedGroup group = groupCache.get(groupId);
+        if (!group.isMember(senderName)) {
+            throw new IllegalStateException("User " + senderName + " is not a member of group " + groupId);
+        }
+
         GroupMessage groupMessage = new GroupMessage();
         groupMessage.setSenderName(senderName);
         groupMessage.setMessage(message);
         groupMessage.setMedia(media);
         groupMessage.setMediaType(mediaType);
-        groupMessage.setGroup(group);
+        groupMessage.setGroup(groupRepository.getReferenceById(groupId));
         groupMessage.setTimestamp(LocalDateTime.now());
 
-        GroupMessage savedMessage = groupMessageRepository.save(groupMessage);
+        // The increment locks the group row until commit, so a sync never sees seq n+1
+        // before n, and concurrent senders only wait for each other's commit. It returns
+        // the new value, so the seq goes out with the message's INSERT.
+        groupMessage.setSeq(groupRepository.nextSeq(groupId));
+
+        // Flushed inside the timer: with an application-generated id, save() alone only
+        // schedules the INSERT for commit
+        GroupMessage savedMessage = messagingMetrics.recordSave("group_message",
+                () -> groupMessageRepository.saveAndFlush(groupMessage));
+        inboxService.recordGroupMessage(savedMessage, groupId);
+        searchIndex.indexGroupMessageAfterCommit(savedMessage);
 
         // Convert to DTO to avoid lazy loading issues
-        GroupMessageDTO messageDTO = new GroupMessageDTO(savedMessage);
+        GroupMessageDTO messageDTO = new GroupMessageDTO(savedMessage, group.id(), group.name());
 
-        // Broadcast message to group
-        messagingTemplate.convertAndSend("/topic/group/" + groupId, messageDTO);
+        // Broadcast message to group once committed, clients must never see a message or
+        // seq that was rolled back
+        afterCommit(() -> messagingTemplate.convertAndSend("/topic/group/" + groupId, messageDTO));
 
         return messageDTO;
     }
 
+    private static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+
     // Get group messages
     @Transactional(readOnly = true)
     public List<GroupMessage> getGroupMessages(Long groupId) {
-        return groupMessageRepository.findByGroupIdOrderByTimestampAsc(groupId);
+        return history(groupId);
     }
 
     // Get group messages as DTOs
     @Transactional(readOnly = true)
     public List<GroupMessageDTO> getGroupMessagesAsDTOs(Long groupId) {
-        List<GroupMessage> messages = groupMessageRepository.findByGroupIdOrderByTimestampAsc(groupId);
+        List<GroupMessage> messages = history(groupId);
         return messages.stream()
                 .map(GroupMessageDTO::new)
                 .toList();
     }
+
+    // Archived messages first, they are all older than the table's; a row that is still
+    // in the table while its segment is already written is skipped
+    private List<GroupMessage> history(Long groupId) {
+        List<GroupMessage> messages = new ArrayList<>(messageArchive.groupMessages(groupId));
+        if (messages.isEmpty()) {
+            return groupMessageRepository.findByGroupIdOrderByIdAsc(groupId);
+        }
+        ChatGroup group = groupRepository.getReferenceById(groupId);
+        messages.forEach(message -> message.setGroup(group));
+        long lastArchived = messages.get(messages.size() - 1).getId();
+        for (GroupMessage message : groupMessageRepository.findByGroupIdOrderByIdAsc(groupId)) {
+            if (message.getId() > lastArchived) {
+                messages.add(message);
+            }
+        }
+        return messages;
+    }
 }
\ No newline at end of file
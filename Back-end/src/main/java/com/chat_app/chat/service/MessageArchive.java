@@ -0,0 +1,319 @@
+package com.chat_app.chat.service;
+
+import com.chat_app.chat.entity.ChatGroup;
+import com.chat_app.chat.entity.ChatMessage;
+import com.chat_app.chat.entity.GroupMessage;
+import com.chat_app.chat.model.Status;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+
+// Cold storage for old messages, written by MessageArchiver. Segments are immutable files
+// under chat.archive.dir, one series for chat_message and one for group_message; each
+// covers a contiguous id range after the previous one, and since ids are time-ordered
+// everything in the archive is older than what is left in the table. Readers ask here
+// for whatever the table did not return. An empty chat.archive.dir turns archiving off.
+@Service
+public class MessageArchive {
+
+    private static final Logger log = LoggerFactory.getLogger(MessageArchive.class);
+    private static final String CHAT = "chat";
+    private static final String GROUP = "group";
+    private static final String SUFFIX = ".seg";
+
+    private static final ArchiveSegment.Codec<ChatMessage> CHAT_CODEC = new ChatMessageCodec();
+    private static final ArchiveSegment.Codec<GroupMessage> GROUP_CODEC = new GroupMessageCodec();
+
+    private final Path dir;
+    // Oldest first; replaced as a whole, never modified
+    private volatile List<ArchiveSegment<ChatMessage>> chatSegments = List.of();
+    private volatile List<ArchiveSegment<GroupMessage>> groupSegments = List.of();
+    // Groups deleted while this node runs, so a segment being written cannot bring them back
+    private final Set<Long> deletedGroups = ConcurrentHashMap.newKeySet();
+
+    public MessageArchive(@Value("${chat.archive.dir:archive}") String dir) {
+        this.dir = dir.isBlank() ? null : Path.of(dir);
+    }
+
+    @PostConstruct
+    public synchronized void load() throws IOException {
+        if (dir == null) {
+            return;
+        }
+        Files.createDirectories(dir);
+        List<ArchiveSegment<ChatMessage>> chat = new ArrayList<>();
+        List<ArchiveSegment<GroupMessage>> group = new ArrayList<>();
+        try (Stream<Path> files = Files.list(dir)) {
+            for (Path file : files.toList()) {
+                String name = file.getFileName().toString();
+                if (name.endsWith(".tmp")) {
+                    Files.delete(file); // a write that did not finish
+                } else if (name.startsWith(CHAT + "-") && name.endsWith(SUFFIX)) {
+                    chat.add(ArchiveSegment.open(file, CHAT_CODEC));
+                } else if (name.startsWith(GROUP + "-") && name.endsWith(SUFFIX)) {
+                    group.add(ArchiveSegment.open(file, GROUP_CODEC));
+                }
+            }
+        }
+        chat.sort(Comparator.comparingLong(ArchiveSegment::toId));
+        group.sort(Comparator.comparingLong(ArchiveSegment::toId));
+        chatSegments = List.copyOf(chat);
+        groupSegments = List.copyOf(group);
+        if (!chat.isEmpty() || !group.isEmpty()) {
+            log.info("Opened {} chat and {} group message archive segments", chat.size(), group.size());
+        }
+    }
+
+    public boolean isEnabled() {
+        return dir != null;
+    }
+
+    // Highest id archived so far, 0 when nothing is
+    public long chatWatermark() {
+        return watermark(chatSegments);
+    }
+
+    public long groupWatermark() {
+        return watermark(groupSegments);
+    }
+
+    // Messages of a chat scope (ChatMessageWriter.scopeOf) with ids below beforeId, newest first
+    public List<ChatMessage> chatBefore(String scope, long beforeId, int limit) {
+        return before(chatSegments, scope, beforeId, limit);
+    }
+
+    // Messages of a chat scope with ids above afterId, oldest first
+    public List<ChatMessage> chatAfter(String scope, long afterId, int limit) {
+        return after(chatSegments, scope, afterId, limit, message -> true);
+    }
+
+    public List<ChatMessage> chatAfterSeq(String scope, long afterSeq, int limit) {
+        return after(chatSegments, scope, Long.MIN_VALUE, limit,
+                message -> message.getSeq() != null && message.getSeq() > afterSeq);
+    }
+
+    // Seq of the newest archived message of a scope, for seeding its counter
+    public Long lastChatSeq(String scope) {
+        List<ChatMessage> last = chatBefore(scope, Long.MAX_VALUE, 1);
+        return last.isEmpty() ? null : last.get(0).getSeq();
+    }
+
+    // Every archived message of a group, oldest first. The group of each message is a
+    // detached ChatGroup carrying only the id.
+    public List<GroupMessage> groupMessages(Long groupId) {
+        return after(groupSegments, groupScope(groupId), Long.MIN_VALUE, Integer.MAX_VALUE, message -> true);
+    }
+
+    public List<GroupMessage> groupAfterSeq(Long groupId, long afterSeq, int limit) {
+        return after(groupSegments, groupScope(groupId), Long.MIN_VALUE, limit,
+                message -> message.getSeq() != null && message.getSeq() > afterSeq);
+    }
+
+    // Every archived message, one decompressed block at a time
+    public void forEachChatBlock(Consumer<List<ChatMessage>> consumer) {
+        chatSegments.forEach(segment -> segment.forEachBlock(consumer));
+    }
+
+    public void forEachGroupBlock(Consumer<List<GroupMessage>> consumer) {
+        groupSegments.forEach(segment -> segment.forEachBlock(consumer));
+    }
+
+    // Archives the chat messages with fromId < id <= toId, in any order
+    public synchronized void writeChatSegment(long fromId, long toId, List<ChatMessage> messages) throws IOException {
+        List<ChatMessage> sorted = new ArrayList<>(messages);
+        for (ChatMessage message : sorted) {
+            // Rows from before conversation_key was backfilled
+            if (message.getConversationKey() == null && message.getSenderName() != null
+                    && message.getReceiverName() != null) {
+                message.setConversationKey(ChatMessage.conversationKey(message.getSenderName(), message.getReceiverName()));
+            }
+        }
+        sorted.sort(Comparator.comparing(ChatMessageWriter::scopeOf).thenComparing(ChatMessage::getId));
+        ArchiveSegment<ChatMessage> segment = ArchiveSegment.write(segmentPath(CHAT, fromId, toId), CHAT_CODEC,
+                fromId, toId, sorted.iterator());
+        chatSegments = appended(chatSegments, segment);
+    }
+
+    public synchronized void writeGroupSegment(long fromId, long toId, List<GroupMessage> messages) throws IOException {
+        List<GroupMessage> sorted = new ArrayList<>(messages.size());
+        for (GroupMessage message : messages) {
+            if (!deletedGroups.contains(message.getGroup().getId())) {
+                sorted.add(message);
+            }
+        }
+        sorted.sort(Comparator.comparing((GroupMessage message) -> groupScope(message.getGroup().getId()))
+                .thenComparing(GroupMessage::getId));
+        ArchiveSegment<GroupMessage> segment = ArchiveSegment.write(segmentPath(GROUP, fromId, toId), GROUP_CODEC,
+                fromId, toId, sorted.iterator());
+        groupSegments = appended(groupSegments, segment);
+    }
+
+    // Rewrites the segments holding messages of a deleted group without them
+    public synchronized void deleteGroup(Long groupId) {
+        deletedGroups.add(groupId);
+        String scope = groupScope(groupId);
+        List<ArchiveSegment<GroupMessage>> segments = new ArrayList<>(groupSegments);
+        try {
+            for (int i = 0; i < segments.size(); i++) {
+                ArchiveSegment<GroupMessage> segment = segments.get(i);
+                if (segment.find(scope, Long.MIN_VALUE, Long.MAX_VALUE, 1, false, message -> true).isEmpty()) {
+                    continue;
+                }
+                segments.set(i, ArchiveSegment.write(segment.path(), GROUP_CODEC, segment.fromId(), segment.toId(),
+                        segment.stream().filter(message -> !message.getGroup().getId().equals(groupId)).iterator()));
+                groupSegments = List.copyOf(segments);
+            }
+        } catch (IOException | RuntimeException e) {
+            log.error("Removing group {} from the message archive failed", groupId, e);
+        }
+    }
+
+    private Path segmentPath(String kind, long fromId, long toId) {
+        if (dir == null) {
+            throw new IllegalStateException("The message archive is turned off");
+        }
+        return dir.resolve(String.format("%s-%019d-%019d%s", kind, fromId, toId, SUFFIX));
+    }
+
+    private static String groupScope(Long groupId) {
+        return String.valueOf(groupId);
+    }
+
+    private static <T> long watermark(List<ArchiveSegment<T>> segments) {
+        return segments.isEmpty() ? 0L : segments.get(segments.size() - 1).toId();
+    }
+
+    private static <T> List<ArchiveSegment<T>> appended(List<ArchiveSegment<T>> segments, ArchiveSegment<T> segment) {
+        List<ArchiveSegment<T>> copy = new ArrayList<>(segments);
+        copy.add(segment);
+        return List.copyOf(copy);
+    }
+
+    // Segments hold disjoint, increasing id ranges, so walking them newest or oldest first
+    // yields the records in id order
+    private static <T> List<T> before(List<ArchiveSegment<T>> segments, String scope, long beforeId, int limit) {
+        List<T> found = new ArrayList<>();
+        for (int i = segments.size() - 1; i >= 0 && found.size() < limit; i--) {
+            found.addAll(segments.get(i).find(scope, Long.MIN_VALUE, beforeId, limit - found.size(), true,
+                    record -> true));
+        }
+        return found;
+    }
+
+    private static <T> List<T> after(List<ArchiveSegment<T>> segments, String scope, long afterId, int limit,
+                                     Predicate<T> filter) {
+        List<T> found = new ArrayList<>();
+        for (int i = 0; i < segments.size() && found.size() < limit; i++) {
+            found.addAll(segments.get(i).find(scope, afterId, Long.MAX_VALUE, limit - found.size(), false, filter));
+        }
+        return found;
+    }
+
+    private static final class ChatMessageCodec implements ArchiveSegment.Codec<ChatMessage> {
+
+        @Override
+        public String scope(ChatMessage message) {
+            return ChatMessageWriter.scopeOf(message);
+        }
+
+        @Override
+        public long id(ChatMessage message) {
+            return message.getId();
+        }
+
+        @Override
+        public void write(DataOutput out, ChatMessage message) throws IOException {
+            out.writeLong(message.getId());
+            ArchiveSegment.writeLong(out, message.getSeq());
+            ArchiveSegment.writeString(out, message.getSenderName());
+            ArchiveSegment.writeString(out, message.getReceiverName());
+            ArchiveSegment.writeString(out, message.getConversationKey());
+            ArchiveSegment.writeString(out, message.getMessage());
+            ArchiveSegment.writeString(out, message.getMedia());
+            ArchiveSegment.writeString(out, message.getMediaType());
+            ArchiveSegment.writeString(out, message.getStatus() != null ? message.getStatus().name() : null);
+            ArchiveSegment.writeLong(out, message.getTimestamp());
+        }
+
+        @Override
+        public ChatMessage read(DataInput in) throws IOException {
+            ChatMessage message = new ChatMessage();
+            message.setId(in.readLong());
+            message.setSeq(ArchiveSegment.readLong(in));
+            message.setSenderName(ArchiveSegment.readString(in));
+            message.setReceiverName(ArchiveSegment.readString(in));
+            message.setConversationKey(ArchiveSegment.readString(in));
+            message.setMessage(ArchiveSegment.readString(in));
+            message.setMedia(ArchiveSegment.readString(in));
+            message.setMediaType(ArchiveSegment.readString(in));
+            String status = ArchiveSegment.readString(in);
+            message.setStatus(status != null ? Status.valueOf(status) : null);
+            message.setTimestamp(ArchiveSegment.readLong(in));
+            return message;
+        }
+    }
+
+    private static final class GroupMessageCodec implements ArchiveSegment.Codec<GroupMessage> {
+
+        @Override
+        public String scope(GroupMessage message) {
+            return groupScope(message.getGroup().getId());
+        }
+
+        @Override
+        public long id(GroupMessage message) {
+            return message.getId();
+        }
+
+        @Override
+        public void write(DataOutput out, GroupMessage message) throws IOException {
+            out.writeLong(message.getId());
+            out.writeLong(message.getGroup().getId());
+            ArchiveSegment.writeLong(out, message.getSeq());
+            ArchiveSegment.writeString(out, message.getSenderName());
+            ArchiveSegment.writeString(out, message.getMessage());
+            ArchiveSegment.writeString(out, message.getMedia());
+            ArchiveSegment.writeString(out, message.getMediaType());
+            // Wall-clock fields as they are, so the value reads back exactly
+            LocalDateTime timestamp = message.getTimestamp();
+            ArchiveSegment.writeLong(out, timestamp != null ? timestamp.toEpochSecond(ZoneOffset.UTC) : null);
+            out.writeInt(timestamp != null ? timestamp.getNano() : 0);
+        }
+
+        @Override
+        public GroupMessage read(DataInput in) throws IOException {
+            GroupMessage message = new GroupMessage();
+            message.setId(in.readLong());
+            ChatGroup group = new ChatGroup();
+            group.setId(in.readLong());
+            message.setGroup(group);
+            message.setSeq(ArchiveSegment.readLong(in));
+            message.setSenderName(ArchiveSegment.readString(in));
+            message.setMessage(ArchiveSegment.readString(in));
+            message.setMedia(ArchiveSegment.readString(in));
+            message.setMediaType(ArchiveSegment.readString(in));
+            Long seconds = ArchiveSegment.readLong(in);
+            int nanos = in.readInt();
+            message.setTimestamp(seconds != null ? LocalDateTime.ofEpochSecond(seconds, nanos, ZoneOffset.UTC) : null);
+            return message;
+        }
+    }
+}
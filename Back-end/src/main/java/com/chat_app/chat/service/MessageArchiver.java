@@ -0,0 +1,219 @@
+package com.chat_app.chat.service;
+
+import com.chat_app.chat.entity.ChatMessage;
+import com.chat_app.chat.entity.GroupMessage;
+import com.chat_app.chat.entity.SnowflakeIdGenerator;
+import com.chat_app.chat.model.ArchiveRunStatus;
+import com.chat_app.chat.repository.ChatMessageRepository;
+import com.chat_app.chat.repository.GroupMessageRepository;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.LongSupplier;
+import java.util.function.ToLongFunction;
+
+// Moves messages older than chat.archive.min-age-days out of the tables into MessageArchive.
+// Each table is archived in id order: the next id range of at most max-segment-messages
+// rows is written as one segment, and only then deleted from the table in short chunked
+// transactions. Rows up to the archive's last id are deleted first, which finishes the
+// job if a previous run stopped between writing a segment and deleting its rows.
+// Ids only tell age from the switch to snowflake ids on: rows from before it have small
+// IDENTITY ids however recent they are, so a run also stops before the first row whose
+// timestamp is newer than min-age.
+@Service
+public class MessageArchiver {
+
+    private static final Logger log = LoggerFactory.getLogger(MessageArchiver.class);
+
+    private final ChatMessageRepository chatMessageRepository;
+    private final GroupMessageRepository groupMessageRepository;
+    private final MessageArchive archive;
+    private final TransactionTemplate transactionTemplate;
+    private final boolean enabled;
+    private final Duration minAge;
+    private final int maxSegmentMessages;
+    private final int pageSize;
+    private final int deleteChunkSize;
+
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "message-archiver");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final AtomicReference<ArchiveRunStatus> current = new AtomicReference<>();
+
+    public MessageArchiver(ChatMessageRepository chatMessageRepository,
+                           GroupMessageRepository groupMessageRepository,
+                           MessageArchive archive,
+                           PlatformTransactionManager transactionManager,
+                           @Value("${chat.archive.enabled:false}") boolean enabled,
+                           @Value("${chat.archive.min-age-days:180}") long minAgeDays,
+                           @Value("${chat.archive.max-segment-messages:100000}") int maxSegmentMessages,
+                           @Value("${chat.archive.page-size:1000}") int pageSize,
+                           @Value("${chat.archive.delete-chunk-size:1000}") int deleteChunkSize) {
+        this.chatMessageRepository = chatMessageRepository;
+        this.groupMessageRepository = groupMessageRepository;
+        this.archive = archive;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.enabled = enabled;
+        this.minAge = Duration.ofDays(minAgeDays);
+        this.maxSegmentMessages = Math.max(1, maxSegmentMessages);
+        this.pageSize = pageSize;
+        this.deleteChunkSize = Math.max(1, deleteChunkSize);
+    }
+
+    @Scheduled(fixedDelayString = "${chat.archive.interval-ms:3600000}",
+            initialDelayString = "${chat.archive.interval-ms:3600000}")
+    public void scheduledRun() {
+        if (enabled && archive.isEnabled()) {
+            startRun();
+        }
+    }
+
+    // Starts a run in the background; asking again while one runs returns that one
+    public ArchiveRunStatus startRun() {
+        ArchiveRunStatus status = new ArchiveRunStatus();
+        ArchiveRunStatus running = current.getAndUpdate(existing ->
+                existing != null && existing.getState() == ArchiveRunStatus.State.RUNNING ? existing : status);
+        if (running != null && running.getState() == ArchiveRunStatus.State.RUNNING) {
+            return running;
+        }
+        executor.execute(() -> run(status));
+        return status;
+    }
+
+    public ArchiveRunStatus getStatus() {
+        return current.get();
+    }
+
+    private void run(ArchiveRunStatus status) {
+        try {
+            // Ids are time-ordered: everything at or below the cutoff is older than min-age
+            long since = System.currentTimeMillis() - minAge.toMillis();
+            long cutoff = SnowflakeIdGenerator.firstIdAt(since) - 1;
+            archiveTable(new Table<>(archive::chatWatermark, chatMessageRepository::findIdsInIdRange,
+                    (after, upTo, page) -> chatMessageRepository.findIdsNewerThan(after, upTo, since, page),
+                    chatMessageRepository::findInIdRange, chatMessageRepository::deleteInIdRange,
+                    archive::writeChatSegment, ChatMessage::getId), cutoff, status);
+            LocalDateTime sinceTime = LocalDateTime.ofInstant(Instant.ofEpochMilli(since), ZoneId.systemDefault());
+            archiveTable(new Table<>(archive::groupWatermark, groupMessageRepository::findIdsInIdRange,
+                    (after, upTo, page) -> groupMessageRepository.findIdsNewerThan(after, upTo, sinceTime, page),
+                    groupMessageRepository::findInIdRange, groupMessageRepository::deleteInIdRange,
+                    archive::writeGroupSegment, GroupMessage::getId), cutoff, status);
+
+            status.setState(ArchiveRunStatus.State.COMPLETED);
+            if (status.getArchivedMessages().get() > 0) {
+                log.info("Archived {} messages into {} segments", status.getArchivedMessages().get(),
+                        status.getWrittenSegments().get());
+            }
+        } catch (IOException | RuntimeException e) {
+            log.error("Archiving messages failed after {} messages", status.getArchivedMessages().get(), e);
+            status.setError(e.getMessage());
+            status.setState(ArchiveRunStatus.State.FAILED);
+        } finally {
+            status.setFinishedAt(System.currentTimeMillis());
+        }
+    }
+
+    private <T> void archiveTable(Table<T> table, long idCutoff, ArchiveRunStatus status) throws IOException {
+        long after = table.watermark().getAsLong();
+        deleteRange(table, 0L, after);
+
+        // Not past the first row that is too young by its timestamp, see above
+        List<Long> tooYoung = table.newerIds().apply(after, idCutoff, PageRequest.of(0, 1));
+        long cutoff = tooYoung.isEmpty() ? idCutoff : tooYoung.get(0) - 1;
+
+        while (after < cutoff) {
+            if (Thread.currentThread().isInterrupted()) {
+                throw new IllegalStateException("Archiving interrupted");
+            }
+            // The id max-segment-messages rows on, or the cutoff when fewer are left
+            List<Long> boundary = table.ids().apply(after, cutoff, PageRequest.of(maxSegmentMessages - 1, 1));
+            long upTo = boundary.isEmpty() ? cutoff : boundary.get(0);
+
+            List<T> rows = load(table, after, upTo);
+            if (rows.isEmpty()) {
+                return;
+            }
+            table.writer().write(after, upTo, rows);
+            status.getWrittenSegments().incrementAndGet();
+            status.getArchivedMessages().addAndGet(rows.size());
+
+            deleteRange(table, after, upTo);
+            after = upTo;
+        }
+    }
+
+    private <T> List<T> load(Table<T> table, long after, long upTo) {
+        List<T> rows = new ArrayList<>();
+        List<T> page;
+        long cursor = after;
+        do {
+            page = table.rows().apply(cursor, upTo, PageRequest.of(0, pageSize));
+            rows.addAll(page);
+            if (!page.isEmpty()) {
+                cursor = table.idOf().applyAsLong(page.get(page.size() - 1));
+            }
+        } while (page.size() == pageSize);
+        return rows;
+    }
+
+    // Deletes after < id <= upTo, each chunk in its own transaction
+    private <T> void deleteRange(Table<T> table, long after, long upTo) {
+        long from = after;
+        while (from < upTo) {
+            long start = from;
+            List<Long> boundary = table.ids().apply(start, upTo, PageRequest.of(deleteChunkSize - 1, 1));
+            long end = boundary.isEmpty() ? upTo : boundary.get(0);
+            transactionTemplate.executeWithoutResult(tx -> table.delete().apply(start, end));
+            from = end;
+        }
+    }
+
+    @FunctionalInterface
+    private interface IdQuery {
+        List<Long> apply(Long after, Long upTo, PageRequest page);
+    }
+
+    @FunctionalInterface
+    private interface RangeQuery<T> {
+        List<T> apply(Long after, Long upTo, PageRequest page);
+    }
+
+    @FunctionalInterface
+    private interface RangeDelete {
+        int apply(Long after, Long upTo);
+    }
+
+    @FunctionalInterface
+    private interface SegmentWriter<T> {
+        void write(long fromId, long toId, List<T> rows) throws IOException;
+    }
+
+    // One message table and where its archive lives
+    private record Table<T>(LongSupplier watermark, IdQuery ids, IdQuery newerIds, RangeQuery<T> rows,
+                            RangeDelete delete, SegmentWriter<T> writer, ToLongFunction<T> idOf) {
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,299 @@
+package com.chat_app.chat.service;
+
+import com.chat_app.chat.entity.ChatMessage;
+import com.chat_app.chat.entity.GroupMessage;
+import com.chat_app.chat.model.MessageSearchHit;
+import com.chat_app.chat.model.MessageSearchPage;
+import jakarta.annotation.PreDestroy;
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.standard.StandardAnalyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.FieldType;
+import org.apache.lucene.document.NumericDocValuesField;
+import org.apache.lucene.document.StoredField;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.index.IndexOptions;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.IndexableField;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.queryparser.simple.SimpleQueryParser;
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.ControlledRealTimeReopenThread;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.SearcherManager;
+import org.apache.lucene.search.Sort;
+import org.apache.lucene.search.SortField;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.search.TopFieldDocs;
+import org.apache.lucene.search.TotalHits;
+import org.apache.lucene.search.uhighlight.DefaultPassageFormatter;
+import org.apache.lucene.search.uhighlight.UnifiedHighlighter;
+import org.apache.lucene.store.ByteBuffersDirectory;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.FSDirectory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+// Embedded Lucene index over message text, kept up to date from the save paths.
+// Every document carries a scope (a private conversation, a group or the public room)
+// and searches are always filtered to one scope. Changes become searchable within
+// chat.search.refresh-interval-ms; the index is committed to disk periodically and on
+// shutdown, anything lost in a crash is recovered with a rebuild.
+@Service
+public class MessageSearchIndex {
+
+    private static final Logger log = LoggerFactory.getLogger(MessageSearchIndex.class);
+
+    private static final String UID = "uid";
+    private static final String SCOPE = "scope";
+    private static final String ID = "id";
+    private static final String SENDER = "sender";
+    private static final String RECEIVER = "receiver";
+    private static final String GROUP = "group";
+    private static final String TEXT = "text";
+    private static final String TIMESTAMP = "timestamp";
+
+    // Offsets in the postings let the highlighter skip re-analysing the stored text
+    private static final FieldType TEXT_TYPE = new FieldType();
+
+    static {
+        TEXT_TYPE.setTokenized(true);
+        TEXT_TYPE.setStored(true);
+        TEXT_TYPE.setIndexOptions(IndexOptions.DOCS_AND_FREQS_AND_POSITIONS_AND_OFFSETS);
+        TEXT_TYPE.freeze();
+    }
+
+    private static final Sort RELEVANCE_THEN_NEWEST = new Sort(SortField.FIELD_SCORE,
+            new SortField(ID, SortField.Type.LONG, true));
+
+    private final Analyzer analyzer = new StandardAnalyzer();
+    private final Directory directory;
+    private final IndexWriter writer;
+    private final SearcherManager searcherManager;
+    private final ControlledRealTimeReopenThread<IndexSearcher> reopenThread;
+    private final int maxResults;
+
+    public MessageSearchIndex(@Value("${chat.search.index-dir:search-index}") String indexDir,
+                              @Value("${chat.search.refresh-interval-ms:1000}") long refreshIntervalMs,
+                              @Value("${chat.search.max-results:1000}") int maxResults) throws IOException {
+        // An empty index-dir keeps the index in memory, e.g. for tests
+        this.directory = indexDir.isBlank() ? new ByteBuffersDirectory() : FSDirectory.open(Path.of(indexDir));
+        this.writer = new IndexWriter(directory, new IndexWriterConfig(analyzer)
+                .setOpenMode(IndexWriterConfig.OpenMode.CREATE_OR_APPEND));
+        this.searcherManager = new SearcherManager(writer, null);
+        double refreshSeconds = refreshIntervalMs / 1000.0;
+        this.reopenThread = new ControlledRealTimeReopenThread<>(writer, searcherManager,
+                refreshSeconds, Math.min(0.1, refreshSeconds));
+        this.reopenThread.setName("search-index-refresh");
+        this.reopenThread.setDaemon(true);
+        this.reopenThread.start();
+        this.maxResults = maxResults;
+    }
+
+    public static String conversationScope(String user1, String user2) {
+        return "conversation:" + ChatMessage.conversationKey(user1, user2);
+    }
+
+    public static String groupScope(Long groupId) {
+        return "group:" + groupId;
+    }
+
+    // Private and public messages, called once they have ids
+    public void indexChatMessages(Collection<ChatMessage> messages) {
+        try {
+            for (ChatMessage message : messages) {
+                if (message.getId() == null || message.getMessage() == null) {
+                    continue;
+                }
+                String scope = message.getReceiverName() != null && message.getSenderName() != null
+                        ? conversationScope(message.getSenderName(), message.getReceiverName())
+                        : "public";
+                Document document = document("chat:" + message.getId(), scope, message.getId(),
+                        message.getSenderName(), message.getMessage(), message.getTimestamp());
+                if (message.getReceiverName() != null) {
+                    document.add(new StoredField(RECEIVER, message.getReceiverName()));
+                }
+                writer.updateDocument(new Term(UID, "chat:" + message.getId()), document);
+            }
+        } catch (IOException | RuntimeException e) {
+            // Search is derived data, a failed update must not fail the save; a rebuild repairs it
+            log.error("Indexing {} chat messages failed", messages.size(), e);
+        }
+    }
+
+    public void indexGroupMessages(Collection<GroupMessage> messages) {
+        try {
+            for (GroupMessage message : messages) {
+                if (message.getId() == null || message.getMessage() == null) {
+                    continue;
+                }
+                Long groupId = message.getGroup().getId();
+                Long timestamp = message.getTimestamp() != null
+                        ? message.getTimestamp().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli()
+                        : null;
+                Document document = document("group:" + message.getId(), groupScope(groupId), message.getId(),
+                        message.getSenderName(), message.getMessage(), timestamp);
+                document.add(new StoredField(GROUP, groupId));
+                writer.updateDocument(new Term(UID, "group:" + message.getId()), document);
+            }
+        } catch (IOException | RuntimeException e) {
+            log.error("Indexing {} group messages failed", messages.size(), e);
+        }
+    }
+
+    // Index once the surrounding transaction has committed, so rolled back rows never show up
+    public void indexGroupMessageAfterCommit(GroupMessage message) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            indexGroupMessages(List.of(message));
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                indexGroupMessages(List.of(message));
+            }
+        });
+    }
+
+    public void deleteGroup(Long groupId) {
+        try {
+            writer.deleteDocuments(new Term(SCOPE, groupScope(groupId)));
+        } catch (IOException e) {
+            log.error("Removing group {} from the search index failed", groupId, e);
+        }
+    }
+
+    public void deleteAll() throws IOException {
+        writer.deleteAll();
+    }
+
+    private static Document document(String uid, String scope, Long id, String sender, String text, Long timestamp) {
+        Document document = new Document();
+        document.add(new StringField(UID, uid, Field.Store.NO));
+        document.add(new StringField(SCOPE, scope, Field.Store.NO));
+        document.add(new StoredField(ID, id));
+        document.add(new NumericDocValuesField(ID, id));
+        if (sender != null) {
+            document.add(new StoredField(SENDER, sender));
+        }
+        document.add(new Field(TEXT, text, TEXT_TYPE));
+        if (timestamp != null) {
+            document.add(new StoredField(TIMESTAMP, timestamp));
+        }
+        return document;
+    }
+
+    // Best matches first, newest first among equals. The query uses the simple syntax:
+    // words must all match, "quoted phrases", prefix*, -exclusion and a|b alternatives.
+    public MessageSearchPage search(String scope, String queryText, int page, int size) {
+        SimpleQueryParser parser = new SimpleQueryParser(analyzer, TEXT);
+        parser.setDefaultOperator(BooleanClause.Occur.MUST);
+        Query textQuery = parser.parse(queryText);
+        Query query = new BooleanQuery.Builder()
+                .add(textQuery, BooleanClause.Occur.MUST)
+                .add(new TermQuery(new Term(SCOPE, scope)), BooleanClause.Occur.FILTER)
+                .build();
+
+        // Offset paging, bounded so deep pages cannot make a search arbitrarily expensive.
+        // Computed in long, a huge page number must not wrap around to a negative offset.
+        long offset = (long) page * size;
+        int to = (int) Math.min(offset + size, maxResults);
+        if (offset >= to) {
+            return new MessageSearchPage(queryText, page, size, 0, true, List.of());
+        }
+        int from = (int) offset;
+
+        IndexSearcher searcher = null;
+        try {
+            searcher = searcherManager.acquire();
+            TopFieldDocs topDocs = searcher.search(query, to, RELEVANCE_THEN_NEWEST, true);
+            ScoreDoc[] scoreDocs = topDocs.scoreDocs;
+            int end = Math.min(to, scoreDocs.length);
+            if (from >= end) {
+                return new MessageSearchPage(queryText, page, size, topDocs.totalHits.value,
+                        topDocs.totalHits.relation == TotalHits.Relation.EQUAL_TO, List.of());
+            }
+
+            int[] docIds = new int[end - from];
+            for (int i = from; i < end; i++) {
+                docIds[i - from] = scoreDocs[i].doc;
+            }
+            UnifiedHighlighter highlighter = UnifiedHighlighter.builder(searcher, analyzer)
+                    .withFormatter(new DefaultPassageFormatter("<mark>", "</mark>", "… ", true))
+                    .build();
+            Map<String, String[]> highlights = highlighter.highlightFields(
+                    new String[]{TEXT}, textQuery, docIds, new int[]{1});
+
+            List<MessageSearchHit> hits = new ArrayList<>(docIds.length);
+            for (int i = 0; i < docIds.length; i++) {
+                Document document = searcher.storedFields().document(docIds[i]);
+                IndexableField group = document.getField(GROUP);
+                IndexableField timestamp = document.getField(TIMESTAMP);
+                hits.add(new MessageSearchHit(
+                        document.getField(ID).numericValue().longValue(),
+                        document.get(SENDER),
+                        document.get(RECEIVER),
+                        group != null ? group.numericValue().longValue() : null,
+                        document.get(TEXT),
+                        highlights.get(TEXT)[i],
+                        timestamp != null ? timestamp.numericValue().longValue() : null));
+            }
+            return new MessageSearchPage(queryText, page, size, topDocs.totalHits.value,
+                    topDocs.totalHits.relation == TotalHits.Relation.EQUAL_TO, hits);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            release(searcher);
+        }
+    }
+
+    private void release(IndexSearcher searcher) {
+        if (searcher == null) {
+            return;
+        }
+        try {
+            searcherManager.release(searcher);
+        } catch (IOException e) {
+            log.warn("Releasing index searcher failed", e);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${chat.search.commit-interval-ms:60000}")
+    public void commit() {
+        try {
+            if (writer.isOpen() && writer.hasUncommittedChanges()) {
+                writer.commit();
+            }
+        } catch (IOException e) {
+            log.error("Committing the search index failed", e);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() throws IOException {
+        reopenThread.close();
+        searcherManager.close();
+        commit();
+        writer.close();
+        directory.close();
+    }
+}
@@ -0,0 +1,191 @@
+package com.chat_app.chat.service;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+// Timers for STOMP message handling, repository saves and broker publishes, plus
+// session/subscription gauges. While a @MessageMapping method runs, the time it spends
+// in the DB and in the broker is collected per thread, so a slow message is tagged with
+// the phase that made it slow (slow_path=db|broker|handler, none below the threshold).
+@Component
+public class MessagingMetrics {
+
+    // Beyond this many distinct destinations new ones are reported as "other"
+    private static final int MAX_DESTINATION_TAGS = 200;
+
+    private static final ThreadLocal<Phases> CURRENT = new ThreadLocal<>();
+
+    private static final class Phases {
+        long dbNanos;
+        long brokerNanos;
+    }
+
+    private final MeterRegistry meterRegistry;
+    private final long slowThresholdNanos;
+
+    private final Set<String> destinationTags = ConcurrentHashMap.newKeySet();
+    // sessionId -> (subscriptionId -> destination tag)
+    private final Map<String, Map<String, String>> sessionSubscriptions = new ConcurrentHashMap<>();
+    private final Map<String, AtomicInteger> subscriptionCounts = new ConcurrentHashMap<>();
+
+    public MessagingMetrics(MeterRegistry meterRegistry,
+                            @Value("${chat.metrics.slow-threshold-ms:100}") long slowThresholdMs) {
+        this.meterRegistry = meterRegistry;
+        this.slowThresholdNanos = TimeUnit.MILLISECONDS.toNanos(slowThresholdMs);
+        Gauge.builder("chat.websocket.sessions", sessionSubscriptions, Map::size)
+                .description("Connected STOMP sessions")
+                .register(meterRegistry);
+    }
+
+    // Handling of one inbound message, called around the @MessageMapping method
+    public void handlingStarted() {
+        CURRENT.set(new Phases());
+    }
+
+    public void handlingFinished(String destination, long startedNanos, Throwable error) {
+        long elapsed = System.nanoTime() - startedNanos;
+        Phases phases = CURRENT.get();
+        CURRENT.remove();
+
+        String slowPath = "none";
+        if (elapsed >= slowThresholdNanos && phases != null) {
+            long handlerNanos = elapsed - phases.dbNanos - phases.brokerNanos;
+            if (phases.dbNanos >= phases.brokerNanos && phases.dbNanos >= handlerNanos) {
+                slowPath = "db";
+            } else if (phases.brokerNanos >= handlerNanos) {
+                slowPath = "broker";
+            } else {
+                slowPath = "handler";
+            }
+        }
+        Timer.builder("chat.messaging.handle")
+                .description("End-to-end handling of an inbound STOMP message")
+                .tags("destination", destination, "outcome", error == null ? "success" : "error", "slow_path", slowPath)
+                .publishPercentileHistogram()
+                .register(meterRegistry)
+                .record(elapsed, TimeUnit.NANOSECONDS);
+    }
+
+    public <T> T recordSave(String repository, Supplier<T> save) {
+        long started = System.nanoTime();
+        try {
+            return save.get();
+        } finally {
+            long elapsed = System.nanoTime() - started;
+            Phases phases = CURRENT.get();
+            if (phases != null) {
+                phases.dbNanos += elapsed;
+            }
+            Timer.builder("chat.persistence.save")
+                    .description("Repository save time")
+                    .tag("repository", repository)
+                    .publishPercentileHistogram()
+                    .register(meterRegistry)
+                    .record(elapsed, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    public void recordPublish(String destination, long elapsedNanos) {
+        Phases phases = CURRENT.get();
+        if (phases != null) {
+            phases.brokerNanos += elapsedNanos;
+        }
+        Timer.builder("chat.broker.publish")
+                .description("Time the broker took to take a message and fan it out")
+                .tag("destination", destinationTag(destination))
+                .publishPercentileHistogram()
+                .register(meterRegistry)
+                .record(elapsedNanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void sessionConnected(String sessionId) {
+        sessionSubscriptions.putIfAbsent(sessionId, new ConcurrentHashMap<>());
+    }
+
+    public void sessionDisconnected(String sessionId) {
+        Map<String, String> subscriptions = sessionSubscriptions.remove(sessionId);
+        if (subscriptions != null) {
+            subscriptions.values().forEach(tag -> subscriptionCount(tag).decrementAndGet());
+        }
+    }
+
+    public void subscribed(String sessionId, String subscriptionId, String destination) {
+        Map<String, String> subscriptions = sessionSubscriptions.get(sessionId);
+        if (subscriptions == null || subscriptionId == null) {
+            return;
+        }
+        String tag = destinationTag(destination);
+        if (subscriptions.putIfAbsent(subscriptionId, tag) == null) {
+            subscriptionCount(tag).incrementAndGet();
+        }
+    }
+
+    public void unsubscribed(String sessionId, String subscriptionId) {
+        Map<String, String> subscriptions = sessionSubscriptions.get(sessionId);
+        if (subscriptions == null || subscriptionId == null) {
+            return;
+        }
+        String tag = subscriptions.remove(subscriptionId);
+        if (tag != null) {
+            subscriptionCount(tag).decrementAndGet();
+        }
+    }
+
+    private AtomicInteger subscriptionCount(String tag) {
+        return subscriptionCounts.computeIfAbsent(tag, key -> {
+            AtomicInteger count = new AtomicInteger();
+            Gauge.builder("chat.subscriptions", count, AtomicInteger::get)
+                    .description("Active subscriptions per destination")
+                    .tag("destination", key)
+                    .register(meterRegistry);
+            return count;
+        });
+    }
+
+    // Ids, user names and session suffixes are folded so tags stay bounded:
+    // /topic/group/42 -> /topic/group/{id}, /user/bob/private -> /user/{user}/private,
+    // /private-user1a2b -> /private
+    public String destinationTag(String destination) {
+        if (destination == null || destination.isEmpty()) {
+            return "none";
+        }
+        StringBuilder tag = new StringBuilder();
+        String[] segments = destination.split("/");
+        int kept = 0;
+        for (int i = 0; i < segments.length && kept < 3; i++) {
+            String segment = segments[i];
+            if (segment.isEmpty()) {
+                continue;
+            }
+            int userSuffix = segment.matches(".+-user[^-]+") ? segment.lastIndexOf("-user") : -1;
+            if (segment.chars().allMatch(Character::isDigit)) {
+                segment = "{id}";
+            } else if (kept == 1 && tag.toString().equals("/user")) {
+                segment = "{user}";
+            } else if (userSuffix > 0) {
+                segment = segment.substring(0, userSuffix);
+            }
+            tag.append('/').append(segment);
+            kept++;
+        }
+        String result = tag.toString();
+        if (destinationTags.contains(result)) {
+            return result;
+        }
+        if (destinationTags.size() >= MAX_DESTINATION_TAGS) {
+            return "other";
+        }
+        destinationTags.add(result);
+        return result;
+    }
+}
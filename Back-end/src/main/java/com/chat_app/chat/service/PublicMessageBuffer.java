@@ -0,0 +1,160 @@
+package com.chat_app.chat.service;
+
+import com.chat_app.chat.entity.ChatMessage;
+import com.chat_app.chat.repository.ChatMessageRepository;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Ring buffer with the most recent public-room messages, so joining the room
+// does not have to touch chat_message at all. The ring holds its own copies: the
+// message handed to add() belongs to the write-behind queue, whose thread sets its id.
+// A copy never changes once it is in the ring; when the writer reports a committed
+// message, its slot gets a new copy that carries the id.
+@Service
+public class PublicMessageBuffer {
+
+    private final ChatMessageRepository chatMessageRepository;
+    private final MessageArchive messageArchive;
+    private final ChatMessage[] ring;
+    private final int maxPageSize;
+
+    private int head;  // next slot to write
+    private int count;
+    // True while the buffer still holds every public message ever stored
+    private boolean complete;
+
+    public PublicMessageBuffer(ChatMessageRepository chatMessageRepository,
+                               MessageArchive messageArchive,
+                               @Value("${chat.public.buffer-size:500}") int bufferSize,
+                               @Value("${chat.public.max-page-size:500}") int maxPageSize) {
+        this.chatMessageRepository = chatMessageRepository;
+        this.messageArchive = messageArchive;
+        this.ring = new ChatMessage[Math.max(1, bufferSize)];
+        this.maxPageSize = maxPageSize;
+    }
+
+    // Warm up before the web server starts taking requests
+    @PostConstruct
+    public void warmUp() {
+        List<ChatMessage> latest = new ArrayList<>(
+                chatMessageRepository.findLatestPublic(PageRequest.of(0, ring.length)));
+        if (latest.size() < ring.length) {
+            latest.addAll(olderArchived(latest, Long.MAX_VALUE, ring.length - latest.size()));
+        }
+        Collections.reverse(latest);
+        synchronized (this) {
+            for (ChatMessage message : latest) {
+                append(message);
+            }
+            complete = latest.size() < ring.length;
+        }
+    }
+
+    // ChatMessageWriter adds each public message once it is numbered and before it is queued
+    public void add(ChatMessage message) {
+        // Not the id: the writer thread may be setting it right now
+        ChatMessage copy = copyOf(message, null);
+        synchronized (this) {
+            if (count == ring.length) {
+                complete = false;
+            }
+            append(copy);
+        }
+    }
+
+    // Committed messages, from the writer thread; public ones still in the ring get their id
+    public void persisted(List<ChatMessage> messages) {
+        Map<Long, Long> idsBySeq = new HashMap<>();
+        for (ChatMessage message : messages) {
+            if (message.getConversationKey() == null && message.getSeq() != null) {
+                idsBySeq.put(message.getSeq(), message.getId());
+            }
+        }
+        if (idsBySeq.isEmpty()) {
+            return;
+        }
+        synchronized (this) {
+            for (int i = 1; i <= count; i++) {
+                int slot = Math.floorMod(head - i, ring.length);
+                ChatMessage buffered = ring[slot];
+                Long id = buffered.getId() == null ? idsBySeq.get(buffered.getSeq()) : null;
+                if (id != null) {
+                    ring[slot] = copyOf(buffered, id);
+                }
+            }
+        }
+    }
+
+    private static ChatMessage copyOf(ChatMessage message, Long id) {
+        ChatMessage copy = new ChatMessage(message.getSenderName(), message.getReceiverName(), message.getMessage(),
+                message.getMedia(), message.getMediaType(), message.getStatus(), message.getTimestamp());
+        copy.setConversationKey(message.getConversationKey());
+        copy.setSeq(message.getSeq());
+        copy.setId(id);
+        return copy;
+    }
+
+    private void append(ChatMessage message) {
+        ring[head] = message;
+        head = (head + 1) % ring.length;
+        if (count < ring.length) {
+            count++;
+        }
+    }
+
+    // Public messages older than "before" (or the newest ones without a cursor), oldest
+    // first. Only the part of the page that is older than the buffer goes to the database.
+    public List<ChatMessage> getPage(Long before, Integer limit) {
+        int size = limit == null || limit <= 0 ? ring.length : Math.min(limit, maxPageSize);
+
+        List<ChatMessage> page = new ArrayList<>(size);
+        Long oldestBufferedId = null;
+        boolean bufferComplete;
+        synchronized (this) {
+            // Walk from newest to oldest
+            for (int i = 1; i <= count && page.size() < size; i++) {
+                ChatMessage message = ring[Math.floorMod(head - i, ring.length)];
+                Long id = message.getId();
+                if (id != null) {
+                    oldestBufferedId = id;
+                }
+                // Messages still waiting in the write-behind queue have no id yet
+                if (before == null || (id != null && id < before)) {
+                    page.add(message);
+                }
+            }
+            bufferComplete = complete;
+        }
+
+        if (page.size() < size && !bufferComplete) {
+            Long cursor = oldestBufferedId;
+            if (before != null && (cursor == null || before < cursor)) {
+                cursor = before;
+            }
+            if (cursor != null) {
+                List<ChatMessage> older = chatMessageRepository.findPublicBefore(cursor, PageRequest.of(0, size - page.size()));
+                page.addAll(older);
+                if (page.size() < size) {
+                    page.addAll(olderArchived(older, cursor, size - page.size()));
+                }
+            }
+        }
+
+        Collections.reverse(page);
+        return page;
+    }
+
+    // Archived public messages before the oldest of the newest-first list, or before cursor
+    private List<ChatMessage> olderArchived(List<ChatMessage> newestFirst, long cursor, int limit) {
+        long before = newestFirst.isEmpty() ? cursor : newestFirst.get(newestFirst.size() - 1).getId();
+        return messageArchive.chatBefore(ChatMessageWriter.PUBLIC_SCOPE, before, limit);
+    }
+}
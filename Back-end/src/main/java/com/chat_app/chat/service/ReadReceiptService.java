@@ -0,0 +1,184 @@
+package com.chat_app.chat.service;
+
+import com.chat_app.chat.entity.ConversationSummary;
+import com.chat_app.chat.model.ReadReceipt;
+import com.chat_app.chat.model.ReadUpdate;
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.EntityNotFoundException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Read receipts are in-memory watermarks: a receipt only raises the reader's seq for the
+// conversation. Once per tick the raised watermarks of a conversation go out as one
+// update, and every flush-interval-ms all of them are written to the conversation
+// summaries in one transaction, so the database sees at most one write per conversation
+// and interval however often clients report reading. Watermarks are seqs rather than
+// ids because private messages only get their id once the write-behind persists them.
+@Service
+public class ReadReceiptService {
+
+    private static final Logger log = LoggerFactory.getLogger(ReadReceiptService.class);
+
+    private final SimpMessagingTemplate messagingTemplate;
+    private final ConversationInboxService inboxService;
+    private final GroupCache groupCache;
+
+    // Not written yet, by owner and thread key
+    private final ConcurrentHashMap<String, ConcurrentHashMap<String, Long>> unflushed = new ConcurrentHashMap<>();
+    // Taken out of unflushed by the flush that is writing them
+    private volatile Map<String, ConcurrentHashMap<String, Long>> flushing = Map.of();
+    // Not published yet, by where the update goes and then by reader
+    private final ConcurrentHashMap<Target, ConcurrentHashMap<String, Long>> unpublished = new ConcurrentHashMap<>();
+
+    public ReadReceiptService(SimpMessagingTemplate messagingTemplate,
+                              ConversationInboxService inboxService,
+                              GroupCache groupCache) {
+        this.messagingTemplate = messagingTemplate;
+        this.inboxService = inboxService;
+        this.groupCache = groupCache;
+    }
+
+    public static String userDestination(String username) {
+        return "/topic/receipts/user/" + username;
+    }
+
+    public static String groupDestination(Long groupId) {
+        return "/topic/receipts/group/" + groupId;
+    }
+
+    // Receipts without a seq, without exactly one of peer and group, or for a group the reader is not in, are ignored
+    public void onReceipt(ReadReceipt receipt) {
+        String reader = receipt.getReaderName();
+        if (reader == null || receipt.getSeq() == null
+                || (receipt.getPeerName() == null) == (receipt.getGroupId() == null)) {
+            return;
+        }
+        long seq = receipt.getSeq();
+        if (receipt.getGroupId() != null) {
+            if (!isMember(receipt.getGroupId(), reader)) {
+                return;
+            }
+            raise(unflushed, reader, ConversationSummary.groupThread(receipt.getGroupId()), seq);
+            raise(unpublished, new Target(null, receipt.getGroupId()), reader, seq);
+        } else {
+            raise(unflushed, reader, ConversationSummary.peerThread(receipt.getPeerName()), seq);
+            raise(unpublished, new Target(receipt.getPeerName(), null), reader, seq);
+        }
+    }
+
+    private boolean isMember(Long groupId, String username) {
+        try {
+            return groupCache.get(groupId).isMember(username);
+        } catch (EntityNotFoundException e) {
+            return false;
+        }
+    }
+
+    private static <K> void raise(ConcurrentHashMap<K, ConcurrentHashMap<String, Long>> watermarks,
+                                  K key, String name, long seq) {
+        watermarks.compute(key, (k, byName) -> {
+            if (byName == null) {
+                byName = new ConcurrentHashMap<>();
+            }
+            byName.merge(name, seq, Math::max);
+            return byName;
+        });
+    }
+
+    // How far the peer has read in their conversation with username
+    public Long getPeerReadSeq(String username, String peerName) {
+        String threadKey = ConversationSummary.peerThread(username);
+        Long stored = inboxService.getReadSeq(peerName, threadKey);
+        return max(stored, pending(peerName, threadKey));
+    }
+
+    // How far each member has read in a group
+    public Map<String, Long> getGroupReadSeqs(Long groupId) {
+        String threadKey = ConversationSummary.groupThread(groupId);
+        Map<String, Long> readSeqs = new HashMap<>(inboxService.getGroupReadSeqs(groupId));
+        for (Map<String, ConcurrentHashMap<String, Long>> watermarks : List.of(flushing, unflushed)) {
+            watermarks.forEach((owner, byThread) -> {
+                Long seq = byThread.get(threadKey);
+                if (seq != null) {
+                    readSeqs.merge(owner, seq, Math::max);
+                }
+            });
+        }
+        return readSeqs;
+    }
+
+    private Long pending(String owner, String threadKey) {
+        ConcurrentHashMap<String, Long> inFlush = flushing.get(owner);
+        ConcurrentHashMap<String, Long> waiting = unflushed.get(owner);
+        return max(inFlush != null ? inFlush.get(threadKey) : null,
+                waiting != null ? waiting.get(threadKey) : null);
+    }
+
+    private static Long max(Long a, Long b) {
+        if (a == null) {
+            return b;
+        }
+        return b == null ? a : Math.max(a, b);
+    }
+
+    @Scheduled(fixedDelayString = "${chat.receipts.tick-ms:250}")
+    public void publish() {
+        for (Target target : unpublished.keySet()) {
+            // Removed under the key's lock, so no receipt lands in the map once it is taken
+            ConcurrentHashMap<String, Long> readSeqs = unpublished.remove(target);
+            if (readSeqs == null) {
+                continue;
+            }
+            if (target.groupId() != null) {
+                messagingTemplate.convertAndSend(groupDestination(target.groupId()),
+                        new ReadUpdate(null, target.groupId(), readSeqs));
+            } else {
+                readSeqs.forEach((reader, seq) -> messagingTemplate.convertAndSend(
+                        userDestination(target.peerName()), new ReadUpdate(reader, null, Map.of(reader, seq))));
+            }
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${chat.receipts.flush-interval-ms:5000}")
+    public synchronized void flush() {
+        if (unflushed.isEmpty()) {
+            return;
+        }
+        // Published before taking anything out, so lookups meanwhile find each watermark in one of the two
+        ConcurrentHashMap<String, ConcurrentHashMap<String, Long>> batch = new ConcurrentHashMap<>();
+        flushing = batch;
+        for (String owner : unflushed.keySet()) {
+            ConcurrentHashMap<String, Long> byThread = unflushed.remove(owner);
+            if (byThread != null) {
+                batch.put(owner, byThread);
+            }
+        }
+        try {
+            inboxService.recordReads(new HashMap<>(batch));
+        } catch (RuntimeException e) {
+            // Kept for the next flush; a higher watermark that came in meanwhile still wins
+            log.warn("Writing {} read watermarks failed, retrying with the next flush", batch.size(), e);
+            batch.forEach((owner, byThread) -> byThread.forEach((threadKey, seq) ->
+                    raise(unflushed, owner, threadKey, seq)));
+        } finally {
+            flushing = Map.of();
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flush();
+    }
+
+    // The user a private receipt goes to, or a group
+    private record Target(String peerName, Long groupId) {
+    }
+}
@@ -0,0 +1,159 @@
+package com.chat_app.chat.service;
+
+import com.chat_app.chat.entity.ChatMessage;
+import com.chat_app.chat.entity.GroupMessage;
+import com.chat_app.chat.model.SearchRebuildStatus;
+import com.chat_app.chat.repository.ChatMessageRepository;
+import com.chat_app.chat.repository.GroupMessageRepository;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.function.ToLongFunction;
+
+// Rebuilds the search index from the message tables and the archive. Both tables are cut
+// into id ranges that are read and indexed concurrently, each range in keyset pages.
+// Messages saved while it runs are indexed by the normal save path, so nothing is missed.
+@Service
+public class SearchIndexRebuilder {
+
+    private static final Logger log = LoggerFactory.getLogger(SearchIndexRebuilder.class);
+    // More ranges than threads, so a dense range does not leave the other threads idle
+    private static final int RANGES_PER_THREAD = 8;
+
+    private final ChatMessageRepository chatMessageRepository;
+    private final GroupMessageRepository groupMessageRepository;
+    private final MessageSearchIndex searchIndex;
+    private final MessageArchive messageArchive;
+    private final int threads;
+    private final int pageSize;
+
+    private final ExecutorService coordinator = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "search-rebuild");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final ExecutorService workers;
+    private final AtomicReference<SearchRebuildStatus> current = new AtomicReference<>();
+
+    public SearchIndexRebuilder(ChatMessageRepository chatMessageRepository,
+                                GroupMessageRepository groupMessageRepository,
+                                MessageSearchIndex searchIndex,
+                                MessageArchive messageArchive,
+                                @Value("${chat.search.rebuild-threads:4}") int threads,
+                                @Value("${chat.search.rebuild-page-size:1000}") int pageSize) {
+        this.chatMessageRepository = chatMessageRepository;
+        this.groupMessageRepository = groupMessageRepository;
+        this.searchIndex = searchIndex;
+        this.messageArchive = messageArchive;
+        this.threads = Math.max(1, threads);
+        this.pageSize = pageSize;
+        AtomicInteger counter = new AtomicInteger();
+        this.workers = Executors.newFixedThreadPool(this.threads, runnable -> {
+            Thread thread = new Thread(runnable, "search-rebuild-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    // Starts a rebuild in the background; asking again while one runs returns that one
+    public SearchRebuildStatus startRebuild() {
+        SearchRebuildStatus status = new SearchRebuildStatus();
+        SearchRebuildStatus running = current.getAndUpdate(existing ->
+                existing != null && existing.getState() == SearchRebuildStatus.State.RUNNING ? existing : status);
+        if (running != null && running.getState() == SearchRebuildStatus.State.RUNNING) {
+            return running;
+        }
+        coordinator.execute(() -> run(status));
+        return status;
+    }
+
+    public SearchRebuildStatus getStatus() {
+        return current.get();
+    }
+
+    private void run(SearchRebuildStatus status) {
+        try {
+            // Searches see a partial index until the rebuild has caught up
+            searchIndex.deleteAll();
+
+            List<CompletableFuture<Void>> tasks = new ArrayList<>();
+            submitRanges(tasks, chatMessageRepository.findMinId(), chatMessageRepository.findMaxId(),
+                    chatMessageRepository::findInIdRange, ChatMessage::getId, searchIndex::indexChatMessages, status);
+            submitRanges(tasks, groupMessageRepository.findMinId(), groupMessageRepository.findMaxId(),
+                    groupMessageRepository::findInIdRange, GroupMessage::getId, searchIndex::indexGroupMessages, status);
+            // Archived messages are still searchable, one decompressed block at a time
+            tasks.add(CompletableFuture.runAsync(() -> messageArchive.forEachChatBlock(block -> {
+                searchIndex.indexChatMessages(block);
+                status.getIndexedMessages().addAndGet(block.size());
+            }), workers));
+            tasks.add(CompletableFuture.runAsync(() -> messageArchive.forEachGroupBlock(block -> {
+                searchIndex.indexGroupMessages(block);
+                status.getIndexedMessages().addAndGet(block.size());
+            }), workers));
+            CompletableFuture.allOf(tasks.toArray(CompletableFuture[]::new)).join();
+
+            searchIndex.commit();
+            status.setState(SearchRebuildStatus.State.COMPLETED);
+            log.info("Search index rebuilt from {} messages", status.getIndexedMessages().get());
+        } catch (IOException | RuntimeException e) {
+            log.error("Rebuilding the search index failed after {} messages", status.getIndexedMessages().get(), e);
+            status.setError(e.getMessage());
+            status.setState(SearchRebuildStatus.State.FAILED);
+        } finally {
+            status.setFinishedAt(System.currentTimeMillis());
+        }
+    }
+
+    private <T> void submitRanges(List<CompletableFuture<Void>> tasks, Long minId, Long maxId,
+                                  RangeQuery<T> query, ToLongFunction<T> idOf, Consumer<List<T>> indexer,
+                                  SearchRebuildStatus status) {
+        if (minId == null || maxId == null) {
+            return;
+        }
+        int ranges = threads * RANGES_PER_THREAD;
+        long span = Math.max(1, (maxId - minId + ranges) / ranges);
+        for (long after = minId - 1; after < maxId; after += span) {
+            long from = after;
+            long upTo = Math.min(maxId, after + span);
+            tasks.add(CompletableFuture.runAsync(() -> indexRange(from, upTo, query, idOf, indexer, status), workers));
+        }
+    }
+
+    private <T> void indexRange(long after, long upTo, RangeQuery<T> query, ToLongFunction<T> idOf,
+                                Consumer<List<T>> indexer, SearchRebuildStatus status) {
+        List<T> page;
+        do {
+            page = query.apply(after, upTo, PageRequest.of(0, pageSize));
+            if (page.isEmpty()) {
+                return;
+            }
+            indexer.accept(page);
+            status.getIndexedMessages().addAndGet(page.size());
+            after = idOf.applyAsLong(page.get(page.size() - 1));
+        } while (page.size() == pageSize);
+    }
+
+    @FunctionalInterface
+    private interface RangeQuery<T> {
+        List<T> apply(Long after, Long upTo, PageRequest page);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        coordinator.shutdownNow();
+        workers.shutdownNow();
+    }
+}
@@ -0,0 +1,156 @@
+package com.chat_app.chat.service;
+
+import com.chat_app.chat.entity.ChatMessage;
+import com.chat_app.chat.entity.GroupMessage;
+import com.chat_app.chat.model.CachedGroup;
+import com.chat_app.chat.model.GroupMessageDTO;
+import com.chat_app.chat.model.Message;
+import com.chat_app.chat.model.SyncRequest;
+import com.chat_app.chat.model.SyncResponse;
+import com.chat_app.chat.repository.ChatMessageRepository;
+import com.chat_app.chat.repository.GroupMessageRepository;
+import com.chat_app.chat.repository.GroupRepository;
+import jakarta.persistence.EntityNotFoundException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+
+// Reconnect catch-up: only the messages after the seqs a client has already seen.
+// Deliberately not one transaction: each conversation takes the writer's unpersisted
+// messages first and then queries the table with a fresh snapshot, so a message moving
+// from the queue to the table in between is found in one or the other.
+@Service
+public class SyncService {
+
+    private final ChatMessageRepository chatMessageRepository;
+    private final GroupMessageRepository groupMessageRepository;
+    private final GroupRepository groupRepository;
+    private final ChatMessageWriter chatMessageWriter;
+    private final MessageArchive messageArchive;
+    private final GroupCache groupCache;
+    private final int maxMessages;
+    private final int maxConversations;
+
+    public SyncService(ChatMessageRepository chatMessageRepository,
+                       GroupMessageRepository groupMessageRepository,
+                       GroupRepository groupRepository,
+                       ChatMessageWriter chatMessageWriter,
+                       MessageArchive messageArchive,
+                       GroupCache groupCache,
+                       @Value("${chat.sync.max-messages-per-conversation:200}") int maxMessages,
+                       @Value("${chat.sync.max-conversations:500}") int maxConversations) {
+        this.chatMessageRepository = chatMessageRepository;
+        this.groupMessageRepository = groupMessageRepository;
+        this.groupRepository = groupRepository;
+        this.chatMessageWriter = chatMessageWriter;
+        this.messageArchive = messageArchive;
+        this.groupCache = groupCache;
+        this.maxMessages = maxMessages;
+        this.maxConversations = maxConversations;
+    }
+
+    public boolean isTooLarge(SyncRequest request) {
+        return request.getConversations().size() + request.getGroups().size() > maxConversations;
+    }
+
+    public SyncResponse sync(SyncRequest request) {
+        List<String> truncated = new ArrayList<>();
+
+        Map<String, List<Message>> conversations = new LinkedHashMap<>();
+        request.getConversations().forEach((peer, lastSeen) -> {
+            String key = ChatMessage.conversationKey(request.getUsername(), peer);
+            long after = lastSeen != null ? lastSeen : 0L;
+            List<Message> missing = missingChatMessages(key, after,
+                    page -> chatMessageRepository.findInConversationAfterSeq(key, after, page),
+                    "user:" + peer, truncated);
+            if (!missing.isEmpty()) {
+                conversations.put(peer, missing);
+            }
+        });
+
+        Map<Long, List<GroupMessageDTO>> groups = new LinkedHashMap<>();
+        request.getGroups().forEach((groupId, lastSeen) -> {
+            CachedGroup group;
+            try {
+                group = groupCache.get(groupId);
+            } catch (EntityNotFoundException e) {
+                return; // deleted meanwhile, nothing to catch up on
+            }
+            long after = lastSeen != null ? lastSeen : 0L;
+            List<GroupMessage> messages = groupMessageRepository.findInGroupAfterSeq(groupId,
+                    after, PageRequest.of(0, maxMessages + 1));
+            if (archivedGap(messages.isEmpty() ? null : messages.get(0).getSeq(), after,
+                    () -> Objects.requireNonNullElse(groupRepository.findLastSeq(groupId), 0L))) {
+                List<GroupMessage> merged = new ArrayList<>(messageArchive.groupAfterSeq(groupId, after, maxMessages + 1));
+                long lastArchived = merged.isEmpty() ? after : merged.get(merged.size() - 1).getSeq();
+                messages.stream().filter(message -> message.getSeq() > lastArchived).forEach(merged::add);
+                messages = merged;
+            }
+            if (messages.size() > maxMessages) {
+                messages = messages.subList(0, maxMessages);
+                truncated.add("group:" + groupId);
+            }
+            if (!messages.isEmpty()) {
+                groups.put(groupId, messages.stream()
+                        .map(message -> new GroupMessageDTO(message, group.id(), group.name()))
+                        .toList());
+            }
+        });
+
+        List<Message> publicMessages = List.of();
+        if (request.getPublicSeq() != null) {
+            long after = request.getPublicSeq();
+            publicMessages = missingChatMessages(ChatMessageWriter.PUBLIC_SCOPE, after,
+                    page -> chatMessageRepository.findPublicAfterSeq(after, page), "public", truncated);
+        }
+
+        return new SyncResponse(conversations, groups, publicMessages, truncated);
+    }
+
+    // Only a client that was away for longer than the archive age misses messages that
+    // have left the table: the first one found is not the next seq, or none is found
+    // although the scope has moved on
+    private static boolean archivedGap(Long firstFound, long after, LongSupplier lastSeq) {
+        if (firstFound != null) {
+            return firstFound > after + 1;
+        }
+        return after < lastSeq.getAsLong();
+    }
+
+    private List<Message> missingChatMessages(String scope, long after,
+                                              Function<PageRequest, List<ChatMessage>> query,
+                                              String name, List<String> truncated) {
+        TreeMap<Long, ChatMessage> bySeq = new TreeMap<>();
+        for (ChatMessage message : chatMessageWriter.unpersistedAfter(scope, after)) {
+            bySeq.put(message.getSeq(), message);
+        }
+        for (ChatMessage message : query.apply(PageRequest.of(0, maxMessages + 1))) {
+            bySeq.putIfAbsent(message.getSeq(), message);
+        }
+        if (archivedGap(bySeq.isEmpty() ? null : bySeq.firstKey(), after, () -> chatMessageWriter.lastSeq(scope))) {
+            for (ChatMessage message : messageArchive.chatAfterSeq(scope, after, maxMessages + 1)) {
+                bySeq.putIfAbsent(message.getSeq(), message);
+            }
+        }
+
+        List<Message> missing = new ArrayList<>(Math.min(bySeq.size(), maxMessages));
+        for (ChatMessage message : bySeq.values()) {
+            if (missing.size() == maxMessages) {
+                truncated.add(name);
+                break;
+            }
+            missing.add(new Message(message.getSenderName(), message.getReceiverName(), message.getMessage(),
+                    message.getMedia(), message.getStatus(), message.getMediaType(), message.getSeq()));
+        }
+        return missing;
+    }
+}
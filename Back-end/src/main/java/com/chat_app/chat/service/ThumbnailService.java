@@ -0,0 +1,166 @@
+package com.chat_app.chat.service;
+
+import com.chat_app.chat.model.ImageVariant;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Iterator;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Generates thumbnail/preview variants of uploaded images off the request thread.
+// Variants are best effort: when the pool is saturated the job is dropped and
+// clients keep getting the original.
+@Service
+public class ThumbnailService {
+
+    private static final Logger log = LoggerFactory.getLogger(ThumbnailService.class);
+
+    private final FileStorageService fileStorageService;
+    private final ThreadPoolExecutor executor;
+    private final long maxPixels;
+
+    public ThumbnailService(FileStorageService fileStorageService,
+                            @Value("${chat.thumbnails.threads:2}") int threads,
+                            @Value("${chat.thumbnails.queue-capacity:100}") int queueCapacity,
+                            @Value("${chat.thumbnails.max-pixels:50000000}") long maxPixels) {
+        this.fileStorageService = fileStorageService;
+        this.maxPixels = maxPixels;
+
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "thumbnail-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    public void submit(String handle, String contentType) {
+        if (contentType == null || !contentType.startsWith("image/")
+                || !fileStorageService.isContentAddressed(handle)) {
+            return;
+        }
+        try {
+            executor.execute(() -> generateVariants(handle));
+        } catch (RejectedExecutionException e) {
+            log.warn("Thumbnail queue full, skipping variants for {}", handle);
+        }
+    }
+
+    private void generateVariants(String handle) {
+        Path original = fileStorageService.resolve(handle);
+        if (original == null || !Files.isRegularFile(original)) {
+            return;
+        }
+        try {
+            // Deduplicated uploads already have their variants
+            boolean missing = false;
+            for (ImageVariant variant : ImageVariant.values()) {
+                missing |= fileStorageService.resolveVariant(handle, variant) == null;
+            }
+            if (!missing) {
+                return;
+            }
+
+            BufferedImage source = readDownsampled(original, ImageVariant.PREVIEW.getMaxSize());
+            if (source == null) {
+                return;
+            }
+            for (ImageVariant variant : ImageVariant.values()) {
+                if (fileStorageService.resolveVariant(handle, variant) == null) {
+                    writeVariant(handle, variant, source);
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            log.warn("Could not generate variants for {}", handle, e);
+        }
+    }
+
+    // Decode with source subsampling so a huge photo never lands on the heap at full size
+    private BufferedImage readDownsampled(Path original, int targetSize) throws IOException {
+        try (ImageInputStream input = ImageIO.createImageInputStream(original.toFile())) {
+            if (input == null) {
+                return null;
+            }
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(input);
+            if (!readers.hasNext()) {
+                return null;
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(input, true, true);
+                int width = reader.getWidth(0);
+                int height = reader.getHeight(0);
+                if ((long) width * height > maxPixels) {
+                    log.info("Skipping variants for {}x{} image {}", width, height, original.getFileName());
+                    return null;
+                }
+
+                ImageReadParam param = reader.getDefaultReadParam();
+                int step = Math.max(1, Math.max(width, height) / (targetSize * 2));
+                param.setSourceSubsampling(step, step, 0, 0);
+                return reader.read(0, param);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    private void writeVariant(String handle, ImageVariant variant, BufferedImage source) throws IOException {
+        boolean alpha = source.getColorModel().hasAlpha();
+        String format = alpha ? "png" : "jpg";
+        BufferedImage scaled = scale(source, variant.getMaxSize(), alpha);
+
+        Path target = fileStorageService.variantPath(handle, variant, format);
+        Path temp = Files.createTempFile(target.getParent(), target.getFileName().toString(), ".part");
+        try {
+            ImageIO.write(scaled, alpha ? "png" : "jpeg", temp.toFile());
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    private static BufferedImage scale(BufferedImage source, int maxSize, boolean alpha) {
+        double ratio = Math.min(1.0, (double) maxSize / Math.max(source.getWidth(), source.getHeight()));
+        int width = Math.max(1, (int) Math.round(source.getWidth() * ratio));
+        int height = Math.max(1, (int) Math.round(source.getHeight() * ratio));
+
+        BufferedImage scaled = new BufferedImage(width, height,
+                alpha ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = scaled.createGraphics();
+        try {
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            graphics.drawImage(source, 0, 0, width, height, null);
+        } finally {
+            graphics.dispose();
+        }
+        return scaled;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+}
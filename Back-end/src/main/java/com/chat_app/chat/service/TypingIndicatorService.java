@@ -0,0 +1,138 @@
+package com.chat_app.chat.service;
+
+import com.chat_app.chat.model.TypingEvent;
+import com.chat_app.chat.model.TypingUpdate;
+import jakarta.persistence.EntityNotFoundException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Typing indicators live in memory only. An event just stamps an expiry on the typer;
+// once per tick every conversation that saw events gets at most one update listing who
+// is typing, however many keystrokes arrived in between. Unchanged state is only resent
+// every ttl/2, so clients can expire an indicator whose "stopped" update they missed.
+@Service
+public class TypingIndicatorService {
+
+    private final SimpMessagingTemplate messagingTemplate;
+    private final GroupCache groupCache;
+    private final long ttlMs;
+
+    // Typers and when their indicator runs out, by where the update goes
+    private final ConcurrentHashMap<Target, ConcurrentHashMap<String, Long>> typing = new ConcurrentHashMap<>();
+    private final Set<Target> dirty = ConcurrentHashMap.newKeySet();
+    // What each destination was told last and when, only touched by the tick
+    private final Map<Target, Published> published = new HashMap<>();
+
+    public TypingIndicatorService(SimpMessagingTemplate messagingTemplate,
+                                  GroupCache groupCache,
+                                  @Value("${chat.typing.ttl-ms:5000}") long ttlMs) {
+        this.messagingTemplate = messagingTemplate;
+        this.groupCache = groupCache;
+        this.ttlMs = ttlMs;
+    }
+
+    public static String userDestination(String username) {
+        return "/topic/typing/user/" + username;
+    }
+
+    public static String groupDestination(Long groupId) {
+        return "/topic/typing/group/" + groupId;
+    }
+
+    // Events without exactly one of receiver and group, or for a group the sender is not in, are ignored
+    public void onEvent(TypingEvent event) {
+        String sender = event.getSenderName();
+        if (sender == null || (event.getReceiverName() == null) == (event.getGroupId() == null)) {
+            return;
+        }
+        Target target;
+        if (event.getGroupId() != null) {
+            if (!isMember(event.getGroupId(), sender)) {
+                return;
+            }
+            target = new Target(null, null, event.getGroupId());
+        } else {
+            target = new Target(event.getReceiverName(), sender, null);
+        }
+
+        if (event.isTyping()) {
+            long expiresAt = System.currentTimeMillis() + ttlMs;
+            typing.compute(target, (key, typers) -> {
+                if (typers == null) {
+                    typers = new ConcurrentHashMap<>();
+                }
+                typers.put(sender, expiresAt);
+                return typers;
+            });
+        } else {
+            typing.computeIfPresent(target, (key, typers) -> {
+                typers.remove(sender);
+                return typers.isEmpty() ? null : typers;
+            });
+        }
+        dirty.add(target);
+    }
+
+    private boolean isMember(Long groupId, String username) {
+        try {
+            return groupCache.get(groupId).isMember(username);
+        } catch (EntityNotFoundException e) {
+            return false;
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${chat.typing.tick-ms:250}")
+    public synchronized void publish() {
+        long now = System.currentTimeMillis();
+        // An indicator running out is a change as well
+        typing.forEach((target, typers) -> {
+            if (typers.values().removeIf(expiresAt -> expiresAt <= now)) {
+                dirty.add(target);
+            }
+        });
+
+        Iterator<Target> iterator = dirty.iterator();
+        while (iterator.hasNext()) {
+            Target target = iterator.next();
+            iterator.remove();
+            Set<String> current = new HashSet<>();
+            typing.computeIfPresent(target, (key, typers) -> {
+                current.addAll(typers.keySet());
+                return typers.isEmpty() ? null : typers;
+            });
+
+            Published last = published.get(target);
+            if (last == null ? current.isEmpty() : last.typing().equals(current) && now - last.at() < ttlMs / 2) {
+                continue;
+            }
+            if (current.isEmpty()) {
+                published.remove(target);
+            } else {
+                published.put(target, new Published(current, now));
+            }
+            if (target.groupId() != null) {
+                messagingTemplate.convertAndSend(groupDestination(target.groupId()),
+                        new TypingUpdate(null, target.groupId(), current, ttlMs));
+            } else {
+                messagingTemplate.convertAndSend(userDestination(target.receiverName()),
+                        new TypingUpdate(target.peerName(), null, current, ttlMs));
+            }
+        }
+    }
+
+    // A private conversation as seen by the receiver, or a group
+    private record Target(String receiverName, String peerName, Long groupId) {
+    }
+
+    private record Published(Set<String> typing, long at) {
+    }
+}
@@ -0,0 +1,83 @@
+package com.chat_app.chat.service;
+
+import com.chat_app.chat.entity.Users;
+import com.chat_app.chat.model.CachedUser;
+import com.chat_app.chat.repository.UserRepository;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.Optional;
+
+// Read-through cache of users by username for login, search and signup checks.
+// Misses are cached too (for a shorter time), so probing unknown names stays off the DB.
+@Service
+public class UserCache {
+
+    private final UserRepository userRepository;
+    private final LoadingCache<String, Optional<CachedUser>> cache;
+
+    public UserCache(UserRepository userRepository,
+                     @Value("${chat.users.cache-size:100000}") long maximumSize,
+                     @Value("${chat.users.cache-ttl-minutes:10}") long ttlMinutes,
+                     @Value("${chat.users.negative-ttl-seconds:30}") long negativeTtlSeconds) {
+        this.userRepository = userRepository;
+        long ttl = Duration.ofMinutes(ttlMinutes).toNanos();
+        long negativeTtl = Duration.ofSeconds(negativeTtlSeconds).toNanos();
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfter(new Expiry<String, Optional<CachedUser>>() {
+                    @Override
+                    public long expireAfterCreate(String username, Optional<CachedUser> user, long currentTime) {
+                        return user.isPresent() ? ttl : negativeTtl;
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(String username, Optional<CachedUser> user,
+                                                  long currentTime, long currentDuration) {
+                        return expireAfterCreate(username, user, currentTime);
+                    }
+
+                    @Override
+                    public long expireAfterRead(String username, Optional<CachedUser> user,
+                                                long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .build(this::load);
+    }
+
+    public Optional<CachedUser> get(String username) {
+        if (username == null) {
+            return Optional.empty();
+        }
+        return cache.get(username);
+    }
+
+    private Optional<CachedUser> load(String username) {
+        Users user = userRepository.findByUsername(username);
+        if (user == null) {
+            return Optional.empty();
+        }
+        return Optional.of(new CachedUser(user.getId(), user.getUsername(), user.getName(),
+                user.getEmail(), user.getPassword()));
+    }
+
+    // Call after a user is created or changed; evicts now and again after commit
+    public void invalidate(String username) {
+        cache.invalidate(username);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    cache.invalidate(username);
+                }
+            });
+        }
+    }
+}
@@ -1,40 +1,97 @@
 package com.chat_app.chat.service;
 
+import com.chat_app.chat.model.PresenceDelta;
+import com.chat_app.chat.model.PresenceSnapshot;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
 import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 
 @Service
 public class UserPresenceService {
-    private final Set<String> onlineUsers = ConcurrentHashMap.newKeySet();
+    // Open sessions per user, so closing one tab does not take the user offline
+    private final ConcurrentHashMap<String, Set<String>> userSessions = new ConcurrentHashMap<>();
+    // Users whose presence may have changed since the last tick
+    private final Set<String> dirtyUsers = ConcurrentHashMap.newKeySet();
+    // What subscribers have been told so far, only touched under the lock
+    private final Set<String> publishedUsers = new HashSet<>();
+    private long version;
+
     private final SimpMessagingTemplate messagingTemplate;
 
-    public UserPresenceService(SimpMessagingTemplate messagingTemplate) {
+    public UserPresenceService(SimpMessagingTemplate messagingTemplate, MeterRegistry meterRegistry) {
         this.messagingTemplate = messagingTemplate;
+        Gauge.builder("chat.presence.online-users", userSessions, Map::size)
+                .description("Users with at least one open session")
+                .register(meterRegistry);
     }
 
-    public void userConnected(String username) {
-        onlineUsers.add(username);
-        broadcastOnlineUsers();
+    public void userConnected(String username, String sessionId) {
+        // Added under the key's lock, a concurrent disconnect cannot drop the set in between
+        userSessions.compute(username, (key, sessions) -> {
+            if (sessions == null) {
+                sessions = ConcurrentHashMap.newKeySet();
+            }
+            sessions.add(sessionId);
+            return sessions;
+        });
+        dirtyUsers.add(username);
     }
 
-    public void userDisconnected(String username) {
-        onlineUsers.remove(username);
-        broadcastOnlineUsers();
+    public void userDisconnected(String username, String sessionId) {
+        // Disconnect events can be delivered more than once per session, removal is idempotent
+        userSessions.computeIfPresent(username, (key, sessions) -> {
+            sessions.remove(sessionId);
+            return sessions.isEmpty() ? null : sessions;
+        });
+        dirtyUsers.add(username);
     }
 
     public Set<String> getOnlineUsers() {
-        return new HashSet<>(onlineUsers);
+        return new HashSet<>(userSessions.keySet());
     }
 
     public boolean isUserOnline(String username) {
-        return onlineUsers.contains(username);
+        return userSessions.containsKey(username);
+    }
+
+    public synchronized PresenceSnapshot getSnapshot() {
+        return new PresenceSnapshot(version, new HashSet<>(publishedUsers));
     }
 
-    private void broadcastOnlineUsers() {
-        messagingTemplate.convertAndSend("/topic/online-users", onlineUsers);
+    // Coalesce everything that happened during the tick into one joined/left delta,
+    // a user who reconnects within the tick produces no traffic at all
+    @Scheduled(fixedDelayString = "${chat.presence.tick-ms:500}")
+    public synchronized void publishDelta() {
+        if (dirtyUsers.isEmpty()) {
+            return;
+        }
+
+        Set<String> joined = new HashSet<>();
+        Set<String> left = new HashSet<>();
+        Iterator<String> iterator = dirtyUsers.iterator();
+        while (iterator.hasNext()) {
+            String username = iterator.next();
+            iterator.remove();
+            boolean online = userSessions.containsKey(username);
+            if (online && publishedUsers.add(username)) {
+                joined.add(username);
+            } else if (!online && publishedUsers.remove(username)) {
+                left.add(username);
+            }
+        }
+
+        if (joined.isEmpty() && left.isEmpty()) {
+            return;
+        }
+        version++;
+        messagingTemplate.convertAndSend("/topic/online-users", new PresenceDelta(version, joined, left));
     }
 }
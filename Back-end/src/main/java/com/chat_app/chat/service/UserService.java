@@ -1,6 +1,7 @@
 package com.chat_app.chat.service;
 
 import com.chat_app.chat.entity.Users;
+import com.chat_app.chat.model.CachedUser;
 import com.chat_app.chat.repository.UserRepository;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
@@ -11,9 +12,12 @@ public class UserService {
     @Autowired
     private UserRepository userRepository;
 
+    @Autowired
+    private UserCache userCache;
+
     public Users signUpUser(String username, String name, String email, String password) {
         // Check if the username or email is already taken
-        if (userRepository.findByUsername(username) != null) {
+        if (userCache.get(username).isPresent()) {
             throw new RuntimeException("Username already exists");
         }
         if (userRepository.findByEmail(email) != null) {
@@ -23,11 +27,13 @@ public class UserService {
         // Create a new user object
         Users newUser = new Users(username, name, email, password);
 
-        // Save the user object
-        return userRepository.save(newUser);
+        // Save the user object, the cached miss for this name is stale now
+        Users saved = userRepository.save(newUser);
+        userCache.invalidate(username);
+        return saved;
     }
 
-    public Users findByUsername(String username) {
-        return userRepository.findByUsername(username);
+    public CachedUser findByUsername(String username) {
+        return userCache.get(username).orElse(null);
     }
 }
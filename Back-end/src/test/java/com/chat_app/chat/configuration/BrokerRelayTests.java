@@ -0,0 +1,193 @@
+package com.chat_app.chat.configuration;
+
+import com.chat_app.chat.entity.Users;
+import com.chat_app.chat.model.Message;
+import com.chat_app.chat.model.Status;
+import com.chat_app.chat.repository.UserRepository;
+import org.apache.activemq.artemis.core.config.impl.ConfigurationImpl;
+import org.apache.activemq.artemis.core.server.embedded.EmbeddedActiveMQ;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.context.ApplicationContext;
+import org.springframework.http.HttpHeaders;
+import org.springframework.messaging.converter.MappingJackson2MessageConverter;
+import org.springframework.messaging.simp.stomp.StompBrokerRelayMessageHandler;
+import org.springframework.messaging.simp.stomp.StompFrameHandler;
+import org.springframework.messaging.simp.stomp.StompHeaders;
+import org.springframework.messaging.simp.stomp.StompSession;
+import org.springframework.messaging.simp.stomp.StompSessionHandlerAdapter;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.web.socket.WebSocketHttpHeaders;
+import org.springframework.web.socket.client.standard.StandardWebSocketClient;
+import org.springframework.web.socket.messaging.WebSocketStompClient;
+import org.springframework.web.socket.sockjs.client.SockJsClient;
+import org.springframework.web.socket.sockjs.client.WebSocketTransport;
+
+import java.lang.reflect.Type;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Runs the app in clustered mode against an in-process Artemis speaking STOMP
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = "chat.broker.mode=relay")
+class BrokerRelayTests {
+
+    private static EmbeddedActiveMQ broker;
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private ApplicationContext context;
+    @Autowired
+    private UserRepository userRepository;
+
+    private ThreadPoolTaskScheduler scheduler;
+
+    @DynamicPropertySource
+    static void relayProperties(DynamicPropertyRegistry registry) throws Exception {
+        int stompPort;
+        try (ServerSocket socket = new ServerSocket(0)) {
+            stompPort = socket.getLocalPort();
+        }
+        broker = new EmbeddedActiveMQ().setConfiguration(new ConfigurationImpl()
+                .setPersistenceEnabled(false)
+                .setSecurityEnabled(false)
+                .addAcceptorConfiguration("stomp", "tcp://localhost:" + stompPort + "?protocols=STOMP"));
+        broker.start();
+        registry.add("chat.broker.relay.port", () -> stompPort);
+    }
+
+    @AfterAll
+    static void stopBroker() throws Exception {
+        broker.stop();
+    }
+
+    @BeforeEach
+    void startScheduler() {
+        scheduler = new ThreadPoolTaskScheduler();
+        scheduler.initialize();
+    }
+
+    @AfterEach
+    void stopScheduler() {
+        scheduler.shutdown();
+    }
+
+    @Test
+    void publicMessagesAreFannedOutThroughTheRelay() throws Exception {
+        awaitRelay();
+        StompSession session = connect(null);
+
+        BlockingQueue<Message> received = subscribe(session, "/chatroom/public");
+        session.send("/app/message", new Message("alice", null, "hello cluster", null, Status.MESSAGE, null));
+
+        Message message = received.poll(10, TimeUnit.SECONDS);
+        assertNotNull(message);
+        assertEquals("alice", message.getSenderName());
+        assertEquals("hello cluster", message.getMessage());
+        session.disconnect();
+    }
+
+    @Test
+    void privateMessagesReachTheLoggedInReceiverThroughTheRelay() throws Exception {
+        awaitRelay();
+        StompSession carol = connect(login("relay-carol"));
+        StompSession dave = connect(login("relay-dave"));
+
+        // Resolved to /private-user{sessionId}, which only the broker can deliver
+        BlockingQueue<Message> toDave = subscribe(dave, "/user/private");
+        BlockingQueue<Message> toCarol = subscribe(carol, "/user/private");
+        carol.send("/app/private-message", new Message("relay-carol", "relay-dave", "psst", null, Status.MESSAGE, null));
+
+        Message message = toDave.poll(10, TimeUnit.SECONDS);
+        assertNotNull(message, "private message was not delivered");
+        assertEquals("relay-carol", message.getSenderName());
+        assertEquals("psst", message.getMessage());
+        assertNull(toCarol.poll(500, TimeUnit.MILLISECONDS));
+        assertTrue(Arrays.stream(broker.getActiveMQServer().getActiveMQServerControl().getAddressNames())
+                        .anyMatch(address -> address.startsWith("/private-user")),
+                "no user destination on the broker");
+        carol.disconnect();
+        dave.disconnect();
+    }
+
+    private void awaitRelay() throws InterruptedException {
+        StompBrokerRelayMessageHandler relay = assertInstanceOf(StompBrokerRelayMessageHandler.class,
+                context.getBean("stompBrokerRelayMessageHandler"));
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (!relay.isBrokerAvailable() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(100);
+        }
+        assertTrue(relay.isBrokerAvailable(), "relay never connected to the embedded broker");
+    }
+
+    // Signs a user up and logs in, returning the session cookie
+    private String login(String username) throws Exception {
+        userRepository.save(new Users(username, username, username + "@example.com", "secret"));
+        HttpResponse<String> response = HttpClient.newHttpClient().send(HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:" + port + "/api/users/login"))
+                .header(HttpHeaders.CONTENT_TYPE, "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(
+                        "{\"username\":\"" + username + "\",\"password\":\"secret\"}"))
+                .build(), HttpResponse.BodyHandlers.ofString());
+        assertEquals(200, response.statusCode(), response.body());
+        return response.headers().firstValue(HttpHeaders.SET_COOKIE).orElseThrow().split(";", 2)[0];
+    }
+
+    private StompSession connect(String cookie) throws Exception {
+        WebSocketStompClient client = new WebSocketStompClient(
+                new SockJsClient(List.of(new WebSocketTransport(new StandardWebSocketClient()))));
+        client.setMessageConverter(new MappingJackson2MessageConverter());
+        client.setTaskScheduler(scheduler);
+        WebSocketHttpHeaders headers = new WebSocketHttpHeaders();
+        if (cookie != null) {
+            headers.add(HttpHeaders.COOKIE, cookie);
+        }
+        StompSession session = client.connectAsync("ws://localhost:" + port + "/ws", headers,
+                new StompSessionHandlerAdapter() {
+                }).get(10, TimeUnit.SECONDS);
+        session.setAutoReceipt(true);
+        return session;
+    }
+
+    private static BlockingQueue<Message> subscribe(StompSession session, String destination) throws InterruptedException {
+        BlockingQueue<Message> received = new LinkedBlockingQueue<>();
+        CountDownLatch subscribed = new CountDownLatch(1);
+        session.subscribe(destination, new StompFrameHandler() {
+            @Override
+            public Type getPayloadType(StompHeaders headers) {
+                return Message.class;
+            }
+
+            @Override
+            public void handleFrame(StompHeaders headers, Object payload) {
+                received.add((Message) payload);
+            }
+        }).addReceiptTask(subscribed::countDown);
+        assertTrue(subscribed.await(10, TimeUnit.SECONDS), "subscription to " + destination + " was not confirmed");
+        return received;
+    }
+}
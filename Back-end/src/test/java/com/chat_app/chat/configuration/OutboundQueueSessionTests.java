@@ -0,0 +1,279 @@
+package com.chat_app.chat.configuration;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketExtension;
+import org.springframework.web.socket.WebSocketMessage;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.security.Principal;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class OutboundQueueSessionTests {
+
+    private final List<OutboundQueueRegistry> registries = new ArrayList<>();
+
+    @AfterEach
+    void shutdown() {
+        registries.forEach(OutboundQueueRegistry::shutdown);
+    }
+
+    @Test
+    void dropOldestOnlyDropsNonCriticalFrames() throws Exception {
+        BlockingSession delegate = new BlockingSession();
+        OutboundQueueSession session = blockedSession(OutboundQueueSession.OverflowPolicy.DROP_OLDEST, delegate);
+
+        session.sendMessage(frame("/topic/typing/user/amy", "typing-1"));
+        session.sendMessage(frame("/topic/group/1", "a"));
+        session.sendMessage(frame("/topic/typing/user/amy", "typing-2"));
+        // Full: each newcomer pushes out the oldest non-critical frame
+        session.sendMessage(frame("/topic/group/1", "b"));
+        session.sendMessage(frame("/topic/group/1", "c"));
+        // Nothing non-critical is left to drop, so a non-critical newcomer is dropped itself
+        session.sendMessage(frame("/topic/typing/user/amy", "typing-3"));
+
+        delegate.release();
+        assertEquals(List.of("first", "a", "b", "c"), delegate.awaitBodies(4));
+        assertNull(delegate.closeStatus);
+    }
+
+    @Test
+    void coalesceReplacesAnOlderFrameForTheSameDestination() throws Exception {
+        BlockingSession delegate = new BlockingSession();
+        OutboundQueueSession session = blockedSession(OutboundQueueSession.OverflowPolicy.COALESCE, delegate);
+
+        session.sendMessage(frame("/topic/typing/user/amy", "typing-1"));
+        session.sendMessage(frame("/topic/online-users", "presence-1"));
+        session.sendMessage(frame("/topic/group/1", "a"));
+        // Supersedes typing-1; presence-1 is older but for another destination and stays
+        session.sendMessage(frame("/topic/typing/user/amy", "typing-2"));
+
+        delegate.release();
+        assertEquals(List.of("first", "presence-1", "a", "typing-2"), delegate.awaitBodies(4));
+        assertNull(delegate.closeStatus);
+    }
+
+    @Test
+    void disconnectPolicyClosesAFullSession() throws Exception {
+        BlockingSession delegate = new BlockingSession();
+        OutboundQueueSession session = blockedSession(OutboundQueueSession.OverflowPolicy.DISCONNECT, delegate);
+
+        for (int i = 0; i < 3; i++) {
+            session.sendMessage(frame("/topic/typing/user/amy", "typing-" + i));
+        }
+        session.sendMessage(frame("/topic/typing/user/amy", "one too many"));
+
+        assertEquals(CloseStatus.SESSION_NOT_RELIABLE, delegate.closeStatus);
+        assertEquals(0, session.getQueueDepth());
+        // Nothing goes out once the session is evicted
+        session.sendMessage(frame("/topic/group/1", "after"));
+        delegate.release();
+        assertEquals(List.of(), delegate.awaitBodies(0));
+    }
+
+    @Test
+    void criticalFrameThatDoesNotFitClosesTheSession() throws Exception {
+        BlockingSession delegate = new BlockingSession();
+        OutboundQueueSession session = blockedSession(OutboundQueueSession.OverflowPolicy.DROP_OLDEST, delegate);
+
+        for (int i = 0; i < 3; i++) {
+            session.sendMessage(frame("/topic/group/1", "m" + i));
+        }
+        session.sendMessage(frame("/topic/group/1", "one too many"));
+
+        assertEquals(CloseStatus.SESSION_NOT_RELIABLE, delegate.closeStatus);
+        assertEquals(0, session.getQueueDepth());
+    }
+
+    @Test
+    void queuedErrorFrameIsStillSentOnClose() throws Exception {
+        BlockingSession delegate = new BlockingSession();
+        OutboundQueueSession session = blockedSession(OutboundQueueSession.OverflowPolicy.DROP_OLDEST, delegate);
+        session.sendMessage(frame("/topic/group/1", "a"));
+        session.sendMessage(new TextMessage("ERROR\nmessage:bad frame\n\n\u0000"));
+
+        // close waits for the write in progress before sending the ERROR frame
+        CompletableFuture<Void> closing = CompletableFuture.runAsync(() -> {
+            try {
+                session.close(CloseStatus.PROTOCOL_ERROR);
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (session.getQueueDepth() > 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        delegate.release();
+        closing.get(5, TimeUnit.SECONDS);
+
+        List<String> sent = delegate.payloads();
+        assertEquals(2, sent.size(), sent.toString());
+        assertTrue(sent.get(1).startsWith("ERROR"), sent.get(1));
+        assertEquals(CloseStatus.PROTOCOL_ERROR, delegate.closeStatus);
+    }
+
+    // A session that already has one frame stuck in the delegate, and room for three more
+    private OutboundQueueSession blockedSession(OutboundQueueSession.OverflowPolicy policy,
+                                                BlockingSession delegate) throws Exception {
+        OutboundQueueRegistry registry = new OutboundQueueRegistry(new SimpleMeterRegistry(), 3, 1024 * 1024,
+                60_000, policy, new String[]{"/topic/online-users", "/topic/typing"});
+        registries.add(registry);
+        OutboundQueueSession session = registry.open(delegate);
+        session.sendMessage(frame("/topic/group/1", "first"));
+        assertTrue(delegate.sending.await(5, TimeUnit.SECONDS), "the drain never started writing");
+        assertEquals(0, session.getQueueDepth());
+        return session;
+    }
+
+    private static TextMessage frame(String destination, String body) {
+        return new TextMessage("MESSAGE\ndestination:" + destination + "\nsubscription:0\n\n" + body + "\u0000");
+    }
+
+    // Holds every write until released, like a client that stopped reading
+    private static final class BlockingSession implements WebSocketSession {
+
+        private final CountDownLatch sending = new CountDownLatch(1);
+        private final CountDownLatch released = new CountDownLatch(1);
+        private final List<String> sent = new CopyOnWriteArrayList<>();
+        private volatile CloseStatus closeStatus;
+
+        void release() {
+            released.countDown();
+        }
+
+        List<String> payloads() {
+            return List.copyOf(sent);
+        }
+
+        List<String> bodies() {
+            return sent.stream().map(payload -> payload.substring(payload.indexOf("\n\n") + 2, payload.length() - 1))
+                    .toList();
+        }
+
+        List<String> awaitBodies(int count) throws InterruptedException {
+            long deadline = System.currentTimeMillis() + 5_000;
+            while (sent.size() < count && System.currentTimeMillis() < deadline) {
+                Thread.sleep(5);
+            }
+            // Give anything that should not be there a moment to show up
+            Thread.sleep(50);
+            return bodies();
+        }
+
+        @Override
+        public void sendMessage(WebSocketMessage<?> message) throws IOException {
+            sending.countDown();
+            try {
+                if (!released.await(10, TimeUnit.SECONDS)) {
+                    throw new IOException("never released");
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException(e);
+            }
+            if (closeStatus != null) {
+                throw new IOException("closed");
+            }
+            sent.add(((TextMessage) message).getPayload());
+        }
+
+        @Override
+        public void close(CloseStatus status) {
+            if (closeStatus == null) {
+                closeStatus = status;
+            }
+        }
+
+        @Override
+        public void close() {
+            close(CloseStatus.NORMAL);
+        }
+
+        @Override
+        public boolean isOpen() {
+            return closeStatus == null;
+        }
+
+        @Override
+        public String getId() {
+            return "blocking";
+        }
+
+        @Override
+        public URI getUri() {
+            return null;
+        }
+
+        @Override
+        public HttpHeaders getHandshakeHeaders() {
+            return new HttpHeaders();
+        }
+
+        @Override
+        public Map<String, Object> getAttributes() {
+            return new HashMap<>();
+        }
+
+        @Override
+        public Principal getPrincipal() {
+            return null;
+        }
+
+        @Override
+        public InetSocketAddress getLocalAddress() {
+            return null;
+        }
+
+        @Override
+        public InetSocketAddress getRemoteAddress() {
+            return null;
+        }
+
+        @Override
+        public String getAcceptedProtocol() {
+            return null;
+        }
+
+        @Override
+        public void setTextMessageSizeLimit(int messageSizeLimit) {
+        }
+
+        @Override
+        public int getTextMessageSizeLimit() {
+            return 0;
+        }
+
+        @Override
+        public void setBinaryMessageSizeLimit(int messageSizeLimit) {
+        }
+
+        @Override
+        public int getBinaryMessageSizeLimit() {
+            return 0;
+        }
+
+        @Override
+        public List<WebSocketExtension> getExtensions() {
+            return List.of();
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package com.chat_app.chat.entity;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SnowflakeIdGeneratorTests {
+
+    @Test
+    void idsIncreaseEvenPastTheSequenceOfOneMillisecond() {
+        long previous = SnowflakeIdGenerator.nextId(3);
+        // Far more than the 128 ids one millisecond holds
+        for (int i = 0; i < 10_000; i++) {
+            long id = SnowflakeIdGenerator.nextId(3);
+            assertTrue(id > previous, "id " + id + " after " + previous);
+            previous = id;
+        }
+    }
+
+    @Test
+    void idsStayUniqueAcrossThreads() {
+        Set<Long> ids = ConcurrentHashMap.newKeySet();
+        IntStream.range(0, 20_000).parallel().forEach(i -> ids.add(SnowflakeIdGenerator.nextId(1)));
+        assertEquals(20_000, ids.size());
+    }
+
+    @Test
+    void nodeIsEncodedAboveTheSequence() {
+        long id = SnowflakeIdGenerator.nextId(31);
+        assertEquals(31, (id >> 7) & 31);
+        // Exact as a JavaScript number
+        assertTrue(id < (1L << 53));
+    }
+
+    @Test
+    void firstIdAtBoundsIdsGeneratedAroundThatTime() {
+        long now = System.currentTimeMillis();
+        long id = SnowflakeIdGenerator.nextId(0);
+        assertTrue(SnowflakeIdGenerator.firstIdAt(now - 1_000) <= id);
+        assertTrue(id < SnowflakeIdGenerator.firstIdAt(now + 60_000));
+        assertEquals(0, SnowflakeIdGenerator.firstIdAt(0));
+    }
+}
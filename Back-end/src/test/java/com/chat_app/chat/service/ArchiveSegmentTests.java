@@ -0,0 +1,124 @@
+package com.chat_app.chat.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ArchiveSegmentTests {
+
+    private record Entry(String scope, long id, String text) {
+    }
+
+    private static final ArchiveSegment.Codec<Entry> CODEC = new ArchiveSegment.Codec<>() {
+        @Override
+        public String scope(Entry entry) {
+            return entry.scope();
+        }
+
+        @Override
+        public long id(Entry entry) {
+            return entry.id();
+        }
+
+        @Override
+        public void write(DataOutput out, Entry entry) throws IOException {
+            ArchiveSegment.writeString(out, entry.scope());
+            out.writeLong(entry.id());
+            ArchiveSegment.writeString(out, entry.text());
+        }
+
+        @Override
+        public Entry read(DataInput in) throws IOException {
+            return new Entry(ArchiveSegment.readString(in), in.readLong(), ArchiveSegment.readString(in));
+        }
+    };
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void recordsReadBackByScopeAndIdRange() throws IOException {
+        // Three scopes with interleaved ids, enough to fill several blocks
+        List<Entry> entries = new ArrayList<>();
+        for (long id = 1; id <= 30_000; id++) {
+            entries.add(new Entry("scope-" + id % 3, id, "message " + id + " " + Long.toHexString(id * 0x9E3779B97F4A7C15L)));
+        }
+        entries.sort(Comparator.comparing(Entry::scope).thenComparingLong(Entry::id));
+        Path path = dir.resolve("segment.seg");
+        ArchiveSegment.write(path, CODEC, 0, 30_000, entries.iterator());
+
+        ArchiveSegment<Entry> segment = ArchiveSegment.open(path, CODEC);
+        assertEquals(30_000, segment.records());
+        assertEquals(0, segment.fromId());
+        assertEquals(30_000, segment.toId());
+        AtomicInteger blocks = new AtomicInteger();
+        AtomicInteger records = new AtomicInteger();
+        segment.forEachBlock(block -> {
+            blocks.incrementAndGet();
+            records.addAndGet(block.size());
+        });
+        assertTrue(blocks.get() > 1, "expected more than one block, got " + blocks.get());
+        assertEquals(30_000, records.get());
+
+        assertEquals(List.of(20_003L, 20_006L, 20_009L),
+                ids(segment.find("scope-2", 20_000, Long.MAX_VALUE, 3, false, entry -> true)));
+        assertEquals(List.of(19_997L, 19_994L, 19_991L),
+                ids(segment.find("scope-2", Long.MIN_VALUE, 20_000, 3, true, entry -> true)));
+        assertEquals("message 20003 " + Long.toHexString(20_003 * 0x9E3779B97F4A7C15L),
+                segment.find("scope-2", 20_000, 20_004, 10, false, entry -> true).get(0).text());
+        // The filter runs before the limit
+        assertEquals(List.of(30L, 60L),
+                ids(segment.find("scope-0", 0, Long.MAX_VALUE, 2, false, entry -> entry.id() % 10 == 0)));
+        assertTrue(segment.find("scope-1", 30_000, Long.MAX_VALUE, 10, false, entry -> true).isEmpty());
+        assertTrue(segment.find("scope-3", Long.MIN_VALUE, Long.MAX_VALUE, 10, false, entry -> true).isEmpty());
+    }
+
+    @Test
+    void bloomFilterHasEveryScopeAndFewOthers() throws IOException {
+        List<Entry> entries = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            entries.add(new Entry("in-" + i, i + 1, "x"));
+        }
+        entries.sort(Comparator.comparing(Entry::scope).thenComparingLong(Entry::id));
+        ArchiveSegment<Entry> segment = ArchiveSegment.write(dir.resolve("bloom.seg"), CODEC, 0, 1000,
+                entries.iterator());
+
+        for (Entry entry : entries) {
+            assertTrue(segment.mightContain(entry.scope()), entry.scope());
+        }
+        int falsePositives = 0;
+        for (int i = 0; i < 10_000; i++) {
+            if (segment.mightContain("out-" + i)) {
+                falsePositives++;
+            }
+        }
+        // Sized for about 1%
+        assertTrue(falsePositives < 300, falsePositives + " false positives in 10000");
+    }
+
+    @Test
+    void emptySegmentFindsNothing() throws IOException {
+        ArchiveSegment<Entry> segment = ArchiveSegment.write(dir.resolve("empty.seg"), CODEC, 0, 10,
+                List.<Entry>of().iterator());
+
+        assertEquals(0, segment.records());
+        assertFalse(segment.mightContain("anything"));
+        assertTrue(segment.find("anything", Long.MIN_VALUE, Long.MAX_VALUE, 10, false, entry -> true).isEmpty());
+    }
+
+    private static List<Long> ids(List<Entry> entries) {
+        return entries.stream().map(Entry::id).toList();
+    }
+}
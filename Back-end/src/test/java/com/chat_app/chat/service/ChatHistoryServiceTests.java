@@ -0,0 +1,87 @@
+package com.chat_app.chat.service;
+
+import com.chat_app.chat.entity.ChatMessage;
+import com.chat_app.chat.model.Status;
+import com.chat_app.chat.repository.ChatMessageRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@SpringBootTest
+class ChatHistoryServiceTests {
+
+    @Autowired
+    private ChatMessageRepository chatMessageRepository;
+
+    @TempDir
+    Path dir;
+
+    private ChatHistoryService historyService;
+    private String ann;
+    private final String bob = "hist-bob";
+    // Oldest first: three archived messages, then three in the table
+    private final List<String> texts = List.of("a1", "a2", "a3", "t1", "t2", "t3");
+
+    @BeforeEach
+    void archiveAndTable() throws IOException {
+        // A conversation of its own per test, the table is shared
+        ann = "hist-ann-" + System.nanoTime();
+        MessageArchive archive = new MessageArchive(dir.toString());
+        archive.load();
+        List<ChatMessage> archived = new ArrayList<>();
+        for (long id = 1; id <= 3; id++) {
+            ChatMessage message = new ChatMessage(ann, bob, "a" + id, null, null,
+                    Status.MESSAGE, System.currentTimeMillis());
+            message.setId(id);
+            archived.add(message);
+        }
+        archive.writeChatSegment(0, 3, archived);
+        historyService = new ChatHistoryService(chatMessageRepository, archive, 50, 200);
+
+        for (int i = 1; i <= 3; i++) {
+            chatMessageRepository.save(new ChatMessage(bob, ann, "t" + i, null, null,
+                    Status.MESSAGE, System.currentTimeMillis()));
+        }
+    }
+
+    @Test
+    void latestPageContinuesInTheArchive() {
+        assertEquals(texts.subList(1, 6), texts(historyService.getHistoryPage(ann, bob, null, null, 5)));
+        assertEquals(texts, texts(historyService.getHistoryPage(bob, ann, null, null, 10)));
+    }
+
+    @Test
+    void pagingBackwardsCrossesIntoTheArchive() {
+        List<ChatMessage> latest = historyService.getHistoryPage(ann, bob, null, null, 2);
+        assertEquals(List.of("t2", "t3"), texts(latest));
+
+        List<ChatMessage> older = historyService.getHistoryPage(ann, bob, latest.get(0).getId(), null, 3);
+        assertEquals(List.of("a2", "a3", "t1"), texts(older));
+
+        List<ChatMessage> oldest = historyService.getHistoryPage(ann, bob, older.get(0).getId(), null, 3);
+        assertEquals(List.of("a1"), texts(oldest));
+    }
+
+    @Test
+    void pagingForwardsCrossesIntoTheTable() {
+        List<ChatMessage> first = historyService.getHistoryPage(ann, bob, null, 1L, 3);
+        assertEquals(List.of("a2", "a3", "t1"), texts(first));
+
+        List<ChatMessage> next = historyService.getHistoryPage(ann, bob, null,
+                first.get(first.size() - 1).getId(), 3);
+        assertEquals(List.of("t2", "t3"), texts(next));
+    }
+
+    private static List<String> texts(List<ChatMessage> messages) {
+        return messages.stream().map(ChatMessage::getMessage).toList();
+    }
+}
@@ -0,0 +1,59 @@
+package com.chat_app.chat.service;
+
+import com.chat_app.chat.entity.ChatMessage;
+import com.chat_app.chat.model.Status;
+import com.chat_app.chat.repository.ChatMessageRepository;
+import com.chat_app.chat.repository.ChatSequenceRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@SpringBootTest
+class ChatMessageWriterTests {
+
+    @Autowired
+    private ChatMessageWriter chatMessageWriter;
+    @Autowired
+    private ChatMessageRepository chatMessageRepository;
+    @Autowired
+    private ChatSequenceRepository chatSequenceRepository;
+
+    @Test
+    void seqsContinueAfterTheOnesAnotherNodeTook() {
+        String scope = ChatMessage.conversationKey("writer-ada", "writer-bo");
+        chatMessageWriter.enqueue(message("first"));
+        long first = chatMessageWriter.lastSeq(scope);
+
+        // Another node behind the relay numbering the same conversation
+        long taken = chatSequenceRepository.nextSeq(scope);
+
+        ChatMessage next = message("second");
+        chatMessageWriter.enqueue(next);
+        assertEquals(first + 1, taken);
+        assertEquals(taken + 1, next.getSeq());
+        assertEquals(next.getSeq(), chatMessageWriter.lastSeq(scope));
+    }
+
+    @Test
+    void countersStartAfterSeqsAlreadyStored() {
+        String scope = ChatMessage.conversationKey("writer-cy", "writer-di");
+        ChatMessage stored = new ChatMessage("writer-cy", "writer-di", "old", null, null,
+                Status.MESSAGE, System.currentTimeMillis());
+        stored.setSeq(41L);
+        chatMessageRepository.saveAll(List.of(stored));
+
+        ChatMessage next = new ChatMessage("writer-di", "writer-cy", "new", null, null,
+                Status.MESSAGE, System.currentTimeMillis());
+        chatMessageWriter.enqueue(next);
+        assertEquals(42L, next.getSeq());
+        assertEquals(42L, chatSequenceRepository.findLastSeq(scope));
+    }
+
+    private static ChatMessage message(String text) {
+        return new ChatMessage("writer-ada", "writer-bo", text, null, null, Status.MESSAGE, System.currentTimeMillis());
+    }
+}
@@ -0,0 +1,144 @@
+package com.chat_app.chat.service;
+
+import com.chat_app.chat.entity.ChatGroup;
+import com.chat_app.chat.entity.ChatMessage;
+import com.chat_app.chat.entity.ConversationSummary;
+import com.chat_app.chat.entity.GroupMessage;
+import com.chat_app.chat.entity.Users;
+import com.chat_app.chat.model.Status;
+import com.chat_app.chat.repository.ChatMessageRepository;
+import com.chat_app.chat.repository.ConversationSummaryRepository;
+import com.chat_app.chat.repository.GroupMessageRepository;
+import com.chat_app.chat.repository.GroupRepository;
+import com.chat_app.chat.repository.UserRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+@SpringBootTest
+class ConversationInboxServiceTests {
+
+    @Autowired
+    private ConversationInboxService inboxService;
+    @Autowired
+    private ConversationSummaryRepository summaryRepository;
+    @Autowired
+    private ChatMessageRepository chatMessageRepository;
+    @Autowired
+    private GroupMessageRepository groupMessageRepository;
+    @Autowired
+    private GroupRepository groupRepository;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private final AtomicLong seq = new AtomicLong();
+
+    @Test
+    void batchesCountUnreadForTheReceiverOnly() {
+        record(message("inbox-amy", "inbox-bo", "one"), message("inbox-amy", "inbox-bo", "two"),
+                message("inbox-amy", "inbox-bo", "three"));
+
+        ConversationSummary amy = summary("inbox-amy", "inbox-bo");
+        ConversationSummary bo = summary("inbox-bo", "inbox-amy");
+        assertEquals(0, amy.getUnreadCount());
+        assertEquals(3, bo.getUnreadCount());
+        assertEquals("three", bo.getLastMessagePreview());
+        assertEquals(3L, amy.getLastReadSeq());
+        assertNull(bo.getLastReadSeq());
+
+        // Replying marks everything before it read, and counts for the other side
+        record(message("inbox-bo", "inbox-amy", "four"));
+        assertEquals(0, summary("inbox-bo", "inbox-amy").getUnreadCount());
+        assertEquals(4L, summary("inbox-bo", "inbox-amy").getLastReadSeq());
+        assertEquals(1, summary("inbox-amy", "inbox-bo").getUnreadCount());
+        assertEquals(4L, summary("inbox-amy", "inbox-bo").getLastSeq());
+
+        inboxService.markPeerRead("inbox-amy", "inbox-bo");
+        assertEquals(0, summary("inbox-amy", "inbox-bo").getUnreadCount());
+    }
+
+    @Test
+    void markReadsDoNotFailConcurrentBatches() {
+        record(message("inbox-cy", "inbox-di", "first"));
+
+        CompletableFuture<Void> batches = CompletableFuture.runAsync(() -> {
+            for (int i = 0; i < 30; i++) {
+                record(message("inbox-cy", "inbox-di", "again " + i));
+            }
+        });
+        CompletableFuture<Void> reads = CompletableFuture.runAsync(() -> {
+            for (int i = 0; i < 30; i++) {
+                inboxService.markPeerRead("inbox-di", "inbox-cy");
+            }
+        });
+        // Either one throwing fails the join
+        CompletableFuture.allOf(batches, reads).join();
+
+        inboxService.markPeerRead("inbox-di", "inbox-cy");
+        record(message("inbox-cy", "inbox-di", "last"));
+        ConversationSummary di = summary("inbox-di", "inbox-cy");
+        assertEquals(1, di.getUnreadCount());
+        assertEquals("last", di.getLastMessagePreview());
+    }
+
+    @Test
+    void backfillStartsFromTheNewestMessages() {
+        summaryRepository.deleteAll();
+
+        ChatMessage older = message("fill-ed", "fill-flo", "older");
+        ChatMessage newer = message("fill-flo", "fill-ed", "newer");
+        chatMessageRepository.saveAll(List.of(older, newer));
+
+        Users gus = userRepository.save(new Users("fill-gus", "Gus", "fill-gus@example.com", "secret"));
+        ChatGroup group = new ChatGroup();
+        group.setName("fill-group");
+        group.getMembers().add(gus);
+        group = groupRepository.save(group);
+        GroupMessage groupMessage = new GroupMessage("fill-gus", "hello group", null, null, group);
+        groupMessage.setSeq(1L);
+        groupMessageRepository.save(groupMessage);
+
+        inboxService.backfill();
+
+        for (String[] pair : new String[][]{{"fill-ed", "fill-flo"}, {"fill-flo", "fill-ed"}}) {
+            ConversationSummary summary = summary(pair[0], pair[1]);
+            assertEquals("newer", summary.getLastMessagePreview());
+            assertEquals("fill-flo", summary.getLastSenderName());
+            assertEquals(newer.getSeq(), summary.getLastSeq());
+            assertEquals(0, summary.getUnreadCount());
+        }
+        ConversationSummary gusGroup = summaryRepository
+                .findByOwnerNameAndThreadKey("fill-gus", ConversationSummary.groupThread(group.getId())).orElseThrow();
+        assertEquals("hello group", gusGroup.getLastMessagePreview());
+        assertEquals(1L, gusGroup.getLastSeq());
+    }
+
+    private ChatMessage message(String sender, String receiver, String text) {
+        ChatMessage message = new ChatMessage(sender, receiver, text, null, null, Status.MESSAGE,
+                System.currentTimeMillis());
+        message.setSeq(seq.incrementAndGet());
+        return message;
+    }
+
+    // The way ChatMessageWriter does it: messages and summaries in one transaction
+    private void record(ChatMessage... messages) {
+        new TransactionTemplate(transactionManager).executeWithoutResult(tx ->
+                inboxService.recordChatMessages(chatMessageRepository.saveAll(new ArrayList<>(List.of(messages)))));
+    }
+
+    private ConversationSummary summary(String owner, String peer) {
+        return summaryRepository.findByOwnerNameAndThreadKey(owner, ConversationSummary.peerThread(peer)).orElseThrow();
+    }
+}
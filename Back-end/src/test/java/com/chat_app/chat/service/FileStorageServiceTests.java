@@ -0,0 +1,21 @@
+package com.chat_app.chat.service;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class FileStorageServiceTests {
+
+    private static final String HASH = "ab".repeat(32);
+
+    private final FileStorageService storage = new FileStorageService("target/test-uploads");
+
+    @Test
+    void contentTypeComesFromTheRequestedExtension() {
+        assertEquals("image/png", storage.getContentType(HASH + ".png"));
+        assertEquals("image/jpeg", storage.getContentType(HASH + ".JPG"));
+        assertEquals("video/mp4", storage.getContentType(HASH + ".mp4"));
+        assertEquals("application/octet-stream", storage.getContentType(HASH + ".zq9x7"));
+        assertEquals("application/octet-stream", storage.getContentType(HASH));
+    }
+}
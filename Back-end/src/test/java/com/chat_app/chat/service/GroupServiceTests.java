@@ -0,0 +1,107 @@
+package com.chat_app.chat.service;
+
+import com.chat_app.chat.entity.ChatGroup;
+import com.chat_app.chat.entity.GroupMessage;
+import com.chat_app.chat.entity.Users;
+import com.chat_app.chat.model.GroupMessageDTO;
+import com.chat_app.chat.repository.GroupMessageRepository;
+import com.chat_app.chat.repository.GroupRepository;
+import com.chat_app.chat.repository.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.support.AbstractMessageChannel;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest
+class GroupServiceTests {
+
+    @Autowired
+    private GroupService groupService;
+    @Autowired
+    private GroupRepository groupRepository;
+    @Autowired
+    private GroupMessageRepository groupMessageRepository;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    @Autowired
+    @Qualifier("brokerChannel")
+    private MessageChannel brokerChannel;
+
+    // Destinations of everything sent to the broker while a test runs
+    private final List<String> broadcasts = new CopyOnWriteArrayList<>();
+    private final ChannelInterceptor recorder = new ChannelInterceptor() {
+        @Override
+        public Message<?> preSend(Message<?> message, MessageChannel channel) {
+            String destination = SimpMessageHeaderAccessor.getDestination(message.getHeaders());
+            if (destination != null && destination.startsWith("/topic/group/")) {
+                broadcasts.add(destination);
+            }
+            return message;
+        }
+    };
+
+    @BeforeEach
+    void recordBroadcasts() {
+        ((AbstractMessageChannel) brokerChannel).addInterceptor(recorder);
+    }
+
+    @AfterEach
+    void stopRecording() {
+        ((AbstractMessageChannel) brokerChannel).removeInterceptor(recorder);
+    }
+
+    @Test
+    void messagesAreNumberedInSendOrder() {
+        ChatGroup group = groupWith("seq-hal");
+
+        for (long expected = 1; expected <= 3; expected++) {
+            GroupMessageDTO sent = groupService.sendGroupMessage(group.getId(), "seq-hal", "m" + expected, null, null);
+            assertEquals(expected, sent.getSeq());
+        }
+
+        List<GroupMessage> stored = groupMessageRepository.findByGroupIdOrderByIdAsc(group.getId());
+        assertEquals(List.of(1L, 2L, 3L), stored.stream().map(GroupMessage::getSeq).toList());
+        assertEquals(3L, groupRepository.findLastSeq(group.getId()));
+        assertEquals(3, broadcasts.size());
+    }
+
+    @Test
+    void rolledBackSendsAreNeitherBroadcastNorNumbered() {
+        ChatGroup group = groupWith("seq-ida");
+
+        new TransactionTemplate(transactionManager).executeWithoutResult(tx -> {
+            groupService.sendGroupMessage(group.getId(), "seq-ida", "never", null, null);
+            tx.setRollbackOnly();
+        });
+        assertTrue(broadcasts.isEmpty());
+        assertTrue(groupMessageRepository.findByGroupIdOrderByIdAsc(group.getId()).isEmpty());
+
+        GroupMessageDTO sent = groupService.sendGroupMessage(group.getId(), "seq-ida", "first", null, null);
+        assertEquals(1L, sent.getSeq());
+        assertEquals(List.of("/topic/group/" + group.getId()), broadcasts);
+    }
+
+    private ChatGroup groupWith(String username) {
+        Users user = userRepository.save(new Users(username, username, username + "@example.com", "secret"));
+        ChatGroup group = groupService.createGroup(username + "-group");
+        groupService.addUserToGroup(group.getId(), user.getId());
+        return group;
+    }
+}
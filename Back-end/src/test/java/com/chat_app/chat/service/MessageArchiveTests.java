@@ -0,0 +1,110 @@
+package com.chat_app.chat.service;
+
+import com.chat_app.chat.entity.ChatGroup;
+import com.chat_app.chat.entity.ChatMessage;
+import com.chat_app.chat.entity.GroupMessage;
+import com.chat_app.chat.model.Status;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MessageArchiveTests {
+
+    private static final String KEY = ChatMessage.conversationKey("ann", "bob");
+
+    @TempDir
+    Path dir;
+
+    private MessageArchive archive;
+
+    @BeforeEach
+    void open() throws IOException {
+        archive = new MessageArchive(dir.toString());
+        archive.load();
+    }
+
+    @Test
+    void chatPagesRunAcrossSegments() throws IOException {
+        archive.writeChatSegment(0, 5, List.of(chat(1, 1), chat(3, 2), other(4), chat(5, 3)));
+        archive.writeChatSegment(5, 10, List.of(chat(6, 4), other(7), chat(9, 5)));
+
+        assertEquals(10, archive.chatWatermark());
+        assertEquals(List.of(6L, 5L, 3L), ids(archive.chatBefore(KEY, 9, 3)));
+        assertEquals(List.of(5L, 6L, 9L), ids(archive.chatAfter(KEY, 3, 10)));
+        assertEquals(List.of(4L, 5L), archive.chatAfterSeq(KEY, 3, 10).stream().map(ChatMessage::getSeq).toList());
+        assertEquals(5L, archive.lastChatSeq(KEY));
+        assertNull(archive.lastChatSeq(ChatMessage.conversationKey("ann", "zoe")));
+
+        // Everything comes back from the files as it was written
+        MessageArchive reopened = new MessageArchive(dir.toString());
+        reopened.load();
+        ChatMessage read = reopened.chatAfter(KEY, 0, 1).get(0);
+        assertEquals("m1", read.getMessage());
+        assertEquals("ann", read.getSenderName());
+        assertEquals(Status.MESSAGE, read.getStatus());
+        assertEquals(1_000L, read.getTimestamp());
+    }
+
+    @Test
+    void deletedGroupIsRemovedFromTheFiles() throws IOException {
+        ChatGroup kept = group(1L);
+        ChatGroup deleted = group(2L);
+        archive.writeGroupSegment(0, 10, List.of(groupMessage(1, kept), groupMessage(2, deleted),
+                groupMessage(3, kept), groupMessage(4, deleted)));
+
+        archive.deleteGroup(2L);
+        assertTrue(archive.groupMessages(2L).isEmpty());
+        assertEquals(List.of(1L, 3L), archive.groupMessages(1L).stream().map(GroupMessage::getId).toList());
+
+        // Rows of the group that are archived later are left out as well
+        archive.writeGroupSegment(10, 20, List.of(groupMessage(11, deleted), groupMessage(12, kept)));
+        assertTrue(archive.groupMessages(2L).isEmpty());
+
+        MessageArchive reopened = new MessageArchive(dir.toString());
+        reopened.load();
+        assertTrue(reopened.groupMessages(2L).isEmpty());
+        assertEquals(List.of(1L, 3L, 12L), reopened.groupMessages(1L).stream().map(GroupMessage::getId).toList());
+        assertEquals(20, reopened.groupWatermark());
+    }
+
+    private static ChatMessage chat(long id, long seq) {
+        ChatMessage message = new ChatMessage("ann", "bob", "m" + seq, null, null, Status.MESSAGE, id * 1_000);
+        message.setId(id);
+        message.setSeq(seq);
+        return message;
+    }
+
+    private static ChatMessage other(long id) {
+        ChatMessage message = new ChatMessage("cy", "dee", "other", null, null, Status.MESSAGE, id * 1_000);
+        message.setId(id);
+        message.setSeq(id);
+        return message;
+    }
+
+    private static ChatGroup group(Long id) {
+        ChatGroup group = new ChatGroup();
+        group.setId(id);
+        return group;
+    }
+
+    private static GroupMessage groupMessage(long id, ChatGroup group) {
+        GroupMessage message = new GroupMessage("ann", "g" + id, null, null, group);
+        message.setId(id);
+        message.setSeq(id);
+        message.setTimestamp(LocalDateTime.of(2024, 1, 1, 12, 0).plusSeconds(id));
+        return message;
+    }
+
+    private static List<Long> ids(List<ChatMessage> messages) {
+        return messages.stream().map(ChatMessage::getId).toList();
+    }
+}
@@ -0,0 +1,71 @@
+package com.chat_app.chat.service;
+
+import com.chat_app.chat.entity.ChatMessage;
+import com.chat_app.chat.model.ArchiveRunStatus;
+import com.chat_app.chat.repository.ChatMessageRepository;
+import com.chat_app.chat.repository.GroupMessageRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest
+class MessageArchiverTests {
+
+    @Autowired
+    private ChatMessageRepository chatMessageRepository;
+    @Autowired
+    private GroupMessageRepository groupMessageRepository;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void legacyRowsAreArchivedUpToTheFirstRecentOne() throws Exception {
+        // Rows from before snowflake ids: small ids whatever their age
+        long old = System.currentTimeMillis() - Duration.ofDays(3).toMillis();
+        insertLegacy(11, old);
+        insertLegacy(12, old);
+        insertLegacy(13, System.currentTimeMillis());
+        insertLegacy(14, old);
+
+        MessageArchive archive = new MessageArchive(dir.toString());
+        archive.load();
+        MessageArchiver archiver = new MessageArchiver(chatMessageRepository, groupMessageRepository, archive,
+                transactionManager, true, 1, 100, 100, 100);
+        ArchiveRunStatus status = archiver.startRun();
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (status.getState() == ArchiveRunStatus.State.RUNNING && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+        }
+
+        assertEquals(ArchiveRunStatus.State.COMPLETED, status.getState(), status.getError());
+        assertEquals(12, archive.chatWatermark());
+        String key = ChatMessage.conversationKey("legacy-ann", "legacy-bob");
+        assertEquals(List.of(11L, 12L), archive.chatAfter(key, 0, 10).stream().map(ChatMessage::getId).toList());
+        assertTrue(chatMessageRepository.findById(11L).isEmpty());
+        assertTrue(chatMessageRepository.findById(13L).isPresent());
+        // Old, but behind a recent row; it goes once that one is old enough
+        assertTrue(chatMessageRepository.findById(14L).isPresent());
+    }
+
+    private void insertLegacy(long id, long timestamp) {
+        jdbcTemplate.update("INSERT INTO chat_message (id, sender_name, receiver_name, message, status, timestamp,"
+                        + " conversation_key, seq) VALUES (?, ?, ?, ?, ?, ?, ?, ?)",
+                id, "legacy-ann", "legacy-bob", "m" + id, "MESSAGE", timestamp,
+                ChatMessage.conversationKey("legacy-ann", "legacy-bob"), id);
+    }
+}
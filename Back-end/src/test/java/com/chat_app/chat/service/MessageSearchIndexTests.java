@@ -0,0 +1,98 @@
+package com.chat_app.chat.service;
+
+import com.chat_app.chat.entity.ChatGroup;
+import com.chat_app.chat.entity.ChatMessage;
+import com.chat_app.chat.entity.GroupMessage;
+import com.chat_app.chat.model.MessageSearchHit;
+import com.chat_app.chat.model.MessageSearchPage;
+import com.chat_app.chat.model.Status;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MessageSearchIndexTests {
+
+    private MessageSearchIndex index;
+
+    @BeforeEach
+    void openIndex() throws Exception {
+        index = new MessageSearchIndex("", 10, 5);
+    }
+
+    @AfterEach
+    void closeIndex() throws Exception {
+        index.shutdown();
+    }
+
+    @Test
+    void searchesStayInsideTheirScope() throws Exception {
+        index.indexChatMessages(List.of(
+                chat(1L, "alice", "bob", "lunch at noon"),
+                chat(2L, "bob", "alice", "noon works"),
+                chat(3L, "alice", "carol", "lunch tomorrow"),
+                chat(4L, "dave", null, "public lunch")));
+        ChatGroup group = new ChatGroup();
+        group.setId(7L);
+        GroupMessage groupMessage = new GroupMessage("alice", "group lunch", null, null, group);
+        groupMessage.setId(5L);
+        index.indexGroupMessages(List.of(groupMessage));
+
+        String aliceBob = MessageSearchIndex.conversationScope("bob", "alice");
+        MessageSearchPage page = await(aliceBob, "lunch", 1);
+        assertEquals(1L, page.hits().get(0).id());
+        assertTrue(page.hits().get(0).highlight().contains("<mark>lunch</mark>"));
+
+        assertEquals(List.of(2L, 1L), ids(await(aliceBob, "noon", 2)));
+        assertEquals(List.of(3L), ids(await(MessageSearchIndex.conversationScope("alice", "carol"), "lunch", 1)));
+        MessageSearchHit groupHit = await(MessageSearchIndex.groupScope(7L), "lunch", 1).hits().get(0);
+        assertEquals(5L, groupHit.id());
+        assertEquals(7L, groupHit.groupId());
+        // Every word has to match
+        assertEquals(0, index.search(aliceBob, "lunch tomorrow", 0, 10).hits().size());
+    }
+
+    @Test
+    void pagesStopAtMaxResults() throws Exception {
+        for (long id = 1; id <= 8; id++) {
+            index.indexChatMessages(List.of(chat(id, "alice", "bob", "hello " + id)));
+        }
+        String scope = MessageSearchIndex.conversationScope("alice", "bob");
+        assertEquals(2, await(scope, "hello", 2).hits().size());
+
+        assertEquals(2, index.search(scope, "hello", 1, 2).hits().size());
+        // max-results is 5: the third page only has the fifth hit, the ones after it none
+        assertEquals(1, index.search(scope, "hello", 2, 2).hits().size());
+        assertTrue(index.search(scope, "hello", 3, 2).hits().isEmpty());
+        // An offset past Integer.MAX_VALUE is an empty page, not an overflow
+        assertTrue(index.search(scope, "hello", Integer.MAX_VALUE, 100).hits().isEmpty());
+    }
+
+    private static ChatMessage chat(Long id, String sender, String receiver, String text) {
+        ChatMessage message = new ChatMessage(sender, receiver, text, null, null, Status.MESSAGE, id);
+        message.setId(id);
+        return message;
+    }
+
+    private static List<Long> ids(MessageSearchPage page) {
+        return page.hits().stream().map(MessageSearchHit::id).toList();
+    }
+
+    // Changes become visible with the next refresh
+    private MessageSearchPage await(String scope, String query, int size) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5_000;
+        MessageSearchPage page;
+        do {
+            page = index.search(scope, query, 0, size);
+            if (page.hits().size() == size) {
+                return page;
+            }
+            Thread.sleep(20);
+        } while (System.currentTimeMillis() < deadline);
+        return page;
+    }
+}
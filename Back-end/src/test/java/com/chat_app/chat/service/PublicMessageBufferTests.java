@@ -0,0 +1,52 @@
+package com.chat_app.chat.service;
+
+import com.chat_app.chat.entity.ChatMessage;
+import com.chat_app.chat.model.Status;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class PublicMessageBufferTests {
+
+    // Pages below count never reach the repository or the archive
+    private final PublicMessageBuffer buffer = new PublicMessageBuffer(null, null, 10, 10);
+
+    @Test
+    void bufferedCopiesGetTheirIdOnlyWhenCommitted() {
+        ChatMessage first = message(1);
+        ChatMessage second = message(2);
+        buffer.add(first);
+        buffer.add(second);
+
+        // What the writer thread does to the queued instance
+        first.setId(101L);
+        first.setMessage("changed after add");
+        List<ChatMessage> page = buffer.getPage(null, 2);
+        assertNotSame(first, page.get(0));
+        assertNull(page.get(0).getId());
+        assertEquals("m1", page.get(0).getMessage());
+
+        buffer.persisted(List.of(first));
+        page = buffer.getPage(null, 2);
+        assertEquals(101L, page.get(0).getId());
+        assertNull(page.get(1).getId());
+
+        second.setId(102L);
+        buffer.persisted(List.of(second));
+        // Copies already handed out stay as they were
+        assertNull(page.get(1).getId());
+        assertEquals(102L, buffer.getPage(null, 1).get(0).getId());
+        assertEquals(List.of(101L), buffer.getPage(102L, 1).stream().map(ChatMessage::getId).toList());
+    }
+
+    private static ChatMessage message(long seq) {
+        ChatMessage message = new ChatMessage("pub-amy", null, "m" + seq, null, null, Status.MESSAGE,
+                System.currentTimeMillis());
+        message.setSeq(seq);
+        return message;
+    }
+}
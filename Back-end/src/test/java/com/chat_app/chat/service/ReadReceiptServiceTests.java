@@ -0,0 +1,180 @@
+package com.chat_app.chat.service;
+
+import com.chat_app.chat.entity.ChatGroup;
+import com.chat_app.chat.entity.ChatMessage;
+import com.chat_app.chat.entity.ConversationSummary;
+import com.chat_app.chat.entity.Users;
+import com.chat_app.chat.model.ReadReceipt;
+import com.chat_app.chat.model.ReadUpdate;
+import com.chat_app.chat.model.Status;
+import com.chat_app.chat.repository.ChatMessageRepository;
+import com.chat_app.chat.repository.ConversationSummaryRepository;
+import com.chat_app.chat.repository.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest
+class ReadReceiptServiceTests {
+
+    @Autowired
+    private ConversationInboxService inboxService;
+    @Autowired
+    private ConversationSummaryRepository summaryRepository;
+    @Autowired
+    private ChatMessageRepository chatMessageRepository;
+    @Autowired
+    private GroupService groupService;
+    @Autowired
+    private GroupCache groupCache;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    // Everything the service sends, unconverted
+    private final List<Message<?>> sent = new CopyOnWriteArrayList<>();
+    // Not the bean, so the scheduled ticks do not run in between
+    private ReadReceiptService receiptService;
+
+    @BeforeEach
+    void unscheduledService() {
+        SimpMessagingTemplate template = new SimpMessagingTemplate((message, timeout) -> sent.add(message));
+        receiptService = new ReadReceiptService(template, inboxService, groupCache);
+    }
+
+    @Test
+    void receiptsRaiseOneWatermarkPerTick() {
+        receiptService.onReceipt(peerReceipt("rr-amy", "rr-bo", 3L));
+        receiptService.onReceipt(peerReceipt("rr-amy", "rr-bo", 5L));
+        receiptService.onReceipt(peerReceipt("rr-amy", "rr-bo", 4L));
+        // Neither peer nor group
+        receiptService.onReceipt(peerReceipt("rr-amy", null, 9L));
+        assertEquals(5L, receiptService.getPeerReadSeq("rr-bo", "rr-amy"));
+
+        receiptService.publish();
+        assertEquals(1, sent.size());
+        assertEquals(ReadReceiptService.userDestination("rr-bo"), destination(sent.get(0)));
+        assertEquals(new ReadUpdate("rr-amy", null, Map.of("rr-amy", 5L)), sent.get(0).getPayload());
+
+        receiptService.publish();
+        assertEquals(1, sent.size());
+    }
+
+    @Test
+    void flushWritesWatermarksForwardOnlyAndTrimsUnread() {
+        List<ChatMessage> messages = new ArrayList<>();
+        for (long seq = 1; seq <= 5; seq++) {
+            ChatMessage message = new ChatMessage("rr-cy", "rr-di", "m" + seq, null, null, Status.MESSAGE,
+                    System.currentTimeMillis());
+            message.setSeq(seq);
+            messages.add(message);
+        }
+        new TransactionTemplate(transactionManager).executeWithoutResult(tx ->
+                inboxService.recordChatMessages(chatMessageRepository.saveAll(messages)));
+
+        receiptService.onReceipt(peerReceipt("rr-di", "rr-cy", 3L));
+        receiptService.flush();
+        ConversationSummary di = summary("rr-di", ConversationSummary.peerThread("rr-cy"));
+        assertEquals(3L, di.getLastReadSeq());
+        assertEquals(2, di.getUnreadCount());
+
+        receiptService.onReceipt(peerReceipt("rr-di", "rr-cy", 2L));
+        receiptService.flush();
+        assertEquals(3L, summary("rr-di", ConversationSummary.peerThread("rr-cy")).getLastReadSeq());
+
+        receiptService.onReceipt(peerReceipt("rr-di", "rr-cy", 5L));
+        receiptService.flush();
+        di = summary("rr-di", ConversationSummary.peerThread("rr-cy"));
+        assertEquals(5L, di.getLastReadSeq());
+        assertEquals(0, di.getUnreadCount());
+        assertEquals(5L, receiptService.getPeerReadSeq("rr-cy", "rr-di"));
+    }
+
+    @Test
+    void groupReceiptsNeedMembership() {
+        ChatGroup group = groupWith("rr-eve", "rr-fay");
+
+        receiptService.onReceipt(groupReceipt("rr-eve", group.getId(), 2L));
+        receiptService.onReceipt(groupReceipt("rr-fay", group.getId(), 1L));
+        receiptService.onReceipt(groupReceipt("rr-outsider", group.getId(), 7L));
+        assertEquals(Map.of("rr-eve", 2L, "rr-fay", 1L), receiptService.getGroupReadSeqs(group.getId()));
+
+        receiptService.publish();
+        assertEquals(1, sent.size());
+        assertEquals(ReadReceiptService.groupDestination(group.getId()), destination(sent.get(0)));
+        assertEquals(Map.of("rr-eve", 2L, "rr-fay", 1L), ((ReadUpdate) sent.get(0).getPayload()).getReadSeqs());
+    }
+
+    @Test
+    void watermarksDoNotFailConcurrentGroupSends() {
+        ChatGroup group = groupWith("rr-gus", "rr-hal");
+        String thread = ConversationSummary.groupThread(group.getId());
+
+        CompletableFuture<Void> sends = CompletableFuture.runAsync(() -> {
+            for (int i = 0; i < 30; i++) {
+                groupService.sendGroupMessage(group.getId(), "rr-gus", "m" + i, null, null);
+            }
+        });
+        CompletableFuture<Void> reads = CompletableFuture.runAsync(() -> {
+            for (long seq = 1; seq <= 30; seq++) {
+                inboxService.recordReads(Map.of("rr-hal", Map.of(thread, seq)));
+            }
+        });
+        // Either one throwing fails the join
+        CompletableFuture.allOf(sends, reads).join();
+
+        ConversationSummary hal = summary("rr-hal", thread);
+        assertEquals(30L, hal.getLastReadSeq());
+        assertEquals(30L, hal.getLastSeq());
+        assertTrue(hal.getUnreadCount() <= 30);
+    }
+
+    private ChatGroup groupWith(String... usernames) {
+        ChatGroup group = groupService.createGroup(usernames[0] + "-group");
+        for (String username : usernames) {
+            Users user = userRepository.save(new Users(username, username, username + "@example.com", "secret"));
+            groupService.addUserToGroup(group.getId(), user.getId());
+        }
+        return group;
+    }
+
+    private ConversationSummary summary(String owner, String threadKey) {
+        return summaryRepository.findByOwnerNameAndThreadKey(owner, threadKey).orElseThrow();
+    }
+
+    private static ReadReceipt peerReceipt(String reader, String peer, Long seq) {
+        ReadReceipt receipt = new ReadReceipt();
+        receipt.setReaderName(reader);
+        receipt.setPeerName(peer);
+        receipt.setSeq(seq);
+        return receipt;
+    }
+
+    private static ReadReceipt groupReceipt(String reader, Long groupId, Long seq) {
+        ReadReceipt receipt = new ReadReceipt();
+        receipt.setReaderName(reader);
+        receipt.setGroupId(groupId);
+        receipt.setSeq(seq);
+        return receipt;
+    }
+
+    private static String destination(Message<?> message) {
+        return SimpMessageHeaderAccessor.getDestination(message.getHeaders());
+    }
+}
@@ -0,0 +1,72 @@
+package com.chat_app.chat.service;
+
+import com.chat_app.chat.entity.ChatGroup;
+import com.chat_app.chat.entity.ChatMessage;
+import com.chat_app.chat.entity.GroupMessage;
+import com.chat_app.chat.model.MessageSearchPage;
+import com.chat_app.chat.model.SearchRebuildStatus;
+import com.chat_app.chat.model.Status;
+import com.chat_app.chat.repository.ChatMessageRepository;
+import com.chat_app.chat.repository.GroupMessageRepository;
+import com.chat_app.chat.repository.GroupRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@SpringBootTest
+class SearchIndexRebuilderTests {
+
+    @Autowired
+    private SearchIndexRebuilder rebuilder;
+    @Autowired
+    private MessageSearchIndex searchIndex;
+    @Autowired
+    private ChatMessageRepository chatMessageRepository;
+    @Autowired
+    private GroupMessageRepository groupMessageRepository;
+    @Autowired
+    private GroupRepository groupRepository;
+
+    @Test
+    void rebuildIndexesRowsThatBypassedTheSavePath() throws Exception {
+        // Saved straight through the repositories, so only a rebuild can find them
+        List<ChatMessage> chats = new ArrayList<>();
+        for (int i = 0; i < 30; i++) {
+            chats.add(new ChatMessage("rebuild-ann", "rebuild-ben", "zeppelin " + i, null, null,
+                    Status.MESSAGE, System.currentTimeMillis()));
+        }
+        chatMessageRepository.saveAll(chats);
+        ChatGroup group = new ChatGroup();
+        group.setName("rebuild-group");
+        group = groupRepository.save(group);
+        groupMessageRepository.save(new GroupMessage("rebuild-ann", "zeppelin overhead", null, null, group));
+
+        SearchRebuildStatus status = rebuilder.startRebuild();
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (status.getState() == SearchRebuildStatus.State.RUNNING && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+        }
+        assertEquals(SearchRebuildStatus.State.COMPLETED, status.getState());
+
+        assertEquals(30, await(MessageSearchIndex.conversationScope("rebuild-ben", "rebuild-ann"), 30).totalHits());
+        assertEquals(1, await(MessageSearchIndex.groupScope(group.getId()), 1).totalHits());
+    }
+
+    private MessageSearchPage await(String scope, int expected) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5_000;
+        MessageSearchPage page;
+        do {
+            page = searchIndex.search(scope, "zeppelin", 0, 100);
+            if (page.totalHits() >= expected) {
+                return page;
+            }
+            Thread.sleep(50);
+        } while (System.currentTimeMillis() < deadline);
+        return page;
+    }
+}
@@ -0,0 +1,132 @@
+package com.chat_app.chat.service;
+
+import com.chat_app.chat.entity.ChatGroup;
+import com.chat_app.chat.entity.ChatMessage;
+import com.chat_app.chat.entity.GroupMessage;
+import com.chat_app.chat.model.GroupMessageDTO;
+import com.chat_app.chat.model.Message;
+import com.chat_app.chat.model.Status;
+import com.chat_app.chat.model.SyncRequest;
+import com.chat_app.chat.model.SyncResponse;
+import com.chat_app.chat.repository.ChatMessageRepository;
+import com.chat_app.chat.repository.GroupMessageRepository;
+import com.chat_app.chat.repository.GroupRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest
+class SyncServiceTests {
+
+    @Autowired
+    private ChatMessageRepository chatMessageRepository;
+    @Autowired
+    private GroupMessageRepository groupMessageRepository;
+    @Autowired
+    private GroupRepository groupRepository;
+    @Autowired
+    private ChatMessageWriter chatMessageWriter;
+    @Autowired
+    private MessageArchive messageArchive;
+    @Autowired
+    private GroupCache groupCache;
+
+    private SyncService syncService;
+
+    @BeforeEach
+    void smallLimits() {
+        // Three messages per conversation and two conversations per request
+        syncService = new SyncService(chatMessageRepository, groupMessageRepository, groupRepository,
+                chatMessageWriter, messageArchive, groupCache, 3, 2);
+    }
+
+    @Test
+    void conversationsResumeAfterTheLastSeenSeq() {
+        List<ChatMessage> messages = new ArrayList<>();
+        for (long seq = 1; seq <= 5; seq++) {
+            ChatMessage message = new ChatMessage("sync-jo", "sync-kim", "m" + seq, null, null,
+                    Status.MESSAGE, System.currentTimeMillis());
+            message.setSeq(seq);
+            messages.add(message);
+        }
+        chatMessageRepository.saveAll(messages);
+
+        SyncResponse caughtUp = syncService.sync(request("sync-kim", "sync-jo", 2L));
+        assertEquals(List.of(3L, 4L, 5L), seqs(caughtUp.conversations().get("sync-jo")));
+        assertTrue(caughtUp.truncated().isEmpty());
+
+        // More than fit: the oldest ones come back, and the client is told to reload
+        SyncResponse truncated = syncService.sync(request("sync-kim", "sync-jo", 0L));
+        assertEquals(List.of(1L, 2L, 3L), seqs(truncated.conversations().get("sync-jo")));
+        assertEquals(List.of("user:sync-jo"), truncated.truncated());
+
+        assertFalse(syncService.sync(request("sync-kim", "sync-jo", 5L)).conversations().containsKey("sync-jo"));
+    }
+
+    @Test
+    void acceptedButUnpersistedMessagesAreIncluded() {
+        String scope = ChatMessage.conversationKey("sync-lee", "sync-max");
+        long before = chatMessageWriter.lastSeq(scope);
+        chatMessageWriter.enqueue(new ChatMessage("sync-lee", "sync-max", "queued", null, null,
+                Status.MESSAGE, System.currentTimeMillis()));
+
+        // Whether or not the writer got to it yet, the message is found exactly once
+        List<Message> missing = syncService.sync(request("sync-max", "sync-lee", before)).conversations().get("sync-lee");
+        assertEquals(List.of(before + 1), seqs(missing));
+    }
+
+    @Test
+    void groupsResumeAfterTheLastSeenSeq() {
+        ChatGroup group = new ChatGroup();
+        group.setName("sync-group");
+        ChatGroup saved = groupRepository.save(group);
+        List<GroupMessage> messages = new ArrayList<>();
+        for (long seq = 1; seq <= 5; seq++) {
+            GroupMessage message = new GroupMessage("sync-jo", "g" + seq, null, null, saved);
+            message.setSeq(seq);
+            messages.add(message);
+        }
+        groupMessageRepository.saveAll(messages);
+
+        SyncRequest request = new SyncRequest();
+        request.setUsername("sync-jo");
+        request.getGroups().put(saved.getId(), 1L);
+        // A deleted group has nothing to catch up on
+        request.getGroups().put(-1L, 0L);
+        SyncResponse response = syncService.sync(request);
+
+        List<GroupMessageDTO> missing = response.groups().get(saved.getId());
+        assertEquals(List.of(2L, 3L, 4L), missing.stream().map(GroupMessageDTO::getSeq).toList());
+        assertEquals("sync-group", missing.get(0).getGroupName());
+        assertEquals(List.of("group:" + saved.getId()), response.truncated());
+        assertFalse(response.groups().containsKey(-1L));
+    }
+
+    @Test
+    void requestsOverTheConversationLimitAreTooLarge() {
+        SyncRequest request = request("sync-jo", "a", 0L);
+        request.getConversations().put("b", 0L);
+        assertFalse(syncService.isTooLarge(request));
+        request.getGroups().put(1L, 0L);
+        assertTrue(syncService.isTooLarge(request));
+    }
+
+    private static SyncRequest request(String username, String peer, Long lastSeen) {
+        SyncRequest request = new SyncRequest();
+        request.setUsername(username);
+        request.getConversations().put(peer, lastSeen);
+        return request;
+    }
+
+    private static List<Long> seqs(List<Message> messages) {
+        return messages.stream().map(Message::getSeq).toList();
+    }
+}
@@ -0,0 +1,116 @@
+package com.chat_app.chat.service;
+
+import com.chat_app.chat.entity.ChatGroup;
+import com.chat_app.chat.entity.Users;
+import com.chat_app.chat.model.TypingEvent;
+import com.chat_app.chat.model.TypingUpdate;
+import com.chat_app.chat.repository.UserRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@SpringBootTest
+class TypingIndicatorServiceTests {
+
+    @Autowired
+    private GroupService groupService;
+    @Autowired
+    private GroupCache groupCache;
+    @Autowired
+    private UserRepository userRepository;
+
+    // Everything the service sends, unconverted
+    private final List<Message<?>> sent = new CopyOnWriteArrayList<>();
+
+    // Not the bean, so the scheduled ticks do not run in between
+    private TypingIndicatorService service(long ttlMs) {
+        return new TypingIndicatorService(new SimpMessagingTemplate((message, timeout) -> sent.add(message)),
+                groupCache, ttlMs);
+    }
+
+    @Test
+    void keystrokesBetweenTicksBecomeOneUpdate() {
+        TypingIndicatorService typing = service(60_000);
+        for (int i = 0; i < 20; i++) {
+            typing.onEvent(peerEvent("ty-amy", "ty-bo", true));
+        }
+        typing.publish();
+        assertEquals(1, sent.size());
+        assertEquals(TypingIndicatorService.userDestination("ty-bo"), destination(sent.get(0)));
+        assertEquals(new TypingUpdate("ty-amy", null, Set.of("ty-amy"), 60_000), sent.get(0).getPayload());
+
+        // Still typing, and told so recently
+        typing.onEvent(peerEvent("ty-amy", "ty-bo", true));
+        typing.publish();
+        assertEquals(1, sent.size());
+
+        typing.onEvent(peerEvent("ty-amy", "ty-bo", false));
+        typing.publish();
+        assertEquals(2, sent.size());
+        assertEquals(Set.of(), ((TypingUpdate) sent.get(1).getPayload()).getTyping());
+    }
+
+    @Test
+    void indicatorsRunOutWithoutAStop() throws InterruptedException {
+        TypingIndicatorService typing = service(100);
+        typing.onEvent(peerEvent("ty-cy", "ty-di", true));
+        typing.publish();
+        assertEquals(Set.of("ty-cy"), ((TypingUpdate) sent.get(0).getPayload()).getTyping());
+
+        Thread.sleep(150);
+        typing.publish();
+        assertEquals(2, sent.size());
+        assertEquals(Set.of(), ((TypingUpdate) sent.get(1).getPayload()).getTyping());
+
+        typing.publish();
+        assertEquals(2, sent.size());
+    }
+
+    @Test
+    void groupUpdatesListEveryTypingMember() {
+        ChatGroup group = groupService.createGroup("ty-group");
+        for (String username : List.of("ty-eve", "ty-fay")) {
+            Users user = userRepository.save(new Users(username, username, username + "@example.com", "secret"));
+            groupService.addUserToGroup(group.getId(), user.getId());
+        }
+        TypingIndicatorService typing = service(60_000);
+
+        typing.onEvent(groupEvent("ty-eve", group.getId()));
+        typing.onEvent(groupEvent("ty-fay", group.getId()));
+        typing.onEvent(groupEvent("ty-outsider", group.getId()));
+        typing.publish();
+
+        assertEquals(1, sent.size());
+        assertEquals(TypingIndicatorService.groupDestination(group.getId()), destination(sent.get(0)));
+        assertEquals(Set.of("ty-eve", "ty-fay"), ((TypingUpdate) sent.get(0).getPayload()).getTyping());
+    }
+
+    private static TypingEvent peerEvent(String sender, String receiver, boolean typing) {
+        TypingEvent event = new TypingEvent();
+        event.setSenderName(sender);
+        event.setReceiverName(receiver);
+        event.setTyping(typing);
+        return event;
+    }
+
+    private static TypingEvent groupEvent(String sender, Long groupId) {
+        TypingEvent event = new TypingEvent();
+        event.setSenderName(sender);
+        event.setGroupId(groupId);
+        event.setTyping(true);
+        return event;
+    }
+
+    private static String destination(Message<?> message) {
+        return SimpMessageHeaderAccessor.getDestination(message.getHeaders());
+    }
+}
@@ -7,6 +7,8 @@ import GroupManager from "./GroupManager";
 import axios from "axios";
 
 var stompClient = null;
+// Messages per history request, matching the server's chat.history.default-page-size
+const HISTORY_PAGE_SIZE = 50;
 
 export const ChatPage2 = () => {
   const [selectedUser, setSelectedUser] = useState(null);
@@ -26,11 +28,18 @@ export const ChatPage2 = () => {
   const [onlineUsers, setOnlineUsers] = useState(new Set());
   const [groups, setGroups] = useState([]);
   const [selectedGroup, setSelectedGroup] = useState(null);
+  // Peers whose conversation has older messages than the ones loaded
+  const [olderPrivateHistory, setOlderPrivateHistory] = useState(new Set());
+  const [olderPublicHistory, setOlderPublicHistory] = useState(false);
+  const [isLoadingOlder, setIsLoadingOlder] = useState(false);
   
   const messagesEndRef = useRef(null);
   const navigate = useNavigate();
   const connected = useRef(false);
   const fileInputRef = useRef(null);
+  const presenceVersion = useRef(null);
+  // Set while older messages are prepended, so the view stays where the user is reading
+  const keepScrollPosition = useRef(false);
 
   if (!username.trim()) {
     navigate("/login");
@@ -53,6 +62,10 @@ export const ChatPage2 = () => {
   }, []);
 
   useEffect(() => {
+    if (keepScrollPosition.current) {
+      keepScrollPosition.current = false;
+      return;
+    }
     scrollToBottom();
   }, [publicChats, privateChats, groupChats, tab]);
 
@@ -75,10 +88,12 @@ export const ChatPage2 = () => {
   try {
     setIsLoadingHistory(true);
     const response = await axios.get(
-      `http://localhost:8080/api/users/messages/public`
+      `http://localhost:8080/api/users/messages/public`,
+      { params: { limit: HISTORY_PAGE_SIZE } }
     );
     if (response.status === 200) {
       setPublicChats(response.data);
+      setOlderPublicHistory(response.data.length === HISTORY_PAGE_SIZE);
     }
   } catch (error) {
     console.error("Error fetching public chat history:", error);
@@ -101,11 +116,35 @@ export const ChatPage2 = () => {
   }
 };
 
+  // The public messages before the oldest one shown
+  const fetchOlderPublicChatHistory = async () => {
+    // Messages that arrived over the socket have no id
+    const oldest = publicChats.find((msg) => msg.id);
+    if (!oldest || isLoadingOlder) return;
+    try {
+      setIsLoadingOlder(true);
+      const response = await axios.get(
+        `http://localhost:8080/api/users/messages/public`,
+        { params: { before: oldest.id, limit: HISTORY_PAGE_SIZE } }
+      );
+      if (response.status === 200) {
+        keepScrollPosition.current = true;
+        setPublicChats((prev) => [...response.data, ...prev]);
+        setOlderPublicHistory(response.data.length === HISTORY_PAGE_SIZE);
+      }
+    } catch (error) {
+      console.error("Error fetching older public messages:", error);
+    } finally {
+      setIsLoadingOlder(false);
+    }
+  };
+
   // Fetch online users
   const fetchOnlineUsers = async () => {
     try {
-      const response = await axios.get("http://localhost:8080/api/users/online-users");
-      setOnlineUsers(new Set(response.data));
+      const response = await axios.get("http://localhost:8080/api/users/online-users/snapshot");
+      presenceVersion.current = response.data.version;
+      setOnlineUsers(new Set(response.data.users));
     } catch (error) {
       console.error("Error fetching online users:", error);
     }
@@ -214,8 +253,19 @@ export const ChatPage2 = () => {
   };
 
   const onOnlineUsersUpdate = (payload) => {
-    const onlineUsersList = JSON.parse(payload.body);
-    setOnlineUsers(new Set(onlineUsersList));
+    const delta = JSON.parse(payload.body);
+    // A gap in versions means a delta was missed, resync from the snapshot
+    if (presenceVersion.current === null || delta.version !== presenceVersion.current + 1) {
+      fetchOnlineUsers();
+      return;
+    }
+    presenceVersion.current = delta.version;
+    setOnlineUsers((prevUsers) => {
+      const nextUsers = new Set(prevUsers);
+      delta.left.forEach((user) => nextUsers.delete(user));
+      delta.joined.forEach((user) => nextUsers.add(user));
+      return nextUsers;
+    });
   };
 
   const onConnect = () => {
@@ -223,7 +273,8 @@ export const ChatPage2 = () => {
     setIsConnected(true);
 
     stompClient.subscribe("/chatroom/public", onMessageReceived);
-    stompClient.subscribe(`/user/${username}/private`, onPrivateMessage);
+    // Resolved by the server to this connection's login, on whichever node it is
+    stompClient.subscribe("/user/private", onPrivateMessage);
     stompClient.subscribe("/topic/online-users", onOnlineUsersUpdate);
     
     // Subscribe to group topics
@@ -368,11 +419,25 @@ export const ChatPage2 = () => {
     fetchChatHistory(username, name);
   };
 
+  const setHasOlderPrivateHistory = (peer, hasOlder) => {
+    setOlderPrivateHistory((prev) => {
+      const next = new Set(prev);
+      if (hasOlder) {
+        next.add(peer);
+      } else {
+        next.delete(peer);
+      }
+      return next;
+    });
+  };
+
+  // Latest page of the conversation; older pages are loaded on demand
   const fetchChatHistory = async (user1, user2) => {
     try {
       setIsLoadingHistory(true);
       const response = await axios.get(
-        `http://localhost:8080/api/users/messages/history/${user1}/${user2}`
+        `http://localhost:8080/api/users/messages/history/${user1}/${user2}`,
+        { params: { limit: HISTORY_PAGE_SIZE } }
       );
       if (response.status === 200) {
         setPrivateChats((prevChats) => {
@@ -380,6 +445,7 @@ export const ChatPage2 = () => {
           newChats.set(user2, response.data);
           return newChats;
         });
+        setHasOlderPrivateHistory(user2, response.data.length === HISTORY_PAGE_SIZE);
       }
     } catch (error) {
       console.error("Error fetching chat history:", error);
@@ -388,6 +454,33 @@ export const ChatPage2 = () => {
     }
   };
 
+  // The page before the oldest loaded message, put in front of what is shown
+  const fetchOlderChatHistory = async (user2) => {
+    // Messages that arrived over the socket have no id yet
+    const oldest = (privateChats.get(user2) || []).find((msg) => msg.id);
+    if (!oldest || isLoadingOlder) return;
+    try {
+      setIsLoadingOlder(true);
+      const response = await axios.get(
+        `http://localhost:8080/api/users/messages/history/${username}/${user2}`,
+        { params: { before: oldest.id, limit: HISTORY_PAGE_SIZE } }
+      );
+      if (response.status === 200) {
+        keepScrollPosition.current = true;
+        setPrivateChats((prevChats) => {
+          const newChats = new Map(prevChats);
+          newChats.set(user2, [...response.data, ...(prevChats.get(user2) || [])]);
+          return newChats;
+        });
+        setHasOlderPrivateHistory(user2, response.data.length === HISTORY_PAGE_SIZE);
+      }
+    } catch (error) {
+      console.error("Error fetching older chat history:", error);
+    } finally {
+      setIsLoadingOlder(false);
+    }
+  };
+
   const fetchGroupMessages = async (groupId) => {
     try {
       setIsLoadingHistory(true);
@@ -572,16 +665,30 @@ export const ChatPage2 = () => {
             ) : (
               <div className="space-y-4">
                 {tab === "CHATROOM"
-                  ? publicChats.map((message, index) => (
-                      <MessageBubble key={index} message={message} username={username} getFileUrl={getFileUrl} formatTime={formatTime} />
-                    ))
+                  ? (
+                    <>
+                      {olderPublicHistory && (
+                        <LoadOlderButton loading={isLoadingOlder} onClick={fetchOlderPublicChatHistory} />
+                      )}
+                      {publicChats.map((message, index) => (
+                        <MessageBubble key={index} message={message} username={username} getFileUrl={getFileUrl} formatTime={formatTime} />
+                      ))}
+                    </>
+                  )
                   : tab.startsWith("group-")
                   ? groupChats.get(selectedGroup?.id)?.map((message, index) => (
                       <MessageBubble key={index} message={message} username={username} getFileUrl={getFileUrl} formatTime={formatTime} isGroup={true} />
                     ))
-                  : privateChats.get(tab)?.map((message, index) => (
-                      <MessageBubble key={index} message={message} username={username} getFileUrl={getFileUrl} formatTime={formatTime} />
-                    ))}
+                  : (
+                    <>
+                      {olderPrivateHistory.has(tab) && (
+                        <LoadOlderButton loading={isLoadingOlder} onClick={() => fetchOlderChatHistory(tab)} />
+                      )}
+                      {privateChats.get(tab)?.map((message, index) => (
+                        <MessageBubble key={index} message={message} username={username} getFileUrl={getFileUrl} formatTime={formatTime} />
+                      ))}
+                    </>
+                  )}
                 <div ref={messagesEndRef} />
               </div>
             )}
@@ -684,6 +791,19 @@ export const ChatPage2 = () => {
   );
 };
 
+// Asks for the page before the oldest message shown
+const LoadOlderButton = ({ loading, onClick }) => (
+  <div className="flex justify-center">
+    <button
+      onClick={onClick}
+      disabled={loading}
+      className="text-sm text-blue-600 hover:text-blue-800 disabled:opacity-50 disabled:cursor-not-allowed"
+    >
+      {loading ? "Loading..." : "Load older messages"}
+    </button>
+  </div>
+);
+
 // Message Bubble Component
 const MessageBubble = ({ message, username, getFileUrl, formatTime, isGroup = false }) => (
   <div className={`flex ${message.senderName !== username ? "justify-start" : "justify-end"}`}>
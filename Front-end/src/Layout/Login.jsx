@@ -28,7 +28,9 @@ export const Login = () => {
           {
             username,
             password,
-          }
+          },
+          // Keeps the session cookie, the chat's websocket is tied to the login through it
+          { withCredentials: true }
         );
 
         if (response.status === 200) {
@@ -217,7 +219,8 @@ const SignupForm = ({ onSignupSuccess, onSwitchToLogin }) => {
           name: formData.name,
           email: formData.email,
           password: formData.password,
-        }
+        },
+        { withCredentials: true }
       );
 
       if (response.status === 200) {
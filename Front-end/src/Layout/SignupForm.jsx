@@ -53,7 +53,8 @@ const SignupForm = ({ onSignupSuccess, onSwitchToLogin }) => {
 
       const response = await axios.post(
         "http://localhost:8080/api/users/signup",
-        payload
+        payload,
+        { withCredentials: true }
       );
 
       console.log("Signup successful:", response.data);